@@ -0,0 +1,28 @@
+package org.xhtmlrenderer.benchmark;
+
+import org.openjdk.jmh.Main;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the benchmarks like {@link Main}, with the allocation profiler ({@code -prof gc}) enabled
+ * unless other profilers are given, so that every run reports the bytes allocated per operation
+ * ({@code gc.alloc.rate.norm}) next to the time.
+ */
+public final class BenchmarkMain {
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = Arrays.asList(args);
+        if (arguments.contains("-prof") || arguments.contains("-lprof") || arguments.contains("-h")) {
+            Main.main(args);
+            return;
+        }
+        String[] withProfiler = Arrays.copyOf(args, args.length + 2);
+        withProfiler[args.length] = "-prof";
+        withProfiler[args.length + 1] = "gc";
+        Main.main(withProfiler);
+    }
+}
@@ -0,0 +1,97 @@
+package org.xhtmlrenderer.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xhtmlrenderer.context.StandardAttributeResolver;
+import org.xhtmlrenderer.context.StylesheetFactoryImpl;
+import org.xhtmlrenderer.css.extend.lib.DOMTreeResolver;
+import org.xhtmlrenderer.css.newmatch.Matcher;
+import org.xhtmlrenderer.css.parser.CSSParser;
+import org.xhtmlrenderer.css.sheet.Stylesheet;
+import org.xhtmlrenderer.extend.UserInterface;
+import org.xhtmlrenderer.simple.extend.XhtmlNamespaceHandler;
+import org.xhtmlrenderer.swing.NaiveUserAgent;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.xhtmlrenderer.css.sheet.StylesheetInfo.Origin.AUTHOR;
+
+/**
+ * Cascade of a large table against a large stylesheet, with and without the selector index
+ * ({@code xr.css.selector-index}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dxr.util-logging.loggingEnabled=false")
+public class MatcherBenchmark {
+    @Param({"100", "2000"})
+    public int rules;
+
+    @Param({"true", "false"})
+    public boolean useSelectorIndex;
+
+    private final NaiveUserAgent userAgent = new NaiveUserAgent();
+    private final XhtmlNamespaceHandler namespaceHandler = new XhtmlNamespaceHandler();
+    private Stylesheet stylesheet;
+    private final List<Element> elements = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws Exception {
+        stylesheet = new CSSParser((uri, message) -> {})
+                .parseStylesheet("benchmark.css", AUTHOR, new StringReader(SyntheticDocuments.frameworkStylesheet(rules)));
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(SyntheticDocuments.table(1000, 10))));
+        NodeList all = document.getElementsByTagName("*");
+        for (int i = 0; i < all.getLength(); i++) {
+            elements.add((Element) all.item(i));
+        }
+    }
+
+    @Benchmark
+    public void cascade(Blackhole blackhole) {
+        Matcher matcher = new Matcher(new DOMTreeResolver(),
+                new StandardAttributeResolver(namespaceHandler, userAgent, new NoUserInterface()),
+                new StylesheetFactoryImpl(userAgent), List.of(stylesheet), "print", useSelectorIndex);
+        for (Element element : elements) {
+            blackhole.consume(matcher.getCascadedStyle(element, false));
+        }
+    }
+
+    private static final class NoUserInterface implements UserInterface {
+        @Override
+        public boolean isHover(Element e) {
+            return false;
+        }
+
+        @Override
+        public boolean isActive(Element e) {
+            return false;
+        }
+
+        @Override
+        public boolean isFocus(Element e) {
+            return false;
+        }
+    }
+}
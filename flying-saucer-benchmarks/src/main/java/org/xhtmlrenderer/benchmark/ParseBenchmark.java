@@ -0,0 +1,71 @@
+package org.xhtmlrenderer.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.xhtmlrenderer.context.StylesheetFactoryImpl;
+import org.xhtmlrenderer.css.sheet.Stylesheet;
+import org.xhtmlrenderer.resource.XMLResource;
+import org.xhtmlrenderer.swing.NaiveUserAgent;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import static org.xhtmlrenderer.css.sheet.StylesheetInfo.Origin.AUTHOR;
+
+/**
+ * Parsing of documents ({@link XMLResource#load(String)}) and of stylesheets
+ * ({@link StylesheetFactoryImpl#parse(java.io.Reader, String, org.xhtmlrenderer.css.sheet.StylesheetInfo.Origin)}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dxr.util-logging.loggingEnabled=false")
+public class ParseBenchmark {
+    @State(Scope.Benchmark)
+    public static class Documents {
+        @Param({"table", "long-text", "floats"})
+        public String corpus;
+
+        private String html;
+
+        @Setup
+        public void setUp() {
+            html = SyntheticDocuments.corpus(corpus);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Stylesheets {
+        @Param({"100", "2000"})
+        public int rules;
+
+        private final StylesheetFactoryImpl factory = new StylesheetFactoryImpl(new NaiveUserAgent());
+        private String css;
+
+        @Setup
+        public void setUp() {
+            css = SyntheticDocuments.frameworkStylesheet(rules);
+        }
+    }
+
+    @Benchmark
+    public Document loadDocument(Documents documents) {
+        return XMLResource.load(documents.html).getDocument();
+    }
+
+    @Benchmark
+    public Stylesheet parseStylesheet(Stylesheets stylesheets) {
+        return stylesheets.factory.parse(new StringReader(stylesheets.css), "benchmark.css", AUTHOR);
+    }
+}
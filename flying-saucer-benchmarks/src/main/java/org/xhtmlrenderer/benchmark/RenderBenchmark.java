@@ -0,0 +1,92 @@
+package org.xhtmlrenderer.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.xhtmlrenderer.layout.BoxBuilder;
+import org.xhtmlrenderer.layout.LayoutContext;
+import org.xhtmlrenderer.layout.SharedContext;
+import org.xhtmlrenderer.pdf.ITextFontContext;
+import org.xhtmlrenderer.pdf.ITextRenderer;
+import org.xhtmlrenderer.render.BlockBox;
+import org.xhtmlrenderer.render.Box;
+import org.xhtmlrenderer.resource.XMLResource;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The phases of rendering a parsed document to PDF: building the box tree
+ * ({@link BoxBuilder#createRootBox} and the children of every block box, which cascades the styles
+ * of every element), the whole layout
+ * ({@link ITextRenderer#layout()}) and painting and writing the laid out document
+ * ({@link ITextRenderer#createPDF(java.io.OutputStream)}).
+ * <p>
+ * The renderer is reused, so the measurements include warm caches, as when a service renders
+ * the same kind of documents again and again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dxr.util-logging.loggingEnabled=false")
+public class RenderBenchmark {
+    @Param({"table", "sampled-table", "long-text", "floats", "ledger", "keep-together"})
+    public String corpus;
+
+    private final ITextRenderer renderer = new ITextRenderer();
+    private Document document;
+
+    @Setup
+    public void setUp() {
+        document = XMLResource.load(SyntheticDocuments.corpus(corpus)).getDocument();
+        renderer.setDocument(document, null);
+        renderer.layout();
+    }
+
+    @Benchmark
+    public BlockBox buildBoxTree() {
+        SharedContext sharedContext = renderer.getSharedContext();
+        ITextFontContext fontContext = new ITextFontContext();
+        LayoutContext c = sharedContext.newLayoutContextInstance(fontContext);
+        sharedContext.getTextRenderer().setup(fontContext);
+        BlockBox root = BoxBuilder.createRootBox(c, document);
+        ensureChildren(c, root);
+        return root;
+    }
+
+    /**
+     * Builds the boxes which layout would build on demand
+     */
+    private static void ensureChildren(LayoutContext c, BlockBox block) {
+        block.ensureChildren(c);
+        for (Box child : block.getChildren()) {
+            if (child instanceof BlockBox) {
+                ensureChildren(c, (BlockBox) child);
+            }
+        }
+    }
+
+    @Benchmark
+    public BlockBox layout() {
+        renderer.layout();
+        return renderer.getRootBox();
+    }
+
+    @Benchmark
+    public int createPDF() {
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream(1024 * 1024);
+        renderer.createPDF(pdf);
+        return pdf.size();
+    }
+}
@@ -0,0 +1,74 @@
+package org.xhtmlrenderer.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xhtmlrenderer.css.constants.CSSName;
+import org.xhtmlrenderer.css.style.CalculatedStyle;
+import org.xhtmlrenderer.layout.SharedContext;
+import org.xhtmlrenderer.pdf.ITextRenderer;
+import org.xhtmlrenderer.resource.XMLResource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cascading the styles of a table of 100,000 cells with inline styles, where most cells get a
+ * {@link CalculatedStyle} of their own, and resolving the values layout asks every style for.
+ * With the allocation profiler of {@link BenchmarkMain}, {@code gc.alloc.rate.norm} is about
+ * the memory the styles of the document take.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dxr.util-logging.loggingEnabled=false")
+public class StyleBenchmark {
+    private static final int COLUMNS = 5;
+
+    @Param({"20000"})
+    public int rows;
+
+    private final ITextRenderer renderer = new ITextRenderer();
+    private final List<Element> elements = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        Document document = XMLResource.load(SyntheticDocuments.styledTable(rows, COLUMNS)).getDocument();
+        renderer.setDocument(document, null);
+        NodeList all = document.getElementsByTagName("*");
+        for (int i = 0; i < all.getLength(); i++) {
+            elements.add((Element) all.item(i));
+        }
+    }
+
+    @Benchmark
+    public int cascadeStyles() {
+        SharedContext sharedContext = renderer.getSharedContext();
+        sharedContext.reset();
+        int resolved = 0;
+        for (Element element : elements) {
+            CalculatedStyle style = sharedContext.getStyle(element);
+            resolved += style.getDisplay().FS_ID;
+            resolved += style.valueByName(CSSName.FONT_SIZE).hashCode();
+            resolved += style.valueByName(CSSName.COLOR).hashCode();
+            resolved += style.valueByName(CSSName.BORDER_TOP_COLOR).hashCode();
+            resolved += style.valueByName(CSSName.PADDING_LEFT).hashCode();
+            resolved += style.valueByName(CSSName.TEXT_ALIGN).hashCode();
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,245 @@
+package org.xhtmlrenderer.benchmark;
+
+/**
+ * Generates the synthetic documents and stylesheets the benchmarks run on.
+ */
+final class SyntheticDocuments {
+    private static final String[] WORDS = {
+            "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit", "sed", "do",
+            "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua", "enim",
+            "minim", "veniam", "quis", "nostrud", "exercitation", "ullamco", "laboris", "nisi", "aliquip",
+            "commodo", "consequat"
+    };
+
+    private SyntheticDocuments() {
+    }
+
+    /**
+     * @param corpus one of {@code table}, {@code sampled-table}, {@code long-text}, {@code floats},
+     * {@code ledger} or {@code keep-together}
+     * @return a document of several dozen pages (several hundred for {@code sampled-table},
+     * {@code ledger} and {@code keep-together}), with the styles it uses in its head
+     */
+    static String corpus(String corpus) {
+        return switch (corpus) {
+            case "table" -> xhtmlTable(2000, 6, "none");
+            case "sampled-table" -> xhtmlTable(20000, 6, "100");
+            case "long-text" -> longText(400);
+            case "floats" -> floats(1500);
+            case "ledger" -> ledger(30000);
+            case "keep-together" -> keepTogether(3000);
+            default -> throw new IllegalArgumentException("Unknown corpus: " + corpus);
+        };
+    }
+
+    /**
+     * A stylesheet in the style of a CSS framework: many class rules, some of them
+     * qualified by element names, ids or ancestors.
+     */
+    static String frameworkStylesheet(int rules) {
+        StringBuilder css = new StringBuilder(rules * 48);
+        css.append("* { margin: 0 }\n");
+        css.append("td { padding: 1px }\n");
+        for (int i = 0; i < rules; i++) {
+            switch (i % 5) {
+                case 0 -> css.append(".c").append(i).append(" { color: #").append(hex(i)).append(" }\n");
+                case 1 -> css.append("td.c").append(i).append(" { text-align: right }\n");
+                case 2 -> css.append("#id").append(i).append(" { font-weight: bold }\n");
+                case 3 -> css.append(".t").append(i % 50).append(" .c").append(i).append(" { padding-left: 2px }\n");
+                default -> css.append("tr > .c").append(i).append(" { border-bottom: 1px solid #ccc }\n");
+            }
+        }
+        return css.toString();
+    }
+
+    /**
+     * A report-like table whose cells use classes from {@link #frameworkStylesheet(int)}.
+     */
+    static String table(int rows, int columns) {
+        StringBuilder html = new StringBuilder(rows * columns * 40);
+        html.append("<html><head><title>table</title></head><body>\n");
+        html.append("<table class=\"t1 report\">\n");
+        for (int row = 0; row < rows; row++) {
+            html.append("<tr class=\"r").append(row % 2).append("\">");
+            for (int column = 0; column < columns; column++) {
+                html.append("<td class=\"c").append((row * columns + column) % 500).append(" cell\">")
+                        .append(row).append('.').append(column).append("</td>");
+            }
+            html.append("</tr>\n");
+        }
+        html.append("</table></body></html>\n");
+        return html.toString();
+    }
+
+    /**
+     * A report with a header row and zebra striped, bordered cells, long enough to span many pages.
+     *
+     * @param layoutSample the {@code -fs-table-layout-sample} of the table
+     */
+    static String xhtmlTable(int rows, int columns, String layoutSample) {
+        StringBuilder html = xhtmlHead("""
+                table { border-collapse: collapse; width: 100%%; -fs-table-paginate: paginate;
+                        -fs-table-layout-sample: %s }
+                th { background: #ddd; text-align: left }
+                td, th { border: 1px solid #999; padding: 2px 4px }
+                tr.r1 td { background: #f4f4f4 }
+                td.amount { text-align: right }
+                """.formatted(layoutSample));
+        html.append("<table><thead><tr>");
+        for (int column = 0; column < columns; column++) {
+            html.append("<th>Column ").append(column).append("</th>");
+        }
+        html.append("</tr></thead><tbody>\n");
+        for (int row = 0; row < rows; row++) {
+            html.append("<tr class=\"r").append(row % 2).append("\">");
+            for (int column = 0; column < columns; column++) {
+                html.append(column == columns - 1 ? "<td class=\"amount\">" : "<td>")
+                        .append(WORDS[(row + column) % WORDS.length]).append(' ').append(row * columns + column)
+                        .append("</td>");
+            }
+            html.append("</tr>\n");
+        }
+        return html.append("</tbody></table></body></html>\n").toString();
+    }
+
+    /**
+     * A table whose cells have inline styles with many different colors and paddings, so that
+     * most cells get a style of their own.
+     */
+    static String styledTable(int rows, int columns) {
+        StringBuilder html = xhtmlHead("""
+                table { border-collapse: collapse; font-family: serif }
+                td { border: 1px solid #999 }
+                tr.r1 { font-style: italic }
+                """);
+        html.append("<table>\n");
+        for (int row = 0; row < rows; row++) {
+            html.append("<tr class=\"r").append(row % 2).append("\">");
+            for (int column = 0; column < columns; column++) {
+                int cell = row * columns + column;
+                html.append("<td style=\"color: #").append(hex(cell % 4096)).append("; padding-left: ")
+                        .append(cell % 7).append("px\">").append(WORDS[cell % WORDS.length]).append("</td>");
+            }
+            html.append("</tr>\n");
+        }
+        return html.append("</table></body></html>\n").toString();
+    }
+
+    /**
+     * Chapters of justified paragraphs with some inline markup, i.e. mostly line breaking.
+     */
+    static String longText(int paragraphs) {
+        StringBuilder html = xhtmlHead("""
+                h2 { page-break-before: always }
+                p { text-align: justify; text-indent: 2em; line-height: 1.4 }
+                em { color: #036 }
+                """);
+        for (int i = 0; i < paragraphs; i++) {
+            if (i % 20 == 0) {
+                html.append("<h2>Chapter ").append(i / 20 + 1).append("</h2>\n");
+            }
+            html.append("<p>");
+            for (int word = 0; word < 120; word++) {
+                String text = WORDS[(i * 7 + word * 3) % WORDS.length];
+                if (word % 17 == 5) {
+                    html.append("<em>").append(text).append("</em> ");
+                } else {
+                    html.append(text).append(' ');
+                }
+            }
+            html.append("</p>\n");
+        }
+        return html.append("</body></html>\n").toString();
+    }
+
+    /**
+     * Cards floating left and right of short paragraphs, some of them cleared, like a catalogue.
+     */
+    static String floats(int cards) {
+        StringBuilder html = xhtmlHead("""
+                div.card { float: left; width: 30%; margin: 4px; padding: 4px; border: 1px solid #888 }
+                div.side { float: right; width: 20%; background: #eee }
+                div.clear { clear: both }
+                """);
+        for (int i = 0; i < cards; i++) {
+            html.append("<div class=\"card").append(i % 7 == 3 ? " side" : "").append("\"><b>Item ").append(i)
+                    .append("</b> ");
+            for (int word = 0; word < 10 + i % 15; word++) {
+                html.append(WORDS[(i + word) % WORDS.length]).append(' ');
+            }
+            html.append("</div>\n");
+            if (i % 9 == 8) {
+                html.append("<p>").append(WORDS[i % WORDS.length]).append(" follows the floats.</p>\n");
+            }
+            if (i % 27 == 26) {
+                html.append("<div class=\"clear\"></div>\n");
+            }
+        }
+        return html.append("</body></html>\n").toString();
+    }
+
+    /**
+     * One block per ledger entry, all of them children of the body, like reports which don't use
+     * tables for their rows.
+     */
+    static String ledger(int entries) {
+        StringBuilder html = xhtmlHead("""
+                div.entry { border-bottom: 1px solid #ccc; padding: 1px 4px }
+                div.entry span.amount { float: right }
+                div.odd { background: #f4f4f4 }
+                """);
+        for (int i = 0; i < entries; i++) {
+            html.append("<div class=\"entry").append(i % 2 == 1 ? " odd" : "").append("\">")
+                    .append(i).append(' ').append(WORDS[i % WORDS.length]).append(' ')
+                    .append(WORDS[(i * 7) % WORDS.length])
+                    .append("<span class=\"amount\">").append(i * 37 % 10000).append(".00</span></div>\n");
+        }
+        return html.append("</body></html>\n").toString();
+    }
+
+    /**
+     * Sections of entries which must not be broken across pages, with headings kept with the
+     * first entry, so that most entries at the end of a page are laid out again on the next one.
+     */
+    static String keepTogether(int entries) {
+        StringBuilder html = xhtmlHead("""
+                h3 { page-break-after: avoid }
+                div.entry { page-break-inside: avoid; border: 1px solid #ccc; margin: 4px 0; padding: 2px }
+                p.summary::first-line { font-weight: bold }
+                dl { page-break-inside: avoid }
+                """);
+        for (int i = 0; i < entries; i++) {
+            if (i % 10 == 0) {
+                html.append("<h3>Section ").append(i / 10).append("</h3>\n");
+            }
+            html.append("<div class=\"entry\"><p class=\"summary\">Entry ").append(i);
+            appendWords(html, i, 24);
+            html.append("</p>");
+            for (int detail = 0; detail < i % 5; detail++) {
+                html.append("<p>Detail ").append(detail);
+                appendWords(html, i + detail, 16);
+                html.append("</p>");
+            }
+            html.append("<dl><dt>Amount</dt><dd>").append(i * 37 % 10000).append(".00</dd></dl></div>\n");
+        }
+        return html.append("</body></html>\n").toString();
+    }
+
+    private static StringBuilder xhtmlHead(String css) {
+        return new StringBuilder(64 * 1024)
+                .append("<html xmlns=\"http://www.w3.org/1999/xhtml\"><head><title>benchmark</title><style>\n")
+                .append(css)
+                .append("</style></head><body>\n");
+    }
+
+    private static void appendWords(StringBuilder html, int seed, int count) {
+        for (int word = 0; word < count; word++) {
+            html.append(' ').append(WORDS[(seed * 7 + word * 3) % WORDS.length]);
+        }
+    }
+
+    private static String hex(int i) {
+        String hex = Integer.toHexString(i * 2654435 & 0xffffff);
+        return "000000".substring(hex.length()) + hex;
+    }
+}
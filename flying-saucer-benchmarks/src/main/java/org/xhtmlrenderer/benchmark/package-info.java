@@ -0,0 +1,19 @@
+/**
+ * JMH benchmarks for the hot paths of Flying Saucer.
+ * <p>
+ * Build with {@code mvn package -pl flying-saucer-benchmarks -am} and run with
+ * {@code java -jar flying-saucer-benchmarks/target/benchmarks.jar}, which reports allocations
+ * ({@code -prof gc}) by default, see {@link org.xhtmlrenderer.benchmark.BenchmarkMain}.
+ * <p>
+ * The phases of rendering are measured separately: {@link org.xhtmlrenderer.benchmark.ParseBenchmark}
+ * parses documents and stylesheets, {@link org.xhtmlrenderer.benchmark.MatcherBenchmark} cascades
+ * styles and {@link org.xhtmlrenderer.benchmark.RenderBenchmark} builds boxes, lays out and writes
+ * PDF, on synthetic documents with large tables (one of them with a sampled table layout), long
+ * text, many floats, long ledgers and entries which must not be broken across pages.
+ * {@link org.xhtmlrenderer.benchmark.StyleBenchmark} measures the memory taken by the calculated
+ * styles of a large table with inline styles.
+ */
+@NullMarked
+package org.xhtmlrenderer.benchmark;
+
+import org.jspecify.annotations.NullMarked;
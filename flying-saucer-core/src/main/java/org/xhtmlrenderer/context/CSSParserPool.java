@@ -0,0 +1,45 @@
+package org.xhtmlrenderer.context;
+
+import org.xhtmlrenderer.css.parser.CSSParser;
+import org.xhtmlrenderer.util.Configuration;
+import org.xhtmlrenderer.util.XRLog;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.logging.Level;
+
+/**
+ * A bounded pool of {@link CSSParser}s shared by all {@link StylesheetFactoryImpl}s, so that the
+ * parsers and their input buffers are reused instead of allocated per factory. Like the XML reader
+ * pool in {@link org.xhtmlrenderer.resource.XMLResource}, idle parsers are only softly referenced.
+ */
+final class CSSParserPool {
+    static final CSSParserPool INSTANCE = new CSSParserPool(Configuration.valueAsInt("xr.css.parser-pool-capacity", 8));
+
+    private final Queue<Reference<CSSParser>> pool;
+
+    CSSParserPool(int capacity) {
+        pool = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    CSSParser get(boolean supportCMYKColors) {
+        CSSParser parser = null;
+        Reference<CSSParser> ref = pool.poll();
+        if (ref != null) {
+            parser = ref.get();
+        }
+
+        if (parser == null) {
+            parser = new CSSParser((uri, message) -> XRLog.cssParse(Level.WARNING, "(" + uri + ") " + message));
+        }
+        parser.setSupportCMYKColors(supportCMYKColors);
+        return parser;
+    }
+
+    void release(CSSParser parser) {
+        parser.clear();
+        pool.offer(new SoftReference<>(parser));
+    }
+}
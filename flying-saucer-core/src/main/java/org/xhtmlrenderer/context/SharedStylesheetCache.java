@@ -0,0 +1,88 @@
+package org.xhtmlrenderer.context;
+
+import com.google.errorprone.annotations.CheckReturnValue;
+import org.xhtmlrenderer.css.sheet.Stylesheet;
+import org.xhtmlrenderer.css.sheet.StylesheetInfo.Origin;
+import org.xhtmlrenderer.util.WeightedLruCache;
+
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe cache of parsed stylesheets which can be shared between any number of
+ * renderers (and thus {@link StylesheetFactoryImpl} instances), e.g. by keeping it in a
+ * static field and passing it to {@link org.xhtmlrenderer.layout.SharedContext#setStylesheetCache}.
+ * <p>
+ * Sheets are keyed by URI, origin and a digest of their source, so a changed stylesheet
+ * behind the same URI is parsed again. The cache is bounded both by number of entries and
+ * by total weight (the size of the stylesheet sources in bytes); least recently used
+ * entries are evicted first.
+ * <p>
+ * Parsed {@link Stylesheet}s are treated as immutable once they are in the cache.
+ */
+public class SharedStylesheetCache {
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+    public static final long DEFAULT_MAX_WEIGHT = 8L * 1024 * 1024;
+
+    private final WeightedLruCache<Key, Stylesheet> _cache;
+
+    public SharedStylesheetCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+    }
+
+    public SharedStylesheetCache(int maxEntries, long maxWeight) {
+        _cache = new WeightedLruCache<>("SharedStylesheetCache", maxEntries, maxWeight);
+    }
+
+    /**
+     * Returns the cached stylesheet for the given key, or parses and caches it.
+     * Concurrent misses for the same key may parse the sheet more than once, but
+     * only the first result is kept.
+     *
+     * @param uri    the URI of the stylesheet
+     * @param origin the origin of the stylesheet
+     * @param digest a digest of the stylesheet source (and anything else the parse result depends on)
+     * @param weight the weight of the entry, usually the size of the source in bytes
+     * @param parser parses the stylesheet on a cache miss
+     */
+    @CheckReturnValue
+    public Stylesheet get(String uri, Origin origin, String digest, long weight, Supplier<Stylesheet> parser) {
+        Key key = new Key(uri, origin, digest);
+        Stylesheet cached = _cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return _cache.putIfAbsent(key, parser.get(), weight);
+    }
+
+    public void clear() {
+        _cache.clear();
+    }
+
+    public int size() {
+        return _cache.size();
+    }
+
+    public long getWeight() {
+        return _cache.getWeight();
+    }
+
+    public long getHitCount() {
+        return _cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return _cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return _cache.getEvictionCount();
+    }
+
+    @Override
+    public String toString() {
+        return _cache.toString();
+    }
+
+    private record Key(String uri, Origin origin, String digest) {
+    }
+}
@@ -0,0 +1,143 @@
+package org.xhtmlrenderer.context;
+
+import com.google.errorprone.annotations.CheckReturnValue;
+import org.xhtmlrenderer.css.sheet.Ruleset;
+import org.xhtmlrenderer.css.sheet.StylesheetInfo.Origin;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe cache of parsed style declarations, i.e. the contents of {@code style} attributes
+ * and the styles generated from non-CSS presentational attributes. Generated documents often repeat
+ * the same declaration on thousands of elements, which then only needs to be parsed once.
+ * <p>
+ * By default, all {@link StylesheetFactoryImpl}s share one cache of
+ * {@code xr.css.style-declaration-cache-size} entries. When the cache is full, entries which have
+ * not been used since the previous eviction round are evicted (a "second chance" policy), so
+ * lookups never need a lock.
+ * <p>
+ * The cached {@link Ruleset}s must not be modified.
+ */
+public class StyleDeclarationCache {
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    /**
+     * Longer declarations are not cached, they are unlikely to be repeated.
+     */
+    static final int MAX_DECLARATION_LENGTH = 2048;
+
+    private final int _maxEntries;
+    private final Map<Key, Entry> _entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong _hits = new AtomicLong();
+    private final AtomicLong _misses = new AtomicLong();
+    private final AtomicLong _evictions = new AtomicLong();
+
+    public StyleDeclarationCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries maximum number of cached declarations; 0 disables caching
+     */
+    public StyleDeclarationCache(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + maxEntries);
+        }
+        _maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the cached ruleset for the given declaration, or parses and caches it.
+     *
+     * @param origin             the origin of the declaration
+     * @param supportCMYKColors  whether the parser accepts CMYK colors
+     * @param styleDeclaration   the declaration text
+     * @param parser             parses the declaration on a cache miss
+     */
+    @CheckReturnValue
+    public Ruleset get(Origin origin, boolean supportCMYKColors, String styleDeclaration, Supplier<Ruleset> parser) {
+        if (_maxEntries == 0 || styleDeclaration.length() > MAX_DECLARATION_LENGTH) {
+            return parser.get();
+        }
+
+        Key key = new Key(origin, supportCMYKColors, styleDeclaration);
+        Entry entry = _entries.get(key);
+        if (entry != null) {
+            _hits.incrementAndGet();
+            entry.used = true;
+            return entry.ruleset;
+        }
+
+        _misses.incrementAndGet();
+        Ruleset ruleset = parser.get();
+        Entry existing = _entries.putIfAbsent(key, new Entry(ruleset));
+        if (existing != null) {
+            return existing.ruleset;
+        }
+        if (_entries.size() > _maxEntries) {
+            evict();
+        }
+        return ruleset;
+    }
+
+    /**
+     * Evicts down to three quarters of the maximum size, so evictions happen in batches.
+     */
+    private synchronized void evict() {
+        int target = _maxEntries * 3 / 4;
+        while (_entries.size() > target) {
+            for (Iterator<Entry> it = _entries.values().iterator(); it.hasNext() && _entries.size() > target; ) {
+                Entry entry = it.next();
+                if (entry.used) {
+                    entry.used = false;
+                } else {
+                    it.remove();
+                    _evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        _entries.clear();
+    }
+
+    public int size() {
+        return _entries.size();
+    }
+
+    public long getHitCount() {
+        return _hits.get();
+    }
+
+    public long getMissCount() {
+        return _misses.get();
+    }
+
+    public long getEvictionCount() {
+        return _evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "StyleDeclarationCache{size=%d, hits=%d, misses=%d, evictions=%d}".formatted(
+                size(), getHitCount(), getMissCount(), getEvictionCount());
+    }
+
+    private record Key(Origin origin, boolean supportCMYKColors, String styleDeclaration) {
+    }
+
+    private static final class Entry {
+        private final Ruleset ruleset;
+        private volatile boolean used;
+
+        private Entry(Ruleset ruleset) {
+            this.ruleset = ruleset;
+        }
+    }
+}
@@ -36,9 +36,11 @@ import org.xhtmlrenderer.css.sheet.FontFaceRule;
 import org.xhtmlrenderer.css.sheet.PropertyDeclaration;
 import org.xhtmlrenderer.css.sheet.Stylesheet;
 import org.xhtmlrenderer.css.sheet.StylesheetInfo;
+import org.xhtmlrenderer.event.RenderPhase;
 import org.xhtmlrenderer.extend.NamespaceHandler;
 import org.xhtmlrenderer.extend.UserAgentCallback;
 import org.xhtmlrenderer.extend.UserInterface;
+import org.xhtmlrenderer.layout.RenderMetrics;
 import org.xhtmlrenderer.layout.SharedContext;
 import org.xhtmlrenderer.util.XRLog;
 
@@ -87,13 +89,20 @@ public class StyleReference {
         _doc = doc;
         AttributeResolver attRes = new StandardAttributeResolver(_nsh, _uac, ui);
 
+        RenderMetrics metrics = context.getMetrics();
+        long start = System.nanoTime();
+        _stylesheetFactory.setMetrics(metrics);
         List<StylesheetInfo> infos = getStylesheets();
         XRLog.match("media = " + context.getMedia());
+        List<Stylesheet> stylesheets = readAndParseAll(infos, context.getMedia());
+        if (metrics != null) {
+            metrics.addTime(RenderPhase.STYLESHEETS, start);
+        }
         _matcher = new Matcher(
                 new DOMTreeResolver(),
                 attRes,
                 _stylesheetFactory,
-                readAndParseAll(infos, context.getMedia()),
+                stylesheets,
                 context.getMedia());
     }
 
@@ -233,5 +242,21 @@ public class StyleReference {
     public void setSupportCMYKColors(boolean b) {
         _stylesheetFactory.setSupportCMYKColors(b);
     }
+
+    /**
+     * Sets a cache of parsed stylesheets to share with other style references,
+     * or {@code null} to only use the per-instance cache.
+     */
+    public void setStylesheetCache(@Nullable SharedStylesheetCache stylesheetCache) {
+        _stylesheetFactory.setSharedCache(stylesheetCache);
+    }
+
+    /**
+     * Sets the cache of parsed {@code style} attributes. By default, a cache shared by all
+     * style references is used.
+     */
+    public void setStyleDeclarationCache(StyleDeclarationCache declarationCache) {
+        _stylesheetFactory.setDeclarationCache(declarationCache);
+    }
 }
 
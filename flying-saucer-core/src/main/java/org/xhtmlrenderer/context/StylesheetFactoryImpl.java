@@ -27,31 +27,41 @@ import org.xhtmlrenderer.css.sheet.Ruleset;
 import org.xhtmlrenderer.css.sheet.Stylesheet;
 import org.xhtmlrenderer.css.sheet.StylesheetInfo;
 import org.xhtmlrenderer.css.sheet.StylesheetInfo.Origin;
+import org.xhtmlrenderer.event.RenderCounter;
 import org.xhtmlrenderer.extend.UserAgentCallback;
+import org.xhtmlrenderer.layout.RenderMetrics;
 import org.xhtmlrenderer.resource.CSSResource;
 import org.xhtmlrenderer.util.Configuration;
 import org.xhtmlrenderer.util.XRLog;
 import org.xml.sax.InputSource;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.Optional;
 import java.util.logging.Level;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.synchronizedMap;
 
 /**
- * A Factory class for Cascading Style Sheets. Sheets are parsed using a single
- * parser instance for all sheets. Sheets are cached by URI using LRU test,
- * but timestamp of file is not checked.
+ * A Factory class for Cascading Style Sheets. Sheets are parsed using parsers
+ * borrowed from a pool shared by all factories. Sheets are cached by URI using LRU test,
+ * but timestamp of file is not checked. If a {@link SharedStylesheetCache} is
+ * set, sheets that are not yet in this factory's cache are loaded, but only
+ * parsed if the shared cache does not already hold them.
  *
  * @author Torbjoern Gannholm
  */
 public class StylesheetFactoryImpl implements StylesheetFactory {
+    private static final StyleDeclarationCache defaultDeclarationCache = new StyleDeclarationCache(
+            Configuration.valueAsInt("xr.css.style-declaration-cache-size", StyleDeclarationCache.DEFAULT_MAX_ENTRIES));
+
     /**
      * the UserAgentCallback to resolve uris
      */
@@ -61,11 +71,27 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
      * an LRU cache
      */
     private final Map<String, Stylesheet> _cache = synchronizedMap(new StylesheetCache());
-    private final CSSParser _cssParser;
+    private volatile boolean _supportCMYKColors;
+
+    /**
+     * optional cache of parsed stylesheets shared with other factories
+     */
+    @Nullable
+    private volatile SharedStylesheetCache _sharedCache;
+
+    /**
+     * parsed style attributes, shared by all factories unless replaced
+     */
+    private volatile StyleDeclarationCache _declarationCache = defaultDeclarationCache;
+
+    /**
+     * metrics of the document whose stylesheets are loaded
+     */
+    @Nullable
+    private volatile RenderMetrics _metrics;
 
     public StylesheetFactoryImpl(UserAgentCallback userAgentCallback) {
         _userAgentCallback = userAgentCallback;
-        _cssParser = new CSSParser((uri, message) -> XRLog.cssParse(Level.WARNING, "(" + uri + ") " + message));
     }
 
     @Override
@@ -75,11 +101,24 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
 
     @Override
     public Stylesheet parse(Reader reader, String uri, Origin origin) {
+        CSSParser parser = CSSParserPool.INSTANCE.get(_supportCMYKColors);
         try {
-            return _cssParser.parseStylesheet(uri, origin, reader);
+            return parser.parseStylesheet(uri, origin, reader);
         } catch (IOException e) {
             XRLog.cssParse(Level.WARNING, "Couldn't parse stylesheet at URI " + uri + ": " + e.getMessage(), e);
             return new Stylesheet(uri, origin);
+        } finally {
+            CSSParserPool.INSTANCE.release(parser);
+        }
+    }
+
+    private Stylesheet parse(CharSequence css, StylesheetInfo info) {
+        countParsed();
+        CSSParser parser = CSSParserPool.INSTANCE.get(_supportCMYKColors);
+        try {
+            return parser.parseStylesheet(info.getUri(), info.getOrigin(), css);
+        } finally {
+            CSSParserPool.INSTANCE.release(parser);
         }
     }
 
@@ -88,9 +127,19 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
      */
     @Nullable
     private Stylesheet parse(StylesheetInfo info) {
-        CSSResource cr = info.getContent()
-                .map(css -> new CSSResource(new ByteArrayInputStream(css.getBytes(UTF_8))))
-                .orElseGet(() -> _userAgentCallback.getCSSResource(info.getUri()));
+        Optional<String> content = info.getContent();
+        if (content.isPresent()) {
+            String css = content.get();
+            SharedStylesheetCache sharedCache = _sharedCache;
+            if (sharedCache == null) {
+                return parse(css, info);
+            }
+            byte[] source = css.getBytes(UTF_8);
+            return sharedCache.get(info.getUri(), info.getOrigin(), digest(source, "UTF-8"),
+                    source.length, () -> parse(css, info));
+        }
+
+        CSSResource cr = _userAgentCallback.getCSSResource(info.getUri());
 
         // Whether by accident or design, InputStream will never be null
         // since the null resource stream is wrapped in a BufferedInputStream
@@ -99,15 +148,49 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
         try (InputStream is = inputSource.getByteStream()) {
             if (is == null) return null;
             String charset = Configuration.valueFor("xr.stylesheets.charset-name", "UTF-8");
-            return parse(new InputStreamReader(is, charset), info);
+            SharedStylesheetCache sharedCache = _sharedCache;
+            if (sharedCache == null) {
+                countParsed();
+                return parse(new InputStreamReader(is, charset), info);
+            }
+
+            byte[] bytes = is.readAllBytes();
+            String css = new String(bytes, charset);
+            return sharedCache.get(info.getUri(), info.getOrigin(), digest(bytes, charset), bytes.length,
+                    () -> parse(css, info));
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
     }
 
+    /**
+     * Digest of everything the parsed stylesheet depends on besides its URI and origin
+     */
+    private String digest(byte[] css, String charset) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(css);
+            digest.update(charset.getBytes(UTF_8));
+            digest.update((byte) (_supportCMYKColors ? 1 : 0));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Override
     public Ruleset parseStyleDeclaration(Origin origin, String styleDeclaration) {
-        return _cssParser.parseDeclaration(origin, styleDeclaration);
+        return _declarationCache.get(origin, _supportCMYKColors, styleDeclaration,
+                () -> parseDeclaration(origin, styleDeclaration));
+    }
+
+    private Ruleset parseDeclaration(Origin origin, String styleDeclaration) {
+        CSSParser parser = CSSParserPool.INSTANCE.get(_supportCMYKColors);
+        try {
+            return parser.parseDeclaration(origin, styleDeclaration);
+        } finally {
+            CSSParserPool.INSTANCE.release(parser);
+        }
     }
 
     /**
@@ -158,6 +241,10 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
     @Override
     public Stylesheet getStylesheet(StylesheetInfo info) {
         XRLog.load("Requesting stylesheet: " + info.getUri());
+        RenderMetrics metrics = _metrics;
+        if (metrics != null) {
+            metrics.increment(RenderCounter.STYLESHEET_REQUESTS);
+        }
 
         Stylesheet s = _cache.get(info.getUri());
         if (s == null && !containsStylesheet(info.getUri())) {
@@ -171,7 +258,26 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
         _userAgentCallback = userAgent;
     }
 
+    void setSharedCache(@Nullable SharedStylesheetCache sharedCache) {
+        _sharedCache = sharedCache;
+    }
+
+    void setMetrics(@Nullable RenderMetrics metrics) {
+        _metrics = metrics;
+    }
+
+    private void countParsed() {
+        RenderMetrics metrics = _metrics;
+        if (metrics != null) {
+            metrics.increment(RenderCounter.STYLESHEETS_PARSED);
+        }
+    }
+
+    void setDeclarationCache(StyleDeclarationCache declarationCache) {
+        _declarationCache = declarationCache;
+    }
+
     void setSupportCMYKColors(boolean b) {
-        _cssParser.setSupportCMYKColors(b);
+        _supportCMYKColors = b;
     }
 }
@@ -363,6 +363,18 @@ public final class CSSName implements Comparable<CSSName> {
                     new PrimitivePropertyBuilders.FSTablePaginate()
             );
 
+    /**
+     * Unique CSSName instance for CSS2 property.
+     */
+    public static final CSSName FS_TABLE_LAYOUT_SAMPLE =
+            addProperty(
+                    "-fs-table-layout-sample",
+                    PRIMITIVE,
+                    "none",
+                    NOT_INHERITED,
+                    new PrimitivePropertyBuilders.FSTableLayoutSample()
+            );
+
     /**
      * Unique CSSName instance for CSS2 property.
      */
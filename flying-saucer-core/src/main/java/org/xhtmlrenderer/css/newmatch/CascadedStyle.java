@@ -26,6 +26,7 @@ import org.xhtmlrenderer.css.parser.PropertyValue;
 import org.xhtmlrenderer.css.sheet.PropertyDeclaration;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -61,6 +62,7 @@ public class CascadedStyle {
     private final Map<CSSName, PropertyDeclaration> cascadedProperties;
 
     private String fingerprint;
+    private volatile Key key;
 
     /**
      * Creates a {@code CascadedStyle}, setting the display property
@@ -229,4 +231,65 @@ public class CascadedStyle {
         }
         return fingerprint;
     }
+
+    /**
+     * @return a key which is equal for styles with the same properties, see {@link Key}
+     */
+    public Key getKey() {
+        Key result = key;
+        if (result == null) {
+            result = new Key(cascadedProperties.values().toArray(new PropertyDeclaration[0]));
+            key = result;
+        }
+        return result;
+    }
+
+    /**
+     * Tells apart cascaded styles that derive different calculated styles from the same parent
+     * style. Unlike {@link #getFingerprint()}, no string is built for it: the properties are
+     * compared one by one, by identity for the declarations of shared rulesets, and by their
+     * fingerprints otherwise (e.g. for the same {@code style} attribute on several elements).
+     */
+    public static final class Key {
+        private final PropertyDeclaration[] declarations;
+        private final int hash;
+
+        private Key(PropertyDeclaration[] declarations) {
+            this.declarations = declarations;
+            int hash = 1;
+            for (PropertyDeclaration declaration : declarations) {
+                hash = 31 * hash + declaration.getFingerprint().hashCode();
+            }
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other) || hash != other.hash || declarations.length != other.declarations.length) {
+                return false;
+            }
+            for (int i = 0; i < declarations.length; i++) {
+                PropertyDeclaration declaration = declarations[i];
+                PropertyDeclaration otherDeclaration = other.declarations[i];
+                if (declaration != otherDeclaration
+                        && !declaration.getFingerprint().equals(otherDeclaration.getFingerprint())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(declarations);
+        }
+    }
 }
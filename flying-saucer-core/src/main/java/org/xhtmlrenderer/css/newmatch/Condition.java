@@ -291,6 +291,10 @@ abstract class Condition {
             return c != null && containsClassName(c);
         }
 
+        String getClassName() {
+            return className;
+        }
+
         boolean containsClassName(String classAttribute) {
             return containsClassName(classAttribute, -1);
         }
@@ -312,13 +316,17 @@ abstract class Condition {
         }
     }
 
-    private static class IDCondition extends Condition {
+    static final class IDCondition extends Condition {
         private final String _id;
 
         private IDCondition(String id) {
             _id = id;
         }
 
+        String getID() {
+            return _id;
+        }
+
         @Override
         boolean matches(Node e, AttributeResolver attRes, TreeResolver treeRes) {
             if (attRes == null) {
@@ -35,27 +35,40 @@ import org.xhtmlrenderer.css.sheet.PageRule;
 import org.xhtmlrenderer.css.sheet.PropertyDeclaration;
 import org.xhtmlrenderer.css.sheet.Ruleset;
 import org.xhtmlrenderer.css.sheet.Stylesheet;
+import org.xhtmlrenderer.util.Configuration;
 import org.xhtmlrenderer.util.Util;
 import org.xhtmlrenderer.util.XRLog;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
-import static java.util.Collections.synchronizedMap;
-import static java.util.Collections.synchronizedSet;
-import static java.util.Comparator.comparingLong;
+import static java.util.Objects.requireNonNullElse;
 import static org.xhtmlrenderer.css.newmatch.Selector.Axis.IMMEDIATE_SIBLING_AXIS;
 import static org.xhtmlrenderer.css.sheet.StylesheetInfo.Origin.AUTHOR;
 
 
 /**
+ * Matches elements against the selectors of a list of stylesheets.
+ * <p>
+ * Concurrency: a Matcher does not lock on DOM nodes, so several matchers can style documents that
+ * share DOM nodes on different threads at the same time. The selectors, page rules and font-face rules
+ * are fixed when the Matcher is created. The mappings from elements to matched selectors, and the
+ * elements styled by dynamic pseudo-classes, are kept in concurrent maps. Racing threads may match
+ * the same element twice, but always link it to the same result.
+ * <p>
+ * A single Matcher can be used by several threads only if its {@link TreeResolver},
+ * {@link AttributeResolver} and {@link StylesheetFactory} (used to parse {@code style} attributes) are
+ * thread-safe as well, and only while nobody modifies the DOM. The standard implementations used by
+ * {@link org.xhtmlrenderer.context.StyleReference} are not, so in practice each render has its own
+ * Matcher. Parsed {@link Stylesheet}s are not modified by a Matcher and can be shared between them.
+ *
  * @author Torbjoern Gannholm
  */
 public class Matcher {
@@ -65,21 +78,36 @@ public class Matcher {
     private final TreeResolver _treeRes;
     private final StylesheetFactory _styleFactory;
 
-    private final Map<Node, Mapper> _map = synchronizedMap(new HashMap<>());
+    private final Map<Node, Mapper> _map = new ConcurrentHashMap<>();
 
     //handle dynamic
-    private final Set<Node> _hoverElements = synchronizedSet(new HashSet<>());
-    private final Set<Node> _activeElements = synchronizedSet(new HashSet<>());
-    private final Set<Node> _focusElements = synchronizedSet(new HashSet<>());
-    private final Set<Node> _visitElements = synchronizedSet(new HashSet<>());
+    private final Set<Node> _hoverElements = ConcurrentHashMap.newKeySet();
+    private final Set<Node> _activeElements = ConcurrentHashMap.newKeySet();
+    private final Set<Node> _focusElements = ConcurrentHashMap.newKeySet();
+    private final Set<Node> _visitElements = ConcurrentHashMap.newKeySet();
+
+    // only modified while the Matcher is created
     private final List<PageRule> _pageRules = new ArrayList<>();
     private final List<FontFaceRule> _fontFaceRules = new ArrayList<>();
 
+    /**
+     * Whether to only evaluate the selectors that can match an element by its id, classes and name,
+     * instead of all selectors (see {@link SelectorIndex})
+     */
+    private final boolean _useSelectorIndex;
+
     public Matcher(TreeResolver tr, AttributeResolver ar,
                    StylesheetFactory factory, List<Stylesheet> stylesheets, String medium) {
+        this(tr, ar, factory, stylesheets, medium, Configuration.isTrue("xr.css.selector-index", true));
+    }
+
+    public Matcher(TreeResolver tr, AttributeResolver ar,
+                   StylesheetFactory factory, List<Stylesheet> stylesheets, String medium,
+                   boolean useSelectorIndex) {
         _treeRes = tr;
         _attRes = ar;
         _styleFactory = factory;
+        _useSelectorIndex = useSelectorIndex;
         docMapper = createDocumentMapper(stylesheets, medium);
     }
 
@@ -88,10 +116,8 @@ public class Matcher {
     }
 
     public CascadedStyle getCascadedStyle(Element e, boolean restyle) {
-        synchronized (e) {
-            Mapper em = restyle ? matchElement(e) : getMapper(e);
-            return em.getCascadedStyle(e);
-        }
+        Mapper em = restyle ? matchElement(e) : getMapper(e);
+        return em.getCascadedStyle(e);
     }
 
     /**
@@ -100,10 +126,8 @@ public class Matcher {
      */
     @Nullable
     public CascadedStyle getPECascadedStyle(Element e, String pseudoElement) {
-        synchronized (e) {
-            Mapper em = getMapper(e);
-            return em.getPECascadedStyle(pseudoElement);
-        }
+        Mapper em = getMapper(e);
+        return em.getPECascadedStyle(pseudoElement);
     }
 
     @NonNull
@@ -144,17 +168,15 @@ public class Matcher {
     }
 
     private Mapper matchElement(Node e) {
-        synchronized (e) {
-            Node parent = _treeRes.getParentElement(e);
-            Mapper child;
-            if (parent != null) {
-                Mapper m = getMapper(parent);
-                child = m.mapChild(e);
-            } else {//has to be document or fragment node
-                child = docMapper.mapChild(e);
-            }
-            return child;
+        Node parent = _treeRes.getParentElement(e);
+        Mapper child;
+        if (parent != null) {
+            Mapper m = getMapper(parent);
+            child = m.mapChild(e);
+        } else {//has to be document or fragment node
+            child = docMapper.mapChild(e);
         }
+        return child;
     }
 
     private Mapper createDocumentMapper(List<Stylesheet> stylesheets, String medium) {
@@ -164,25 +186,28 @@ public class Matcher {
         return new Mapper(sorter.values());
     }
 
+    /**
+     * Stylesheets may be shared with other matchers (see
+     * {@link org.xhtmlrenderer.context.SharedStylesheetCache}), so the
+     * specification order is kept here instead of being stored in the rules.
+     */
     private void addAllStylesheets(List<Stylesheet> stylesheets, Map<String, Selector> sorter, String medium) {
         int count = 0;
         int pCount = 0;
+        Map<Long, PageRule> pageSorter = new TreeMap<>();
         for (Stylesheet stylesheet : stylesheets) {
             for (Object obj : stylesheet.getContents()) {
                 if (obj instanceof Ruleset ruleSet) {
                     for (Selector selector : ruleSet.getFSSelectors()) {
-                        selector.setPos(++count);
-                        sorter.put(selector.getOrder(), selector);
+                        sorter.put(selector.getOrder(++count), selector);
                     }
                 } else if (obj instanceof PageRule pageRule) {
-                    pageRule.setPos(++pCount);
-                    _pageRules.add(pageRule);
+                    pageSorter.put(pageRule.getOrder(++pCount), pageRule);
                 } else if (obj instanceof MediaRule mediaRule) {
                     if (mediaRule.matches(medium)) {
                         for (Ruleset ruleset : mediaRule.getContents()) {
                             for (Selector selector : ruleset.getFSSelectors()) {
-                                selector.setPos(++count);
-                                sorter.put(selector.getOrder(), selector);
+                                sorter.put(selector.getOrder(++count), selector);
                             }
                         }
                     }
@@ -192,7 +217,7 @@ public class Matcher {
             _fontFaceRules.addAll(stylesheet.getFontFaceRules());
         }
 
-        _pageRules.sort(comparingLong(PageRule::getOrder));
+        _pageRules.addAll(pageSorter.values());
     }
 
     private void link(Node e, Mapper m) {
@@ -209,31 +234,27 @@ public class Matcher {
     }
 
     private Ruleset getElementStyle(Node e) {
-        synchronized (e) {
-            if (_attRes == null || _styleFactory == null) {
-                return null;
-            }
-
-            String style = _attRes.getElementStyling(e);
-            if (Util.isNullOrEmpty(style)) {
-                return null;
-            }
+        if (_attRes == null || _styleFactory == null) {
+            return null;
+        }
 
-            return _styleFactory.parseStyleDeclaration(AUTHOR, style);
+        String style = _attRes.getElementStyling(e);
+        if (Util.isNullOrEmpty(style)) {
+            return null;
         }
+
+        return _styleFactory.parseStyleDeclaration(AUTHOR, style);
     }
 
     private Ruleset getNonCssStyle(Node e) {
-        synchronized (e) {
-            if (_attRes == null || _styleFactory == null) {
-                return null;
-            }
-            String style = _attRes.getNonCssStyling(e);
-            if (Util.isNullOrEmpty(style)) {
-                return null;
-            }
-            return _styleFactory.parseStyleDeclaration(AUTHOR, style);
+        if (_attRes == null || _styleFactory == null) {
+            return null;
+        }
+        String style = _attRes.getNonCssStyling(e);
+        if (Util.isNullOrEmpty(style)) {
+            return null;
         }
+        return _styleFactory.parseStyleDeclaration(AUTHOR, style);
     }
 
     /**
@@ -246,7 +267,21 @@ public class Matcher {
         private final List<Selector> axes;
         private final Map<String, List<Selector>> pseudoSelectors;
         private final List<Selector> mappedSelectors;
-        private Map<String, Mapper> children;
+        private final Map<String, Mapper> children = new ConcurrentHashMap<>();
+
+        /**
+         * Built on first use, so Mappers which never get children don't pay for it.
+         * Racing threads may both build it, which is harmless.
+         */
+        @Nullable
+        private volatile SelectorIndex index;
+
+        /**
+         * The style of the elements without {@code style} attribute or non-CSS styling, which all
+         * share it since it only depends on the mapped selectors. Racing threads may both build it.
+         */
+        @Nullable
+        private volatile CascadedStyle cascadedStyle;
 
         Mapper(Collection<Selector> selectors) {
             this(new ArrayList<>(selectors), null, null);
@@ -265,19 +300,14 @@ public class Matcher {
          *         (more correct: preserves the sort order from Matcher creation)
          */
         Mapper mapChild(Node e) {
-            List<Selector> childAxes = new ArrayList<>(axes.size() + 10);
+            int[] candidates = getCandidates(e);
             Map<String, List<Selector>> pseudoSelectors = new HashMap<>();
             List<Selector> mappedSelectors = new ArrayList<>();
+            List<Selector> chains = new ArrayList<>();
+            int[] chainPositions = new int[candidates.length];
             StringBuilder key = new StringBuilder();
-            for (Selector axe : axes) {
-                switch (axe.getAxis()) {
-                    case DESCENDANT_AXIS -> childAxes.add(axe); // carry it forward to other descendants
-                    case IMMEDIATE_SIBLING_AXIS ->
-                            throw new RuntimeException("Selector axis: " + IMMEDIATE_SIBLING_AXIS);
-                    case CHILD_AXIS -> {
-                    }
-                }
-
+            for (int i : candidates) {
+                Selector axe = axes.get(i);
                 if (!axe.matches(e, _attRes, _treeRes)) {
                     continue;
                 }
@@ -313,36 +343,92 @@ public class Matcher {
                         case IMMEDIATE_SIBLING_AXIS ->
                                 throw new RuntimeException("Selector axis: " + IMMEDIATE_SIBLING_AXIS);
                         case CHILD_AXIS,
-                             DESCENDANT_AXIS -> childAxes.add(chain);
+                             DESCENDANT_AXIS -> {
+                            chainPositions[chains.size()] = i;
+                            chains.add(chain);
+                        }
                     }
                 }
             }
-            if (children == null) children = new HashMap<>();
-            Mapper childMapper = children.computeIfAbsent(key.toString(), k ->
-                    new Mapper(childAxes, pseudoSelectors, mappedSelectors));
+            String childKey = key.toString();
+            Mapper childMapper = children.get(childKey);
+            if (childMapper == null) {
+                Mapper created = new Mapper(childAxes(chains, chainPositions), pseudoSelectors, mappedSelectors);
+                childMapper = requireNonNullElse(children.putIfAbsent(childKey, created), created);
+            }
             link(e, childMapper);
             return childMapper;
         }
 
-        CascadedStyle getCascadedStyle(Node e) {
-            synchronized (e) {
-                Ruleset elementStyling = getElementStyle(e);
-                Ruleset nonCssStyling = getNonCssStyle(e);
-                List<PropertyDeclaration> propList = new ArrayList<>();
-                //specificity 0,0,0,0
-                if (nonCssStyling != null) {
-                    propList.addAll(nonCssStyling.getPropertyDeclarations());
-                }
-                //these should have been returned in order of specificity
-                for (Selector selector : mappedSelectors) {
-                    propList.addAll(selector.getRuleset().getPropertyDeclarations());
+        private int[] getCandidates(Node e) {
+            if (!_useSelectorIndex) {
+                return allAxes();
+            }
+            SelectorIndex result = index;
+            if (result == null) {
+                result = new SelectorIndex(axes);
+                index = result;
+            }
+            return result.getCandidates(e, _attRes, _treeRes);
+        }
+
+        private int[] allAxes() {
+            int[] result = new int[axes.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = i;
+            }
+            return result;
+        }
+
+        /**
+         * Descendant axes are carried forward to all descendants, the chained selectors
+         * of matched axes are inserted right after them to keep the specificity order.
+         */
+        private List<Selector> childAxes(List<Selector> chains, int[] chainPositions) {
+            List<Selector> childAxes = new ArrayList<>(axes.size() + chains.size());
+            int next = 0;
+            for (int i = 0; i < axes.size(); i++) {
+                Selector axe = axes.get(i);
+                switch (axe.getAxis()) {
+                    case DESCENDANT_AXIS -> childAxes.add(axe); // carry it forward to other descendants
+                    case IMMEDIATE_SIBLING_AXIS ->
+                            throw new RuntimeException("Selector axis: " + IMMEDIATE_SIBLING_AXIS);
+                    case CHILD_AXIS -> {
+                    }
                 }
-                //specificity 1,0,0,0
-                if (elementStyling != null) {
-                    propList.addAll(elementStyling.getPropertyDeclarations());
+                while (next < chains.size() && chainPositions[next] == i) {
+                    childAxes.add(chains.get(next++));
                 }
-                return propList.isEmpty() ? CascadedStyle.emptyCascadedStyle : new CascadedStyle(propList);
             }
+            return childAxes;
+        }
+
+        CascadedStyle getCascadedStyle(Node e) {
+            Ruleset elementStyling = getElementStyle(e);
+            Ruleset nonCssStyling = getNonCssStyle(e);
+            boolean shared = elementStyling == null && nonCssStyling == null;
+            CascadedStyle result = cascadedStyle;
+            if (shared && result != null) {
+                return result;
+            }
+            List<PropertyDeclaration> propList = new ArrayList<>();
+            //specificity 0,0,0,0
+            if (nonCssStyling != null) {
+                propList.addAll(nonCssStyling.getPropertyDeclarations());
+            }
+            //these should have been returned in order of specificity
+            for (Selector selector : mappedSelectors) {
+                propList.addAll(selector.getRuleset().getPropertyDeclarations());
+            }
+            //specificity 1,0,0,0
+            if (elementStyling != null) {
+                propList.addAll(elementStyling.getPropertyDeclarations());
+            }
+            result = propList.isEmpty() ? CascadedStyle.emptyCascadedStyle : new CascadedStyle(propList);
+            if (shared) {
+                cascadedStyle = result;
+            }
+            return result;
         }
 
         /**
@@ -29,6 +29,7 @@ import org.xhtmlrenderer.util.XRLog;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import static org.xhtmlrenderer.css.newmatch.Selector.Axis.DESCENDANT_AXIS;
@@ -70,10 +71,10 @@ public class Selector {
      * Give each a unique ID to be able to create a key to internalize Matcher.Mappers
      */
     private final int selectorID;
-    private static int selectorCount;
+    private static final AtomicInteger selectorCount = new AtomicInteger();
 
     public Selector() {
-        selectorID = selectorCount++;
+        selectorID = selectorCount.getAndIncrement();
     }
 
     /**
@@ -387,13 +388,23 @@ public class Selector {
      * @return The order value
      */
     String getOrder() {
+        return getOrder(_pos);
+    }
+
+    /**
+     * Same as {@link #getOrder()}, but with the given specification order
+     * instead of the one stored by {@link #setPos(int)}. Stylesheets may be
+     * shared between concurrently created matchers, so a matcher must not
+     * depend on the position another matcher stored in the selector.
+     */
+    String getOrder(int pos) {
         if (chainedSelector != null) {
-            return chainedSelector.getOrder();
+            return chainedSelector.getOrder(pos);
         }//only "deepest" value is correct
         String b = "000" + getSpecificityB();
         String c = "000" + getSpecificityC();
         String d = "000" + getSpecificityD();
-        String p = "00000" + _pos;
+        String p = "00000" + pos;
         return "0" + b.substring(b.length() - 3) + c.substring(c.length() - 3) + d.substring(d.length() - 3) + p.substring(p.length() - 5);
     }
 
@@ -430,6 +441,21 @@ public class Selector {
         conditions.add(c);
     }
 
+    /**
+     * The element name this selector requires, or null for any element
+     */
+    @Nullable
+    String getName() {
+        return _name;
+    }
+
+    /**
+     * The conditions (id, class, attribute, pseudo-class) this selector requires
+     */
+    List<Condition> getConditions() {
+        return conditions == null ? List.of() : conditions;
+    }
+
     public int getSelectorID() {
         return selectorID;
     }
@@ -0,0 +1,160 @@
+package org.xhtmlrenderer.css.newmatch;
+
+import org.jspecify.annotations.Nullable;
+import org.w3c.dom.Node;
+import org.xhtmlrenderer.css.extend.AttributeResolver;
+import org.xhtmlrenderer.css.extend.TreeResolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buckets a list of selectors by the id, class or element name they require, so that only the
+ * selectors which can possibly match a given element have to be evaluated against it. Every
+ * selector goes into exactly one bucket: its id if it has one, otherwise its first class, otherwise
+ * its element name, otherwise the universal bucket.
+ * <p>
+ * Candidates are returned as indexes into the original list, in ascending order, so callers can
+ * keep the specificity order the list was sorted in.
+ * <p>
+ * An index is immutable once built and can be read by several threads.
+ */
+final class SelectorIndex {
+    private static final int[] NONE = new int[0];
+
+    private final Map<String, int[]> _byId;
+    private final Map<String, int[]> _byClass;
+    private final Map<String, int[]> _byName;
+    private final int[] _universal;
+
+    SelectorIndex(List<Selector> selectors) {
+        Map<String, List<Integer>> byId = new HashMap<>();
+        Map<String, List<Integer>> byClass = new HashMap<>();
+        Map<String, List<Integer>> byName = new HashMap<>();
+        List<Integer> universal = new ArrayList<>();
+
+        for (int i = 0; i < selectors.size(); i++) {
+            Selector selector = selectors.get(i);
+            String id = null;
+            String className = null;
+            for (Condition condition : selector.getConditions()) {
+                if (condition instanceof Condition.IDCondition idCondition) {
+                    id = idCondition.getID();
+                    break;
+                } else if (className == null && condition instanceof Condition.ClassCondition classCondition) {
+                    className = classCondition.getClassName();
+                }
+            }
+
+            if (id != null) {
+                byId.computeIfAbsent(id, k -> new ArrayList<>()).add(i);
+            } else if (className != null) {
+                byClass.computeIfAbsent(className, k -> new ArrayList<>()).add(i);
+            } else if (selector.getName() != null) {
+                byName.computeIfAbsent(selector.getName(), k -> new ArrayList<>()).add(i);
+            } else {
+                universal.add(i);
+            }
+        }
+
+        _byId = toArrays(byId);
+        _byClass = toArrays(byClass);
+        _byName = toArrays(byName);
+        _universal = toArray(universal);
+    }
+
+    /**
+     * @return indexes of the selectors that may match the element, in ascending order
+     */
+    int[] getCandidates(Node e, @Nullable AttributeResolver attRes, TreeResolver treeRes) {
+        int[] byName = bucket(_byName, treeRes.getElementName(e));
+        int[] byId = NONE;
+        List<int[]> byClass = List.of();
+        if (attRes != null) {
+            byId = bucket(_byId, attRes.getID(e));
+            if (!_byClass.isEmpty()) {
+                byClass = classBuckets(attRes.getClass(e));
+            }
+        }
+
+        int length = _universal.length + byName.length + byId.length;
+        for (int[] bucket : byClass) {
+            length += bucket.length;
+        }
+        if (length == 0) {
+            return NONE;
+        }
+
+        int[] result = new int[length];
+        int pos = append(_universal, result, 0);
+        pos = append(byName, result, pos);
+        pos = append(byId, result, pos);
+        for (int[] bucket : byClass) {
+            pos = append(bucket, result, pos);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private List<int[]> classBuckets(@Nullable String classAttribute) {
+        if (classAttribute == null || classAttribute.isEmpty()) {
+            return List.of();
+        }
+
+        List<int[]> result = new ArrayList<>(2);
+        List<String> seen = new ArrayList<>(2);
+        int length = classAttribute.length();
+        int start = 0;
+        while (start < length) {
+            while (start < length && Character.isWhitespace(classAttribute.charAt(start))) {
+                start++;
+            }
+            int end = start;
+            while (end < length && !Character.isWhitespace(classAttribute.charAt(end))) {
+                end++;
+            }
+            if (end > start) {
+                String className = classAttribute.substring(start, end);
+                int[] bucket = _byClass.get(className);
+                if (bucket != null && !seen.contains(className)) {
+                    seen.add(className);
+                    result.add(bucket);
+                }
+            }
+            start = end;
+        }
+        return result;
+    }
+
+    private static int[] bucket(Map<String, int[]> buckets, @Nullable String key) {
+        if (key == null) {
+            return NONE;
+        }
+        int[] bucket = buckets.get(key);
+        return bucket == null ? NONE : bucket;
+    }
+
+    private static int append(int[] source, int[] target, int pos) {
+        System.arraycopy(source, 0, target, pos, source.length);
+        return pos + source.length;
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, List<Integer>> buckets) {
+        Map<String, int[]> result = new HashMap<>(buckets.size() * 4 / 3 + 1);
+        for (Map.Entry<String, List<Integer>> entry : buckets.entrySet()) {
+            result.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        return result;
+    }
+
+    private static int[] toArray(List<Integer> indexes) {
+        int[] result = new int[indexes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = indexes.get(i);
+        }
+        return result;
+    }
+}
@@ -91,11 +91,34 @@ public class CSSParser {
         return result;
     }
 
+    /**
+     * Parses a stylesheet from text in memory, without wrapping it in a {@link Reader}.
+     */
+    @CheckReturnValue
+    public Stylesheet parseStylesheet(@Nullable String uri, Origin origin, CharSequence css) {
+        _uri = uri;
+        reset(css);
+
+        Stylesheet result = new Stylesheet(uri, origin);
+        try {
+            stylesheet(result);
+        } catch (IOException e) {
+            // "Shouldn't" happen
+            throw new RuntimeException(e.getMessage(), e);
+        }
+
+        return result;
+    }
+
     public Ruleset parseDeclaration(Origin origin, String text) {
+        return parseDeclaration(origin, (CharSequence) text);
+    }
+
+    public Ruleset parseDeclaration(Origin origin, CharSequence text) {
         try {
             // XXX Set this to something more reasonable
             _uri = "style attribute";
-            reset(new StringReader(text));
+            reset(text);
 
             skip_whitespace();
 
@@ -118,7 +141,7 @@ public class CSSParser {
     public PropertyValue parsePropertyValue(CSSName cssName, Origin origin, String expr) {
         _uri = cssName + " property value";
         try {
-            reset(new StringReader(expr));
+            reset(expr);
             List<PropertyValue> values = expr(
                     cssName.equals(CSSName.FONT_FAMILY) ||
                     cssName.equals(CSSName.FONT_SHORTHAND) ||
@@ -1892,6 +1915,23 @@ public class CSSParser {
         _lexer.setyyline(0);
     }
 
+    public void reset(CharSequence text) {
+        _saved = null;
+        _namespaces.clear();
+        _lexer.yyreset(text);
+        _lexer.setyyline(0);
+    }
+
+    /**
+     * Drops everything kept from the last parse, so that a parser can be
+     * kept for reuse without holding on to its last input.
+     */
+    public void clear() {
+        reset("");
+        _uri = null;
+        _lexer.trimBuffer();
+    }
+
     private String getRawTokenValue() {
         return _lexer.yytext();
     }
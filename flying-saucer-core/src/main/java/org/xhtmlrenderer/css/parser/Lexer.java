@@ -1537,6 +1537,38 @@ class Lexer {
     	this.yyline = i;
 	}
 
+  /**
+   * Resets the scanner to read the given text. The text is copied straight into the
+   * (reused) input buffer instead of being read through a Reader.
+   */
+  public void yyreset(CharSequence text) {
+    yyreset(java.io.Reader.nullReader());
+    int length = text.length();
+    if (zzBuffer.length < length) {
+      zzBuffer = new char[length];
+    }
+    if (text instanceof String s) {
+      s.getChars(0, length, zzBuffer, 0);
+    } else if (text instanceof java.nio.CharBuffer b) {
+      b.duplicate().get(zzBuffer, 0, length);
+    } else {
+      for (int i = 0; i < length; i++) {
+        zzBuffer[i] = text.charAt(i);
+      }
+    }
+    zzEndRead = length;
+  }
+
+  /**
+   * Drops the input buffer if a large input made it grow, so that reused
+   * scanners don't keep large buffers alive.
+   */
+  void trimBuffer() {
+    if (zzBuffer.length > ZZ_BUFFERSIZE) {
+      zzBuffer = new char[ZZ_BUFFERSIZE];
+    }
+  }
+
 
   /**
    * Creates a new scanner
@@ -1166,6 +1166,33 @@ public class PrimitivePropertyBuilders {
         }
      }
 
+    public static class FSTableLayoutSample extends AbstractPropertyBuilder {
+        // none | <integer> | inherit
+        private static final BitSet ALLOWED = setFor(
+                new IdentValue[] { IdentValue.NONE });
+
+        @Override
+        public List<PropertyDeclaration> buildDeclarations(
+                CSSName cssName, List<? extends CSSPrimitiveValue> values, Origin origin, boolean important, boolean inheritAllowed) {
+            assertFoundSingleValue(cssName, values);
+            CSSPrimitiveValue value = values.get(0);
+            checkInheritAllowed(value, inheritAllowed);
+            if (value.getCssValueType() != CSS_INHERIT) {
+                checkIdentOrIntegerType(cssName, value);
+
+                if (value.getPrimitiveType() == CSSPrimitiveValue.CSS_IDENT) {
+                    IdentValue ident = checkIdent(value);
+                    checkValidity(cssName, ALLOWED, ident);
+                } else if (value.getFloatValue(CSSPrimitiveValue.CSS_NUMBER) < 0.0f) {
+                    throw new CSSParseException(cssName + " may not be negative", -1);
+                }
+            }
+
+            return singletonList(
+                    new PropertyDeclaration(cssName, value, important, origin));
+        }
+    }
+
     public static class FSTextDecorationExtent extends SingleIdent {
        private static final BitSet ALLOWED = setFor(
                new IdentValue[] { IdentValue.LINE, IdentValue.BLOCK });
@@ -83,12 +83,20 @@ public class PageRule implements RulesetContainer {
     }
 
     public long getOrder() {
+        return getOrder(_pos);
+    }
+
+    /**
+     * Same as {@link #getOrder()}, but with the given specification order
+     * instead of the one stored by {@link #setPos(int)}.
+     */
+    public long getOrder(int pos) {
         long result = 0;
 
         result |= (long)_specificityF << 32;
         result |= (long)_specificityG << 24;
         result |= (long)_specificityH << 16;
-        result |= _pos;
+        result |= pos;
 
         return result;
     }
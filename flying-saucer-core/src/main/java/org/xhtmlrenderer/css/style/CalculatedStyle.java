@@ -23,6 +23,7 @@ package org.xhtmlrenderer.css.style;
 import com.google.errorprone.annotations.CheckReturnValue;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
+import org.w3c.dom.css.CSSValue;
 import org.xhtmlrenderer.css.constants.CSSName;
 import org.xhtmlrenderer.css.constants.IdentValue;
 import org.xhtmlrenderer.css.newmatch.CascadedStyle;
@@ -116,14 +117,19 @@ public class CalculatedStyle {
     /**
      * Cache child styles of this style that have the same cascaded properties
      */
-    private final Map<String, CalculatedStyle> _childCache = new ConcurrentHashMap<>();
+    private final Map<CascadedStyle.Key, CalculatedStyle> _childCache = new ConcurrentHashMap<>();
 
     /**
-     * Our main array of property values defined in this style, keyed
-     * by the CSSName assigned ID.
+     * Our main arrays of property values defined in this style, by {@link PropertyGroup} and
+     * index of the CSSName assigned ID in the group. A group is only allocated when a value is
+     * stored in it; an inherited group of which this style declares no property is the parent's.
      */
-    @Nullable
-    private final FSDerivedValue[] _derivedValuesById;
+    private final FSDerivedValue[][] _groups = new FSDerivedValue[PropertyGroup.COUNT][];
+
+    /**
+     * The groups (bits by {@link PropertyGroup#index}) shared with the parent, which are copied before writing to them
+     */
+    private int _sharedGroups;
 
     /**
      * The derived Font for this style
@@ -132,7 +138,6 @@ public class CalculatedStyle {
     private FontSpecification _font;
 
     private CalculatedStyle(@Nullable CalculatedStyle parent) {
-        _derivedValuesById = new FSDerivedValue[CSSName.countCSSNames()];
         _parent = parent;
     }
 
@@ -152,6 +157,7 @@ public class CalculatedStyle {
         this(parent);
 
         derive(matched);
+        shareInheritedGroups(parent);
 
         IdentValue display = getDisplay();
         _paddingAllowed = checkPaddingAllowed(display);
@@ -188,8 +194,7 @@ public class CalculatedStyle {
     @NonNull
     @CheckReturnValue
     public CalculatedStyle deriveStyle(CascadedStyle matched) {
-        String fingerprint = matched.getFingerprint();
-        return _childCache.computeIfAbsent(fingerprint, (key) -> new CalculatedStyle(this, matched));
+        return _childCache.computeIfAbsent(matched.getKey(), (key) -> new CalculatedStyle(this, matched));
     }
 
     @Nullable
@@ -220,8 +225,10 @@ public class CalculatedStyle {
     }
 
     public void setDefaultValue(CSSName cssName, FSDerivedValue fsDerivedValue) {
-        if (_derivedValuesById[cssName.FS_ID] == null) {
-            _derivedValuesById[cssName.FS_ID] = fsDerivedValue;
+        FSDerivedValue[] values = ownGroup(PropertyGroup.of(cssName.FS_ID));
+        int index = PropertyGroup.indexOf(cssName.FS_ID);
+        if (values[index] == null) {
+            values[index] = fsDerivedValue;
         }
     }
 
@@ -504,7 +511,10 @@ public class CalculatedStyle {
      * @param cssName The CSS property name, e.g. "font-family"
      */
     public FSDerivedValue valueByName(CSSName cssName) {
-        FSDerivedValue val = _derivedValuesById[cssName.FS_ID];
+        PropertyGroup group = PropertyGroup.of(cssName.FS_ID);
+        int index = PropertyGroup.indexOf(cssName.FS_ID);
+        FSDerivedValue[] values = _groups[group.index];
+        FSDerivedValue val = values == null ? null : values[index];
 
         boolean needInitialValue = val == IdentValue.FS_INITIAL_VALUE;
 
@@ -531,7 +541,14 @@ public class CalculatedStyle {
                     val = cssName.initialDerivedValue();
                 }
             }
-            _derivedValuesById[cssName.FS_ID] = val;
+            // initial values of properties which don't inherit are cheap to look up again,
+            // so they are only kept in groups which exist anyway
+            if (values == null && group.inherited) {
+                values = ownGroup(group);
+            }
+            if (values != null) {
+                values[index] = val;
+            }
         }
         return val;
     }
@@ -555,21 +572,67 @@ public class CalculatedStyle {
         Iterator<PropertyDeclaration> mProps = matched.getCascadedPropertyDeclarations();
         while (mProps.hasNext()) {
             PropertyDeclaration pd = mProps.next();
+            if (pd.getValue().getCssValueType() == CSSValue.CSS_INHERIT && CSSName.propertyInherits(pd.getCSSName())) {
+                // the parent's value is used anyway, and storing it would keep the group from being shared
+                continue;
+            }
             FSDerivedValue val = deriveValue(pd.getCSSName(), pd.getValue());
-            _derivedValuesById[pd.getCSSName().FS_ID] = val;
+            int id = pd.getCSSName().FS_ID;
+            ownGroup(PropertyGroup.of(id))[PropertyGroup.indexOf(id)] = val;
         }
     }
 
+    /**
+     * Shares the inherited groups of the parent in which this style declares nothing: every
+     * value in them is the parent's value, including the ones the parent resolves later.
+     * Styles derived from an {@link EmptyStyle}, like the root style, own their groups, so that
+     * {@link #setDefaultValue} on them is seen by their descendants.
+     */
+    private void shareInheritedGroups(CalculatedStyle parent) {
+        if (parent._parent == null) {
+            return;
+        }
+        for (int i = 0; i < PropertyGroup.COUNT; i++) {
+            PropertyGroup group = PropertyGroup.get(i);
+            if (group.inherited && _groups[i] == null) {
+                _groups[i] = parent.groupToShare(group);
+                _sharedGroups |= 1 << i;
+            }
+        }
+    }
+
+    private FSDerivedValue[] groupToShare(PropertyGroup group) {
+        FSDerivedValue[] values = _groups[group.index];
+        return values == null ? ownGroup(group) : values;
+    }
+
+    /**
+     * @return the values of the group which belong to this style, allocated or copied from the parent if needed
+     */
+    private FSDerivedValue[] ownGroup(PropertyGroup group) {
+        int i = group.index;
+        FSDerivedValue[] values = _groups[i];
+        if (values == null) {
+            values = new FSDerivedValue[group.size()];
+            _groups[i] = values;
+        } else if ((_sharedGroups & 1 << i) != 0) {
+            values = values.clone();
+            _groups[i] = values;
+            _sharedGroups &= ~(1 << i);
+        }
+        return values;
+    }
+
     private FSDerivedValue deriveValue(CSSName cssName, org.w3c.dom.css.CSSPrimitiveValue value) {
         return DerivedValueFactory.newDerivedValue(this, cssName, (PropertyValue) value);
     }
 
     private String genStyleKey() {
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < _derivedValuesById.length; i++) {
+        for (int i = 0; i < CSSName.countCSSNames(); i++) {
             CSSName name = CSSName.getByID(i);
-            FSDerivedValue val = _derivedValuesById[i];
-            if (val != null) {
+            FSDerivedValue[] values = _groups[PropertyGroup.of(i).index];
+            if (values != null && values[PropertyGroup.indexOf(i)] != null) {
                 sb.append(name);
             } else {
                 sb.append("(no prop assigned in this pos)");
@@ -1102,6 +1165,15 @@ public class CalculatedStyle {
         return isIdent(CSSName.FS_TABLE_PAGINATE, IdentValue.PAGINATE);
     }
 
+    /**
+     * @return the number of body rows whose cells the automatic table layout measures,
+     * or -1 if it measures all of them
+     */
+    public int getTableLayoutSample() {
+        return isIdent(CSSName.FS_TABLE_LAYOUT_SAMPLE, IdentValue.NONE) ?
+                -1 : (int) asFloat(CSSName.FS_TABLE_LAYOUT_SAMPLE);
+    }
+
     public boolean isTextJustify() {
         return isIdent(CSSName.TEXT_ALIGN, IdentValue.JUSTIFY) &&
                 ! (isIdent(CSSName.WHITE_SPACE, IdentValue.PRE) ||
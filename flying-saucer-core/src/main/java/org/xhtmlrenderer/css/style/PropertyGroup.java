@@ -0,0 +1,98 @@
+package org.xhtmlrenderer.css.style;
+
+import org.xhtmlrenderer.css.constants.CSSName;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The groups in which a {@link CalculatedStyle} stores its property values. A style only
+ * allocates the groups it declares properties of (or resolves inherited properties in), and a
+ * style which declares none of the inherited properties of a group shares the group of its
+ * parent, since all values in it are the parent's anyway. Properties which are often declared
+ * on their own, like {@code color}, have small groups, so declaring them costs little.
+ */
+enum PropertyGroup {
+    FONT(0, true),
+    COLOR(1, true),
+    TEXT(2, true),
+    BOX(3, false),
+    MARGIN_PADDING(4, false),
+    BORDER(5, false),
+    BACKGROUND(6, false),
+    OTHER(7, false);
+
+    static final int COUNT = values().length;
+    private static final PropertyGroup[] BY_INDEX = new PropertyGroup[COUNT];
+
+    private static final Set<String> BOX_PROPERTIES = Set.of(
+            "display", "position", "float", "clear", "top", "right", "bottom", "left",
+            "width", "height", "min-width", "min-height", "max-width", "max-height",
+            "overflow", "clip", "z-index", "vertical-align", "box-sizing");
+
+    private static final PropertyGroup[] GROUP_BY_ID = new PropertyGroup[CSSName.countCSSNames()];
+    private static final int[] INDEX_BY_ID = new int[CSSName.countCSSNames()];
+    private static final int[] SIZES = new int[COUNT];
+
+    static {
+        for (PropertyGroup group : values()) {
+            BY_INDEX[group.index] = group;
+        }
+        for (int id = 0; id < GROUP_BY_ID.length; id++) {
+            PropertyGroup group = classify(CSSName.getByID(id));
+            GROUP_BY_ID[id] = group;
+            INDEX_BY_ID[id] = SIZES[group.index]++;
+        }
+    }
+
+    /**
+     * The position of the group in the groups of a style, and its bit in the groups it shares
+     */
+    final int index;
+
+    /**
+     * Whether all properties in the group inherit, and so can be shared with the parent style
+     */
+    final boolean inherited;
+
+    PropertyGroup(int index, boolean inherited) {
+        this.index = index;
+        this.inherited = inherited;
+    }
+
+    private static PropertyGroup classify(CSSName cssName) {
+        String name = cssName.toString().toLowerCase(Locale.ROOT);
+        if (CSSName.propertyInherits(cssName)) {
+            if (name.startsWith("font") || name.equals("line-height")) {
+                return FONT;
+            }
+            return name.equals("color") ? COLOR : TEXT;
+        }
+        if (BOX_PROPERTIES.contains(name)) {
+            return BOX;
+        }
+        if (name.startsWith("margin") || name.startsWith("padding")) {
+            return MARGIN_PADDING;
+        }
+        if (name.contains("border") || name.startsWith("outline")) {
+            return BORDER;
+        }
+        return name.startsWith("background") ? BACKGROUND : OTHER;
+    }
+
+    static PropertyGroup of(int id) {
+        return GROUP_BY_ID[id];
+    }
+
+    static int indexOf(int id) {
+        return INDEX_BY_ID[id];
+    }
+
+    static PropertyGroup get(int index) {
+        return BY_INDEX[index];
+    }
+
+    int size() {
+        return SIZES[index];
+    }
+}
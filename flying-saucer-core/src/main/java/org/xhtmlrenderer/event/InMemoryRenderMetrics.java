@@ -0,0 +1,100 @@
+package org.xhtmlrenderer.event;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Adds up the metrics of all documents rendered with it, e.g. to be polled by a monitoring
+ * system. Thread-safe, so one instance can be shared by any number of renderers.
+ */
+public class InMemoryRenderMetrics implements RenderMetricsListener {
+    private final Map<RenderPhase, LongAdder> _elapsedNanos = adders(RenderPhase.class);
+    private final Map<RenderCounter, LongAdder> _counts = adders(RenderCounter.class);
+
+    private static <E extends Enum<E>> Map<E, LongAdder> adders(Class<E> type) {
+        Map<E, LongAdder> result = new EnumMap<>(type);
+        for (E key : type.getEnumConstants()) {
+            result.put(key, new LongAdder());
+        }
+        return result;
+    }
+
+    @Override
+    public void phaseFinished(RenderPhase phase, long elapsedNanos) {
+        _elapsedNanos.get(phase).add(elapsedNanos);
+    }
+
+    @Override
+    public void counted(RenderCounter counter, long count) {
+        _counts.get(counter).add(count);
+    }
+
+    /**
+     * @return the total time spent in the phase, in nanoseconds
+     */
+    public long getElapsedNanos(RenderPhase phase) {
+        return _elapsedNanos.get(phase).sum();
+    }
+
+    public long getCount(RenderCounter counter) {
+        return _counts.get(counter).sum();
+    }
+
+    /**
+     * @return the share of stylesheet requests which have been served from a cache, or
+     * {@code NaN} if no stylesheet has been requested
+     */
+    public double getStylesheetCacheHitRate() {
+        return hitRate(RenderCounter.STYLESHEET_REQUESTS, RenderCounter.STYLESHEETS_PARSED);
+    }
+
+    /**
+     * @return the share of font requests which have been served from a cache, or {@code NaN} if
+     * no font has been requested
+     */
+    public double getFontCacheHitRate() {
+        return hitRate(RenderCounter.FONT_REQUESTS, RenderCounter.FONTS_RESOLVED);
+    }
+
+    /**
+     * @return the share of image requests which have been served from a cache, or {@code NaN} if
+     * no image has been requested
+     */
+    public double getImageCacheHitRate() {
+        return hitRate(RenderCounter.IMAGE_REQUESTS, RenderCounter.IMAGES_DECODED);
+    }
+
+    private double hitRate(RenderCounter requests, RenderCounter misses) {
+        long total = getCount(requests);
+        return total == 0 ? Double.NaN : (double) (total - getCount(misses)) / total;
+    }
+
+    public void reset() {
+        _elapsedNanos.values().forEach(LongAdder::reset);
+        _counts.values().forEach(LongAdder::reset);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("InMemoryRenderMetrics{");
+        String separator = "";
+        for (RenderPhase phase : RenderPhase.values()) {
+            long elapsed = getElapsedNanos(phase);
+            if (elapsed > 0) {
+                result.append(separator).append(phase).append('=').append(NANOSECONDS.toMillis(elapsed)).append("ms");
+                separator = ", ";
+            }
+        }
+        for (RenderCounter counter : RenderCounter.values()) {
+            long count = getCount(counter);
+            if (count > 0) {
+                result.append(separator).append(counter).append('=').append(count);
+                separator = ", ";
+            }
+        }
+        return result.append('}').toString();
+    }
+}
@@ -0,0 +1,70 @@
+package org.xhtmlrenderer.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Records the metrics as Java Flight Recorder events, {@value #PHASE_EVENT} and
+ * {@value #COUNTER_EVENT}, which are only written while a recording with these events enabled
+ * is running (they are enabled in the default JFR settings). The events are committed on the
+ * thread that finished the layout or the output of a document.
+ */
+public class JfrRenderMetrics implements RenderMetricsListener {
+    public static final String PHASE_EVENT = "org.xhtmlrenderer.RenderPhase";
+    public static final String COUNTER_EVENT = "org.xhtmlrenderer.RenderCounter";
+
+    @Override
+    public void phaseFinished(RenderPhase phase, long elapsedNanos) {
+        PhaseEvent event = new PhaseEvent();
+        if (event.shouldCommit()) {
+            event.phase = phase.name();
+            event.elapsed = elapsedNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void counted(RenderCounter counter, long count) {
+        CounterEvent event = new CounterEvent();
+        if (event.shouldCommit()) {
+            event.counter = counter.name();
+            event.count = count;
+            event.commit();
+        }
+    }
+
+    @Name(PHASE_EVENT)
+    @Label("Render Phase")
+    @Description("Time spent in a phase of rendering a document")
+    @Category("Flying Saucer")
+    @StackTrace(false)
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        @Nullable
+        String phase;
+
+        @Label("Elapsed")
+        @Timespan
+        long elapsed;
+    }
+
+    @Name(COUNTER_EVENT)
+    @Label("Render Counter")
+    @Description("Amount counted while rendering a document")
+    @Category("Flying Saucer")
+    @StackTrace(false)
+    static final class CounterEvent extends Event {
+        @Label("Counter")
+        @Nullable
+        String counter;
+
+        @Label("Count")
+        long count;
+    }
+}
@@ -0,0 +1,63 @@
+package org.xhtmlrenderer.event;
+
+/**
+ * The quantities counted while rendering a document and reported to a {@link RenderMetricsListener}.
+ * Requests and the part of them which had to be computed are counted separately, so that cache
+ * hit rates can be derived.
+ */
+public enum RenderCounter {
+    /**
+     * Elements whose style has been computed
+     */
+    ELEMENTS,
+
+    /**
+     * Boxes in the laid out document, including line boxes
+     */
+    BOXES,
+
+    /**
+     * Line boxes in the laid out document
+     */
+    LINE_BOXES,
+
+    /**
+     * Pages of the laid out document
+     */
+    PAGES,
+
+    /**
+     * Blocks laid out again because of page break rules
+     */
+    PAGE_BREAK_RELAYOUTS,
+
+    /**
+     * Stylesheets requested by the document, including imported ones
+     */
+    STYLESHEET_REQUESTS,
+
+    /**
+     * Stylesheets which had to be parsed because no cache held them
+     */
+    STYLESHEETS_PARSED,
+
+    /**
+     * Fonts requested for a font specification
+     */
+    FONT_REQUESTS,
+
+    /**
+     * Fonts which had to be resolved because no cache held them
+     */
+    FONTS_RESOLVED,
+
+    /**
+     * Images requested by the document
+     */
+    IMAGE_REQUESTS,
+
+    /**
+     * Images which had to be loaded and decoded because no cache held them
+     */
+    IMAGES_DECODED
+}
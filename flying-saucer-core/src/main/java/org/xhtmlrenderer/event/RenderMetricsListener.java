@@ -0,0 +1,28 @@
+package org.xhtmlrenderer.event;
+
+/**
+ * Receives the time spent in each phase of rendering a document, and counts of the elements,
+ * boxes, pages, fonts, images and stylesheets involved. Set it with
+ * {@link org.xhtmlrenderer.layout.SharedContext#setMetricsListener}.
+ * <p>
+ * Measurements are collected while a document is rendered and reported once the layout or the
+ * output of the document is finished, so a listener is called a few dozen times per document at
+ * most. Phases and counters which did not occur are not reported. Renderers used on several
+ * threads call the listener from all of them, so implementations must be thread-safe.
+ *
+ * @see InMemoryRenderMetrics
+ * @see JfrRenderMetrics
+ */
+public interface RenderMetricsListener {
+    /**
+     * @param phase        the phase
+     * @param elapsedNanos the time spent in the phase since the last report, in nanoseconds
+     */
+    void phaseFinished(RenderPhase phase, long elapsedNanos);
+
+    /**
+     * @param counter the counter
+     * @param count   the amount counted since the last report
+     */
+    void counted(RenderCounter counter, long count);
+}
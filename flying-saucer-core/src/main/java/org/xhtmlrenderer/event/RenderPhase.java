@@ -0,0 +1,44 @@
+package org.xhtmlrenderer.event;
+
+/**
+ * The phases of rendering a document whose time is reported to a {@link RenderMetricsListener}.
+ */
+public enum RenderPhase {
+    /**
+     * Parsing the XML of the document
+     */
+    XML_PARSE,
+
+    /**
+     * Loading and parsing the stylesheets of the document, or finding them in a cache
+     */
+    STYLESHEETS,
+
+    /**
+     * Matching the stylesheets against elements and deriving their computed styles. Styles are
+     * computed when the boxes of their elements are built, so this time is part of
+     * {@link #BOX_BUILDING} too.
+     */
+    CASCADE,
+
+    /**
+     * Building the boxes of the elements, which is done on demand during {@link #LAYOUT}
+     */
+    BOX_BUILDING,
+
+    /**
+     * The whole layout of the document, including building boxes and laying out blocks again to
+     * honour page break rules
+     */
+    LAYOUT,
+
+    /**
+     * Painting the pages. Pages painted on several threads add up their time.
+     */
+    PAINT,
+
+    /**
+     * Writing the output document, including painting the pages on the calling thread
+     */
+    PDF_WRITE
+}
@@ -20,9 +20,11 @@
  */
 package org.xhtmlrenderer.extend;
 
+import org.jspecify.annotations.Nullable;
 import org.xhtmlrenderer.render.FSFont;
 import org.xhtmlrenderer.render.FSFontMetrics;
 import org.xhtmlrenderer.render.JustificationInfo;
+import org.xhtmlrenderer.render.TextAdvances;
 
 import java.awt.*;
 
@@ -45,6 +47,18 @@ public interface TextRenderer {
 
     int getWidth(FontContext context, FSFont font, String string);
 
+    /**
+     * Measures a string once, so that the widths of its substrings can be looked up without
+     * measuring them again. Used by the line breaker on long paragraphs.
+     *
+     * @return the advances of the string, or {@code null} if this renderer cannot measure
+     * substrings independently (the default), in which case {@link #getWidth} is used instead
+     */
+    @Nullable
+    default TextAdvances getAdvances(FontContext context, FSFont font, String string) {
+        return null;
+    }
+
     void setFontScale(float scale);
 
     float getFontScale();
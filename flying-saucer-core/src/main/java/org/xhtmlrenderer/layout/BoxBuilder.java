@@ -44,6 +44,7 @@ import org.xhtmlrenderer.css.sheet.StylesheetInfo.Origin;
 import org.xhtmlrenderer.css.style.CalculatedStyle;
 import org.xhtmlrenderer.css.style.EmptyStyle;
 import org.xhtmlrenderer.css.style.FSDerivedValue;
+import org.xhtmlrenderer.event.RenderPhase;
 import org.xhtmlrenderer.newtable.TableBox;
 import org.xhtmlrenderer.newtable.TableCellBox;
 import org.xhtmlrenderer.newtable.TableColumn;
@@ -120,7 +121,23 @@ public class BoxBuilder {
     }
 
     public static void createChildren(LayoutContext c, BlockBox parent) {
+        RenderMetrics metrics = c.getSharedContext().getMetrics();
+        if (metrics == null || c.isBuildingBoxes()) {
+            buildChildren(c, parent);
+            return;
+        }
+
+        long start = System.nanoTime();
+        c.setBuildingBoxes(true);
+        try {
+            buildChildren(c, parent);
+        } finally {
+            c.setBuildingBoxes(false);
+            metrics.addTime(RenderPhase.BOX_BUILDING, start);
+        }
+    }
 
+    private static void buildChildren(LayoutContext c, BlockBox parent) {
         List<Styleable> children = new ArrayList<>();
 
         ChildBoxInfo info = new ChildBoxInfo();
@@ -34,6 +34,8 @@ import java.util.List;
  * A class to collect boxes which intersect a given clip region.  If available,
  * aggregate bounds information will be used.  Block and inline content are
  * added to separate lists as they are painted in separate render phases.
+ * Children of boxes with many children are looked up in the {@link PaintingIndex}
+ * of the layer.
  */
 public class BoxCollector {
     public void collect(
@@ -132,7 +134,8 @@ public class BoxCollector {
 
             if (container.getPaintingInfo() == null || intersectsAggregateBounds) {
                 if (container.getLayer() == null || container == layer.getMaster()) {
-                    for (int i = 0; i < container.getChildCount(); i++) {
+                    PaintingIndex.ChildRange children = layer.getPaintingIndex().childRange(container, clip);
+                    for (int i = children.first(); i < children.end(); i++) {
                         Box child = container.getChild(i);
                         collect(c, clip, layer, child, blockContent, inlineContent, rangeLists);
                     }
@@ -187,7 +187,7 @@ public class InlineBoxing {
 
                     zeroWidthInlineBlock = false;
 
-                    if (lbContext.getStartSubstring().isEmpty()) {
+                    if (lbContext.getStart() == lbContext.getLast()) {
                         break;
                     }
 
@@ -882,7 +882,7 @@ public class InlineBoxing {
             LineBox line, CalculatedStyle style, LineBreakContext lbContext,
             boolean zeroWidthInlineBlock) {
         if ((! line.isContainsContent() || zeroWidthInlineBlock) &&
-                lbContext.getStartSubstring().startsWith(WhitespaceStripper.SPACE)) {
+                lbContext.getMaster().startsWith(WhitespaceStripper.SPACE, lbContext.getStart())) {
             IdentValue whitespace = style.getWhitespace();
             return whitespace == IdentValue.NORMAL
                     || whitespace == IdentValue.NOWRAP
@@ -896,12 +896,12 @@ public class InlineBoxing {
     }
 
     private static void trimLeadingSpace(LineBreakContext lbContext) {
-        String s = lbContext.getStartSubstring();
-        int i = 0;
+        String s = lbContext.getMaster();
+        int i = lbContext.getStart();
         while (i < s.length() && s.charAt(i) == ' ') {
             i++;
         }
-        lbContext.setStart(lbContext.getStart() + i);
+        lbContext.setStart(i);
     }
 
     private static LineBox newLine(LayoutContext c, @Nullable LineBox previousLine, Box box) {
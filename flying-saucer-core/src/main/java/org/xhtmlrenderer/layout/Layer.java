@@ -23,15 +23,21 @@ import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.google.errorprone.annotations.CheckReturnValue;
 import org.jspecify.annotations.Nullable;
 import org.xhtmlrenderer.css.constants.CSSName;
+import org.xhtmlrenderer.css.constants.IdentValue;
 import org.xhtmlrenderer.css.constants.PageElementPosition;
 import org.xhtmlrenderer.css.newmatch.PageInfo;
+import org.xhtmlrenderer.css.parser.FSColor;
+import org.xhtmlrenderer.css.parser.FSRGBColor;
 import org.xhtmlrenderer.css.style.CalculatedStyle;
 import org.xhtmlrenderer.css.style.CssContext;
 import org.xhtmlrenderer.css.style.EmptyStyle;
+import org.xhtmlrenderer.css.style.derived.BorderPropertySet;
+import org.xhtmlrenderer.extend.OutputDevice;
 import org.xhtmlrenderer.newtable.CollapsedBorderValue;
 import org.xhtmlrenderer.newtable.TableBox;
 import org.xhtmlrenderer.newtable.TableCellBox;
 import org.xhtmlrenderer.render.BlockBox;
+import org.xhtmlrenderer.render.BorderPainter;
 import org.xhtmlrenderer.render.BlockBox.Position;
 import org.xhtmlrenderer.render.Box;
 import org.xhtmlrenderer.render.BoxDimensions;
@@ -39,6 +45,7 @@ import org.xhtmlrenderer.render.InlineLayoutBox;
 import org.xhtmlrenderer.render.PageBox;
 import org.xhtmlrenderer.render.RenderingContext;
 import org.xhtmlrenderer.render.ViewportBox;
+import org.xhtmlrenderer.util.XRRuntimeException;
 
 import java.awt.*;
 import java.util.ArrayList;
@@ -90,13 +97,15 @@ public final class Layer {
     private List<BlockBox> _floats;
 
     private boolean _fixedBackground;
+    private boolean _repeatedTableSections;
+    private int _pageLimit;
 
     private boolean _inline;
     private boolean _requiresLayout;
 
     private final List<PageBox> _pages = new ArrayList<>();
     @Nullable
-    private PageBox _lastRequestedPage;
+    private volatile PageBox _lastRequestedPage;
 
     @Nullable
     private Set<BlockBox> _pageSequences;
@@ -106,6 +115,8 @@ public final class Layer {
     @Nullable
     private Map<String, List<BlockBox>> _runningBlocks;
 
+    private final PaintingIndex _paintingIndex = new PaintingIndex();
+
     public Layer(Box master) {
         this(null, master, true);
     }
@@ -128,6 +139,11 @@ public final class Layer {
         return _parent;
     }
 
+    @CheckReturnValue
+    PaintingIndex getPaintingIndex() {
+        return _paintingIndex;
+    }
+
     @CheckReturnValue
     public boolean isStackingContext() {
         return _stackingContext;
@@ -156,18 +172,21 @@ public final class Layer {
         }
 
         _floats.add(floater);
+        _paintingIndex.clearFloats();
         floater.getFloatedBoxData().setDrawingLayer(this);
     }
 
     public void removeFloat(BlockBox floater) {
         if (_floats != null) {
             _floats.remove(floater);
+            _paintingIndex.clearFloats();
         }
     }
 
     private void paintFloats(RenderingContext c) {
         if (_floats != null) {
-            for (int i = _floats.size() - 1; i >= 0; i--) {
+            PaintingIndex.ChildRange range = _paintingIndex.floatRange(this, _floats, c.getOutputDevice().getClip());
+            for (int i = range.end() - 1; i >= range.first(); i--) {
                 BlockBox floater = _floats.get(i);
                 paintAsLayer(c, floater);
             }
@@ -447,11 +466,132 @@ public final class Layer {
     }
 
     private void paintCollapsedTableBorders(RenderingContext c, List<CollapsedBorderSide> borders) {
+        FSColor solidColor = uniformSolidColor(borders);
+        if (solidColor != null) {
+            paintMergedCollapsedTableBorders(c, borders, solidColor);
+            return;
+        }
         for (CollapsedBorderSide border : borders) {
             border.getCell().paintCollapsedBorder(c, border.getSide());
         }
     }
 
+    /**
+     * @return the color of the borders if all of them are solid and have that color
+     */
+    @Nullable
+    private static FSColor uniformSolidColor(List<CollapsedBorderSide> borders) {
+        FSColor result = null;
+        for (CollapsedBorderSide border : borders) {
+            BorderPropertySet props = border.getCell().getCollapsedPaintingBorder();
+            if (isEmptySide(props, border.getSide())) {
+                continue;
+            }
+            FSColor color = switch (border.getSide()) {
+                case BorderPainter.TOP -> props.topColor();
+                case BorderPainter.BOTTOM -> props.bottomColor();
+                case BorderPainter.LEFT -> props.leftColor();
+                default -> props.rightColor();
+            };
+            IdentValue style = switch (border.getSide()) {
+                case BorderPainter.TOP -> props.topStyle();
+                case BorderPainter.BOTTOM -> props.bottomStyle();
+                case BorderPainter.LEFT -> props.leftStyle();
+                default -> props.rightStyle();
+            };
+            if (style != IdentValue.SOLID || color == FSRGBColor.TRANSPARENT ||
+                    (result != null && !result.equals(color))) {
+                return null;
+            }
+            result = color;
+        }
+        return result;
+    }
+
+    private static boolean isEmptySide(BorderPropertySet border, int side) {
+        return switch (side) {
+            case BorderPainter.TOP -> border.noTop();
+            case BorderPainter.BOTTOM -> border.noBottom();
+            case BorderPainter.LEFT -> border.noLeft();
+            default -> border.noRight();
+        };
+    }
+
+    /**
+     * Paints solid borders of one color as rectangles, joining the sides of neighbouring cells
+     * which lie on the same grid line. Each cell's mitered sides cover exactly the union of these
+     * rectangles, so the result looks the same with a fraction of the shapes.
+     */
+    private static void paintMergedCollapsedTableBorders(
+            RenderingContext c, List<CollapsedBorderSide> borders, FSColor color) {
+        List<Rectangle> horizontal = new ArrayList<>();
+        List<Rectangle> vertical = new ArrayList<>();
+        for (CollapsedBorderSide border : borders) {
+            TableCellBox cell = border.getCell();
+            int side = border.getSide();
+            if (isEmptySide(cell.getCollapsedPaintingBorder(), side)) {
+                continue;
+            }
+            Rectangle bounds = cell.getCollapsedBorderSideBounds(c, side);
+            if (side == BorderPainter.TOP || side == BorderPainter.BOTTOM) {
+                horizontal.add(bounds);
+            } else {
+                vertical.add(bounds);
+            }
+        }
+
+        OutputDevice outputDevice = c.getOutputDevice();
+        outputDevice.setColor(color);
+        for (Rectangle rect : mergeRectangles(horizontal, true)) {
+            outputDevice.fill(rect);
+        }
+        for (Rectangle rect : mergeRectangles(vertical, false)) {
+            outputDevice.fill(rect);
+        }
+    }
+
+    /**
+     * Joins rectangles of the same thickness on the same line which touch or overlap along it.
+     */
+    @CheckReturnValue
+    private static List<Rectangle> mergeRectangles(List<Rectangle> rects, boolean horizontal) {
+        Comparator<Rectangle> alongLine = horizontal ?
+                comparingInt((Rectangle r) -> r.y).thenComparingInt(r -> r.height).thenComparingInt(r -> r.x) :
+                comparingInt((Rectangle r) -> r.x).thenComparingInt(r -> r.width).thenComparingInt(r -> r.y);
+        rects.sort(alongLine);
+
+        List<Rectangle> result = new ArrayList<>(rects.size());
+        Rectangle current = null;
+        for (Rectangle rect : rects) {
+            if (current != null && sameLine(current, rect, horizontal) && start(rect, horizontal) <= end(current, horizontal)) {
+                int end = Math.max(end(current, horizontal), end(rect, horizontal));
+                if (horizontal) {
+                    current.width = end - current.x;
+                } else {
+                    current.height = end - current.y;
+                }
+            } else {
+                current = new Rectangle(rect);
+                result.add(current);
+            }
+        }
+        return result;
+    }
+
+    private static boolean sameLine(Rectangle r1, Rectangle r2, boolean horizontal) {
+        return horizontal ?
+                r1.y == r2.y && r1.height == r2.height :
+                r1.x == r2.x && r1.width == r2.width;
+    }
+
+    private static int start(Rectangle r, boolean horizontal) {
+        return horizontal ? r.x : r.y;
+    }
+
+    private static int end(Rectangle r, boolean horizontal) {
+        return horizontal ? r.x + r.width : r.y + r.height;
+    }
+
     public void paintAsLayer(RenderingContext c, BlockBox startingPoint) {
         BoxRangeLists rangeLists = new BoxRangeLists();
 
@@ -609,6 +749,28 @@ public final class Layer {
         _fixedBackground = b;
     }
 
+    /**
+     * @return whether a paginated table repeats its header or footer on several pages. The
+     * header and footer boxes are moved to the page being painted, so such pages must be
+     * painted one after another.
+     */
+    @CheckReturnValue
+    public boolean containsRepeatedTableSections() {
+        return _repeatedTableSections;
+    }
+
+    public void setRepeatedTableSections(boolean b) {
+        _repeatedTableSections = b;
+    }
+
+    /**
+     * @param pageLimit the number of pages {@link #addPage} may add, or 0 for no limit
+     * @see org.xhtmlrenderer.layout.SharedContext#setPageLimit
+     */
+    public void setPageLimit(int pageLimit) {
+        _pageLimit = pageLimit;
+    }
+
     @CheckReturnValue
     public synchronized List<Layer> getChildren() {
         return _children == null ? emptyList() : unmodifiableList(_children);
@@ -748,6 +910,9 @@ public final class Layer {
     public void addPage(CssContext c) {
         List<PageBox> pages = getPages();
         int pagesCount = pages.size();
+        if (_pageLimit > 0 && pagesCount >= _pageLimit) {
+            throw new XRRuntimeException("The document needs more than the limit of %d pages".formatted(_pageLimit));
+        }
         String pseudoPage = pseudoPage(pagesCount);
         PageBox pageBox = pages.isEmpty() ?
                 createPageBox(c, pseudoPage, 0, pagesCount) :
@@ -906,6 +1071,7 @@ public final class Layer {
 
     public void assignPagePaintingPositions(
             CssContext cssCtx, PagedMode mode, int additionalClearance) {
+        _paintingIndex.clear();
         List<PageBox> pages = getPages();
         int paintingTop = additionalClearance;
         for (PageBox page : pages) {
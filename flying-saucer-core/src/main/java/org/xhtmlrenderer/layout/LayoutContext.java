@@ -29,6 +29,7 @@ import org.xhtmlrenderer.css.parser.CounterData;
 import org.xhtmlrenderer.css.style.CalculatedStyle;
 import org.xhtmlrenderer.css.style.CssContext;
 import org.xhtmlrenderer.css.value.FontSpecification;
+import org.xhtmlrenderer.event.RenderCounter;
 import org.xhtmlrenderer.extend.FSCanvas;
 import org.xhtmlrenderer.extend.FontContext;
 import org.xhtmlrenderer.extend.NamespaceHandler;
@@ -42,15 +43,11 @@ import org.xhtmlrenderer.render.MarkerData;
 import org.xhtmlrenderer.render.PageBox;
 
 import java.awt.*;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import static java.util.Collections.emptyList;
-
 /**
  * This class tracks state which changes over the course of a layout run.
  * Generally speaking, if possible, state information should be stored in the box
@@ -68,8 +65,8 @@ public class LayoutContext implements CssContext {
     @Nullable
     private MarkerData _currentMarkerData;
 
-    private final Deque<BlockFormattingContext> _blockFormattingContexts = new ArrayDeque<>();
-    private final Deque<Layer> _layers = new ArrayDeque<>();
+    private PersistentStack<BlockFormattingContext> _blockFormattingContexts = PersistentStack.empty();
+    private PersistentStack<Layer> _layers = PersistentStack.empty();
 
     private final FontContext _fontContext;
 
@@ -97,6 +94,11 @@ public class LayoutContext implements CssContext {
     @Nullable
     private BreakAtLineContext _breakAtLineContext;
 
+    /**
+     * Whether boxes are being built, box building nests when children are built eagerly
+     */
+    private boolean _buildingBoxes;
+
     public TextRenderer getTextRenderer() {
         return _sharedContext.getTextRenderer();
     }
@@ -132,11 +134,11 @@ public class LayoutContext implements CssContext {
         _firstLetters = new StyleTracker();
         _currentMarkerData = null;
 
-        _blockFormattingContexts.clear();
+        _blockFormattingContexts = PersistentStack.empty();
 
         if (! keepLayers) {
             _rootLayer = null;
-            _layers.clear();
+            _layers = PersistentStack.empty();
         }
 
         _extraSpaceTop = 0;
@@ -155,8 +157,7 @@ public class LayoutContext implements CssContext {
 
         _currentMarkerData = layoutState.getCurrentMarkerData();
 
-        _blockFormattingContexts.clear();
-        _blockFormattingContexts.addAll(layoutState.getBFCs());
+        _blockFormattingContexts = layoutState.getBlockFormattingContexts();
 
         if (isPrint()) {
             setPageName(layoutState.getPageName());
@@ -166,15 +167,29 @@ public class LayoutContext implements CssContext {
         }
     }
 
+    boolean isBuildingBoxes() {
+        return _buildingBoxes;
+    }
+
+    void setBuildingBoxes(boolean buildingBoxes) {
+        _buildingBoxes = buildingBoxes;
+    }
+
     public LayoutState copyStateForRelayout() {
         return isPrint() ?
-                new LayoutState(_firstLines.copyOf(), _firstLetters.copyOf(), _currentMarkerData, emptyList(), getPageName(), 0, 0, 0) :
-                new LayoutState(_firstLines.copyOf(), _firstLetters.copyOf(), _currentMarkerData, emptyList());
+                new LayoutState(_firstLines.copyOf(), _firstLetters.copyOf(), _currentMarkerData, PersistentStack.empty(), getPageName(), 0, 0, 0) :
+                new LayoutState(_firstLines.copyOf(), _firstLetters.copyOf(), _currentMarkerData, PersistentStack.empty());
     }
 
     public void restoreStateForRelayout(LayoutState layoutState) {
-        _firstLines = layoutState.getFirstLines();
-        _firstLetters = layoutState.getFirstLetters();
+        RenderMetrics metrics = _sharedContext.getMetrics();
+        if (metrics != null) {
+            metrics.increment(RenderCounter.PAGE_BREAK_RELAYOUTS);
+        }
+
+        // copies, so that the state can be restored again after the layout changed the trackers
+        _firstLines = layoutState.getFirstLines().copyOf();
+        _firstLetters = layoutState.getFirstLetters().copyOf();
 
         _currentMarkerData = layoutState.getCurrentMarkerData();
 
@@ -184,15 +199,15 @@ public class LayoutContext implements CssContext {
     }
 
     public BlockFormattingContext getBlockFormattingContext() {
-        return _blockFormattingContexts.getLast();
+        return _blockFormattingContexts.peek();
     }
 
     public void pushBFC(BlockFormattingContext bfc) {
-        _blockFormattingContexts.add(bfc);
+        _blockFormattingContexts = _blockFormattingContexts.push(bfc);
     }
 
     public void popBFC() {
-        _blockFormattingContexts.removeLast();
+        _blockFormattingContexts = _blockFormattingContexts.pop();
     }
 
     public void pushLayer(Box master) {
@@ -200,6 +215,7 @@ public class LayoutContext implements CssContext {
 
         if (_rootLayer == null) {
             layer = new Layer(master);
+            layer.setPageLimit(_sharedContext.getPageLimit());
             _rootLayer = layer;
         } else {
             Layer parent = getLayer();
@@ -211,7 +227,7 @@ public class LayoutContext implements CssContext {
     }
 
     public void pushLayer(Layer layer) {
-        _layers.add(layer);
+        _layers = _layers.push(layer);
     }
 
     public void popLayer() {
@@ -219,11 +235,11 @@ public class LayoutContext implements CssContext {
 
         layer.finish(this);
 
-        _layers.removeLast();
+        _layers = _layers.pop();
     }
 
     public Layer getLayer() {
-        return _layers.getLast();
+        return _layers.peek();
     }
 
     @Nullable
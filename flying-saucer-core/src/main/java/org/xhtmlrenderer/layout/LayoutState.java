@@ -23,13 +23,16 @@ import org.jspecify.annotations.Nullable;
 import org.xhtmlrenderer.render.MarkerData;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.List;
 
 /**
  * A bean which captures all state necessary to lay out an arbitrary box.
- * Mutable objects must be copied when provided to this class.  It is far too
- * expensive to maintain a bean of this class for each box.
+ * Mutable objects must be copied when provided to this class.  The stacks
+ * of the layout context are persistent, so capturing them is cheap, but it
+ * is still far too expensive to maintain a bean of this class for each box.
  * It is only created as needed.
  */
 public class LayoutState {
@@ -39,7 +42,7 @@ public class LayoutState {
     @Nullable
     private final MarkerData _currentMarkerData;
 
-    private final Deque<BlockFormattingContext> _BFCs;
+    private final PersistentStack<BlockFormattingContext> _BFCs;
 
     @Nullable
     private final String _pageName;
@@ -47,28 +50,72 @@ public class LayoutState {
     private final int _extraSpaceBottom;
     private final int _noPageBreak;
 
-    public LayoutState(StyleTracker firstLines, StyleTracker firstLetters, @Nullable MarkerData currentMarkerData,
-                       Collection<BlockFormattingContext> blockFormattingContexts,
-                       @Nullable String pageName, int extraSpaceTop, int extraSpaceBottom, int noPageBreak) {
+    LayoutState(StyleTracker firstLines, StyleTracker firstLetters, @Nullable MarkerData currentMarkerData,
+                PersistentStack<BlockFormattingContext> blockFormattingContexts,
+                @Nullable String pageName, int extraSpaceTop, int extraSpaceBottom, int noPageBreak) {
         this._firstLines = firstLines;
         this._firstLetters = firstLetters;
         this._currentMarkerData = currentMarkerData;
-        this._BFCs = new ArrayDeque<>(blockFormattingContexts);
+        this._BFCs = blockFormattingContexts;
         this._pageName = pageName;
         this._extraSpaceTop = extraSpaceTop;
         this._extraSpaceBottom = extraSpaceBottom;
         this._noPageBreak = noPageBreak;
     }
 
+    LayoutState(StyleTracker firstLines, StyleTracker firstLetters, @Nullable MarkerData currentMarkerData,
+                PersistentStack<BlockFormattingContext> blockFormattingContexts) {
+        this(firstLines, firstLetters, currentMarkerData, blockFormattingContexts, null, 0, 0, 0);
+    }
+
+    /**
+     * @param blockFormattingContexts the block formatting contexts, the innermost first
+     * @deprecated layout states are captured by {@link LayoutContext#captureLayoutState()}
+     */
+    @Deprecated
+    public LayoutState(StyleTracker firstLines, StyleTracker firstLetters, @Nullable MarkerData currentMarkerData,
+                       Collection<BlockFormattingContext> blockFormattingContexts,
+                       @Nullable String pageName, int extraSpaceTop, int extraSpaceBottom, int noPageBreak) {
+        this(firstLines, firstLetters, currentMarkerData, toStack(blockFormattingContexts),
+                pageName, extraSpaceTop, extraSpaceBottom, noPageBreak);
+    }
+
+    /**
+     * @param blockFormattingContexts the block formatting contexts, the innermost first
+     * @deprecated layout states are captured by {@link LayoutContext#captureLayoutState()}
+     */
+    @Deprecated
     public LayoutState(StyleTracker firstLines, StyleTracker firstLetters, @Nullable MarkerData currentMarkerData,
                        Collection<BlockFormattingContext> blockFormattingContexts) {
-        this(firstLines, firstLetters, currentMarkerData, blockFormattingContexts, null, 0, 0, 0);
+        this(firstLines, firstLetters, currentMarkerData, toStack(blockFormattingContexts));
     }
 
-    public Deque<BlockFormattingContext> getBFCs() {
+    private static PersistentStack<BlockFormattingContext> toStack(Collection<BlockFormattingContext> innermostFirst) {
+        List<BlockFormattingContext> contexts = new ArrayList<>(innermostFirst);
+        PersistentStack<BlockFormattingContext> result = PersistentStack.empty();
+        for (int i = contexts.size() - 1; i >= 0; i--) {
+            result = result.push(contexts.get(i));
+        }
+        return result;
+    }
+
+    PersistentStack<BlockFormattingContext> getBlockFormattingContexts() {
         return _BFCs;
     }
 
+    /**
+     * @return a copy of the block formatting contexts, the innermost first
+     * @deprecated layout states are restored by {@link LayoutContext#restoreLayoutState(LayoutState)}
+     */
+    @Deprecated
+    public Deque<BlockFormattingContext> getBFCs() {
+        Deque<BlockFormattingContext> result = new ArrayDeque<>();
+        for (BlockFormattingContext context : _BFCs.toList()) {
+            result.push(context);
+        }
+        return result;
+    }
+
     @Nullable
     public MarkerData getCurrentMarkerData() {
         return _currentMarkerData;
@@ -19,7 +19,11 @@
  */
 package org.xhtmlrenderer.layout;
 
+import org.jspecify.annotations.Nullable;
 import org.w3c.dom.Text;
+import org.xhtmlrenderer.layout.breaker.BreakPointCursor;
+import org.xhtmlrenderer.render.FSFont;
+import org.xhtmlrenderer.render.TextAdvances;
 
 /**
  * A bean which serves as a way for the layout code to pass information to the
@@ -36,6 +40,12 @@ public class LineBreakContext {
     private int _width;
     private boolean _endsOnNL;
     private final Text _textNode;
+    @Nullable
+    private FSFont _advancesFont;
+    @Nullable
+    private TextAdvances _advances;
+    @Nullable
+    private BreakPointCursor _breakPoints;
 
     public LineBreakContext(String master, Text textNode) {
         this._master = master;
@@ -66,6 +76,9 @@ public class LineBreakContext {
 
     public void setMaster(String master) {
         _master = master;
+        _advancesFont = null;
+        _advances = null;
+        _breakPoints = null;
     }
 
     public int getStart() {
@@ -81,14 +94,18 @@ public class LineBreakContext {
     }
 
     public String getCalculatedSubstring() {
+        return _master.substring(_start, getCalculatedEnd());
+    }
+
+    public int getCalculatedEnd() {
         // mimic the calculation in InlineText.setSubstring to strip newlines for our width calculations
         // the original text width calculation in InlineBox.calcMaxWidthFromLineLength() excludes the newline character
         // so if we include them here we get spurious newlines
         // apparently newlines do take up some width in most fonts
         if (_end > 0 && _master.charAt(_end-1) == WhitespaceStripper.EOLC) {
-            return _master.substring(_start, _end-1);
+            return _end-1;
         }
-        return _master.substring(_start, _end);
+        return _end;
     }
 
     public boolean isUnbreakable() {
@@ -135,6 +152,41 @@ public class LineBreakContext {
         _endsOnNL = b;
     }
 
+    /**
+     * @return the font the master string was last measured in, see {@link #getAdvances()}
+     */
+    @Nullable
+    public FSFont getAdvancesFont() {
+        return _advancesFont;
+    }
+
+    /**
+     * @return the advances of the master string, or {@code null} if it has not been measured
+     * or the text renderer cannot measure substrings
+     */
+    @Nullable
+    public TextAdvances getAdvances() {
+        return _advances;
+    }
+
+    public void setAdvances(FSFont font, @Nullable TextAdvances advances) {
+        _advancesFont = font;
+        _advances = advances;
+    }
+
+    /**
+     * @return the break points of the master string found so far, or {@code null}
+     * if none have been looked for since the master was last set
+     */
+    @Nullable
+    public BreakPointCursor getBreakPoints() {
+        return _breakPoints;
+    }
+
+    public void setBreakPoints(BreakPointCursor breakPoints) {
+        _breakPoints = breakPoints;
+    }
+
     public Text getTextNode() {
         return this._textNode;
     }
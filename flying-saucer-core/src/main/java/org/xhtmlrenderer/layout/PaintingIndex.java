@@ -0,0 +1,168 @@
+package org.xhtmlrenderer.layout;
+
+import org.jspecify.annotations.Nullable;
+import org.xhtmlrenderer.newtable.TableBox;
+import org.xhtmlrenderer.render.BlockBox;
+import org.xhtmlrenderer.render.Box;
+
+import java.awt.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Finds the children of a box, or the floats of a layer, which may intersect a clip region
+ * without looking at every one of them. Painting a page of a document whose body has tens of
+ * thousands of children (or floats) would otherwise check the aggregate bounds of all of them,
+ * for every page.
+ * <p>
+ * For a container with many children the index keeps, in child order, the largest bottom of the
+ * aggregate bounds of the children up to each child and the smallest top of the children from
+ * each child on. Both only grow, so a binary search finds the first child which may reach down
+ * into the clip and the first child after which nothing reaches up into it. Children between
+ * the two are checked as usual, so painting order is preserved and boxes out of document order
+ * (floats, relative positioning, negative margins) only make the range wider.
+ * <p>
+ * An index is built when first needed and is rebuilt when the painting info of its container
+ * (of the layer master for floats) has been recalculated.
+ */
+final class PaintingIndex {
+    /**
+     * Containers with fewer children are simply checked child by child
+     */
+    private static final int MIN_CHILD_COUNT = 32;
+
+    private final Map<Box, Entry> _entries = new ConcurrentHashMap<>();
+    @Nullable
+    private volatile Entry _floats;
+
+    /**
+     * @return the children of the container which may intersect the clip
+     */
+    ChildRange childRange(Box container, @Nullable Shape clip) {
+        int count = container.getChildCount();
+        if (clip == null || count < MIN_CHILD_COUNT || container instanceof TableBox) {
+            // table headers and footers are moved to every page while painting
+            return new ChildRange(0, count);
+        }
+        PaintingInfo info = container.getPaintingInfo();
+        if (info == null) {
+            return new ChildRange(0, count);
+        }
+
+        Entry entry = _entries.get(container);
+        if (entry == null || entry.info != info || entry.count != count) {
+            entry = new Entry(info, count, container::getChild);
+            _entries.put(container, entry);
+        }
+        return entry.range(clip);
+    }
+
+    /**
+     * @return the floats of the layer which may intersect the clip
+     */
+    ChildRange floatRange(Layer layer, List<BlockBox> floats, @Nullable Shape clip) {
+        int count = floats.size();
+        PaintingInfo info = layer.getMaster().getPaintingInfo();
+        if (clip == null || count < MIN_CHILD_COUNT || info == null) {
+            return new ChildRange(0, count);
+        }
+
+        Entry entry = _floats;
+        if (entry == null || entry.info != info || entry.count != count) {
+            entry = new Entry(info, count, floats::get);
+            _floats = entry;
+        }
+        return entry.range(clip);
+    }
+
+    void clear() {
+        _entries.clear();
+        _floats = null;
+    }
+
+    void clearFloats() {
+        _floats = null;
+    }
+
+    /**
+     * @param first the first child, inclusive
+     * @param end the last child, exclusive
+     */
+    record ChildRange(int first, int end) {
+    }
+
+    private static final class Entry {
+        private final PaintingInfo info;
+        private final int count;
+        private final int[] maxBottomUpTo;
+        private final int[] minTopFrom;
+
+        private Entry(PaintingInfo info, int count, IntFunction<? extends Box> children) {
+            this.info = info;
+            this.count = count;
+            maxBottomUpTo = new int[count];
+            minTopFrom = new int[count];
+
+            int maxBottom = Integer.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                Rectangle bounds = aggregateBounds(children.apply(i));
+                maxBottom = Math.max(maxBottom, bounds == null ? Integer.MAX_VALUE : bounds.y + bounds.height);
+                maxBottomUpTo[i] = maxBottom;
+            }
+            int minTop = Integer.MAX_VALUE;
+            for (int i = count - 1; i >= 0; i--) {
+                Rectangle bounds = aggregateBounds(children.apply(i));
+                minTop = Math.min(minTop, bounds == null ? Integer.MIN_VALUE : bounds.y);
+                minTopFrom[i] = minTop;
+            }
+        }
+
+        private ChildRange range(Shape clip) {
+            Rectangle bounds = clip.getBounds();
+            return new ChildRange(first(bounds.y), end(bounds.y + bounds.height));
+        }
+
+        @Nullable
+        private static Rectangle aggregateBounds(Box box) {
+            // boxes without painting info are always collected
+            PaintingInfo info = box.getPaintingInfo();
+            return info == null ? null : info.getAggregateBounds();
+        }
+
+        /**
+         * @return the first child whose aggregate bounds, or those of a child before it, reach down to the top
+         */
+        private int first(int top) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (maxBottomUpTo[mid] < top) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return the first child from which on no aggregate bounds reach up to the bottom
+         */
+        private int end(int bottom) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (minTopFrom[mid] <= bottom) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
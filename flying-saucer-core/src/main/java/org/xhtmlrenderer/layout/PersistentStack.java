@@ -0,0 +1,89 @@
+package org.xhtmlrenderer.layout;
+
+import com.google.errorprone.annotations.CheckReturnValue;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable stack. Pushing and popping return new stacks which share all
+ * entries below the top with the original one, so keeping a copy of a stack
+ * is keeping a reference to it, and going back to that copy is a single
+ * assignment.
+ * <p>
+ * Used for the state of a {@link LayoutContext} which {@link LayoutState}
+ * snapshots capture before every block box laid out on a page.
+ */
+final class PersistentStack<T> {
+    private static final PersistentStack<?> EMPTY = new PersistentStack<>(null, null, 0);
+
+    @Nullable
+    private final T _top;
+    @Nullable
+    private final PersistentStack<T> _rest;
+    private final int _size;
+
+    private PersistentStack(@Nullable T top, @Nullable PersistentStack<T> rest, int size) {
+        _top = top;
+        _rest = rest;
+        _size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> PersistentStack<T> empty() {
+        return (PersistentStack<T>) EMPTY;
+    }
+
+    @CheckReturnValue
+    PersistentStack<T> push(T value) {
+        return new PersistentStack<>(value, this, _size + 1);
+    }
+
+    /**
+     * @return this stack without its top
+     * @throws NoSuchElementException if the stack is empty
+     */
+    @CheckReturnValue
+    PersistentStack<T> pop() {
+        if (_rest == null) {
+            throw new NoSuchElementException();
+        }
+        return _rest;
+    }
+
+    /**
+     * @throws NoSuchElementException if the stack is empty
+     */
+    T peek() {
+        if (_rest == null) {
+            throw new NoSuchElementException();
+        }
+        return _top;
+    }
+
+    boolean isEmpty() {
+        return _rest == null;
+    }
+
+    int size() {
+        return _size;
+    }
+
+    /**
+     * @return the entries from the bottom of the stack to its top
+     */
+    List<T> toList() {
+        if (isEmpty()) {
+            return List.of();
+        }
+        List<T> result = new ArrayList<>(_size);
+        for (PersistentStack<T> stack = this; stack._rest != null; stack = stack._rest) {
+            result.add(stack._top);
+        }
+        Collections.reverse(result);
+        return Collections.unmodifiableList(result);
+    }
+}
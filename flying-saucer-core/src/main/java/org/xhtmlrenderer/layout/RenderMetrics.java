@@ -0,0 +1,106 @@
+package org.xhtmlrenderer.layout;
+
+import org.xhtmlrenderer.event.RenderCounter;
+import org.xhtmlrenderer.event.RenderMetricsListener;
+import org.xhtmlrenderer.event.RenderPhase;
+import org.xhtmlrenderer.render.Box;
+import org.xhtmlrenderer.render.InlineLayoutBox;
+import org.xhtmlrenderer.render.LineBox;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the metrics of the document being rendered until they are reported to the
+ * {@link RenderMetricsListener} by {@link #flush()}. Renderers call {@code flush()} when the
+ * layout and when the output of a document is finished; everything else only adds up, so that
+ * hot paths don't call the listener.
+ *
+ * @see SharedContext#setMetricsListener
+ */
+public final class RenderMetrics {
+    private final RenderMetricsListener _listener;
+    private final Map<RenderPhase, AtomicLong> _elapsedNanos = sums(RenderPhase.class);
+    private final Map<RenderCounter, AtomicLong> _counts = sums(RenderCounter.class);
+
+    RenderMetrics(RenderMetricsListener listener) {
+        _listener = listener;
+    }
+
+    /**
+     * @return a sum for every constant of the enum; the map is not modified afterwards, so it can be read by any thread
+     */
+    private static <E extends Enum<E>> Map<E, AtomicLong> sums(Class<E> type) {
+        Map<E, AtomicLong> result = new EnumMap<>(type);
+        for (E key : type.getEnumConstants()) {
+            result.put(key, new AtomicLong());
+        }
+        return result;
+    }
+
+    public RenderMetricsListener getListener() {
+        return _listener;
+    }
+
+    /**
+     * @param start the {@link System#nanoTime()} when the phase started
+     */
+    public void addTime(RenderPhase phase, long start) {
+        _elapsedNanos.get(phase).addAndGet(System.nanoTime() - start);
+    }
+
+    public void increment(RenderCounter counter) {
+        _counts.get(counter).incrementAndGet();
+    }
+
+    public void add(RenderCounter counter, long count) {
+        _counts.get(counter).addAndGet(count);
+    }
+
+    /**
+     * Counts the boxes and line boxes of a laid out box tree.
+     */
+    public void countBoxes(Box root) {
+        long[] counts = new long[2];
+        countBoxes(root, counts);
+        add(RenderCounter.BOXES, counts[0]);
+        add(RenderCounter.LINE_BOXES, counts[1]);
+    }
+
+    private static void countBoxes(Box box, long[] counts) {
+        counts[0]++;
+        if (box instanceof LineBox) {
+            counts[1]++;
+        }
+        if (box instanceof InlineLayoutBox inline) {
+            for (int i = 0; i < inline.getInlineChildCount(); i++) {
+                if (inline.getInlineChild(i) instanceof Box child) {
+                    countBoxes(child, counts);
+                }
+            }
+        } else {
+            for (int i = 0; i < box.getChildCount(); i++) {
+                countBoxes(box.getChild(i), counts);
+            }
+        }
+    }
+
+    /**
+     * Reports everything collected since the last call to the listener.
+     */
+    public void flush() {
+        _elapsedNanos.forEach((phase, sum) -> {
+            long elapsed = sum.getAndSet(0);
+            if (elapsed > 0) {
+                _listener.phaseFinished(phase, elapsed);
+            }
+        });
+        _counts.forEach((counter, sum) -> {
+            long count = sum.getAndSet(0);
+            if (count > 0) {
+                _listener.counted(counter, count);
+            }
+        });
+    }
+}
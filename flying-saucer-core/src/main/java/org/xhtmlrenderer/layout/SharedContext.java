@@ -25,10 +25,14 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.xhtmlrenderer.context.AWTFontResolver;
+import org.xhtmlrenderer.context.SharedStylesheetCache;
 import org.xhtmlrenderer.context.StyleReference;
 import org.xhtmlrenderer.css.style.CalculatedStyle;
 import org.xhtmlrenderer.css.style.EmptyStyle;
 import org.xhtmlrenderer.css.value.FontSpecification;
+import org.xhtmlrenderer.event.RenderCounter;
+import org.xhtmlrenderer.event.RenderMetricsListener;
+import org.xhtmlrenderer.event.RenderPhase;
 import org.xhtmlrenderer.extend.FSCanvas;
 import org.xhtmlrenderer.extend.FontContext;
 import org.xhtmlrenderer.extend.FontResolver;
@@ -47,6 +51,7 @@ import org.xhtmlrenderer.simple.extend.FormSubmissionListener;
 import org.xhtmlrenderer.swing.Java2DTextRenderer;
 import org.xhtmlrenderer.swing.NaiveUserAgent;
 import org.xhtmlrenderer.swing.SwingReplacedElementFactory;
+import org.xhtmlrenderer.util.Configuration;
 import org.xhtmlrenderer.util.XRLog;
 
 import java.awt.*;
@@ -98,6 +103,11 @@ public final class SharedContext {
 
     private LineBreakingStrategy lineBreakingStrategy = new DefaultLineBreakingStrategy();
 
+    private int pageLimit = Configuration.valueAsInt("xr.layout.page-limit", 0);
+
+    @Nullable
+    private RenderMetrics metrics;
+
     public SharedContext() {
         this(new NaiveUserAgent());
     }
@@ -255,6 +265,58 @@ public final class SharedContext {
         this.css = css;
     }
 
+    /**
+     * Shares parsed stylesheets with other renderers using the same cache.
+     *
+     * @see StyleReference#setStylesheetCache(SharedStylesheetCache)
+     */
+    public void setStylesheetCache(@Nullable SharedStylesheetCache stylesheetCache) {
+        css.setStylesheetCache(stylesheetCache);
+    }
+
+    /**
+     * Limits the number of pages one layout may produce. The boxes of all pages of a document are
+     * kept in memory until the document is written, so this bounds the memory a render of a
+     * runaway document takes; the layout fails with an {@link org.xhtmlrenderer.util.XRRuntimeException} as soon as it
+     * needs more pages.
+     *
+     * @param pageLimit the maximum number of pages, or 0 (the default, {@code xr.layout.page-limit})
+     *                  for no limit
+     */
+    public void setPageLimit(int pageLimit) {
+        this.pageLimit = pageLimit;
+    }
+
+    @CheckReturnValue
+    public int getPageLimit() {
+        return pageLimit;
+    }
+
+    /**
+     * Reports the time spent in each phase of rendering and counts of what has been rendered.
+     *
+     * @param listener the listener, or {@code null} (the default) to collect no metrics
+     */
+    public void setMetricsListener(@Nullable RenderMetricsListener listener) {
+        metrics = listener == null ? null : new RenderMetrics(listener);
+    }
+
+    @Nullable
+    @CheckReturnValue
+    public RenderMetricsListener getMetricsListener() {
+        return metrics == null ? null : metrics.getListener();
+    }
+
+    /**
+     * @return the metrics of the document being rendered, or {@code null} if no metrics listener
+     * is set
+     */
+    @Nullable
+    @CheckReturnValue
+    public RenderMetrics getMetrics() {
+        return metrics;
+    }
+
     @Nullable
     @CheckReturnValue
     public FSCanvas getCanvas() {
@@ -523,7 +585,13 @@ public final class SharedContext {
                 parentCalculatedStyle = getStyle((Element)parent, false);
             }
 
+            RenderMetrics localMetrics = metrics;
+            long start = localMetrics == null ? 0 : System.nanoTime();
             result = parentCalculatedStyle.deriveStyle(getCss().getCascadedStyle(e, restyle));
+            if (localMetrics != null) {
+                localMetrics.addTime(RenderPhase.CASCADE, start);
+                localMetrics.increment(RenderCounter.ELEMENTS);
+            }
 
             localMap.put(e, result);
         }
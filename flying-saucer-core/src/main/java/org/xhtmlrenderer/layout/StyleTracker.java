@@ -22,7 +22,6 @@ package org.xhtmlrenderer.layout;
 import org.xhtmlrenderer.css.newmatch.CascadedStyle;
 import org.xhtmlrenderer.css.style.CalculatedStyle;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -30,15 +29,15 @@ import java.util.List;
  * track of the styles which apply to a :first-line or :first-letter pseudo-element.
  */
 public class StyleTracker {
-    private final List<CascadedStyle> _styles = new ArrayList<>();
+    private PersistentStack<CascadedStyle> _styles = PersistentStack.empty();
 
     public void addStyle(CascadedStyle style) {
-        _styles.add(style);
+        _styles = _styles.push(style);
     }
 
     public void removeLast() {
         if (!_styles.isEmpty()) {
-            _styles.remove(_styles.size()-1);
+            _styles = _styles.pop();
         }
     }
 
@@ -47,24 +46,31 @@ public class StyleTracker {
     }
 
     public void clearStyles() {
-        _styles.clear();
+        _styles = PersistentStack.empty();
     }
 
     public CalculatedStyle deriveAll(CalculatedStyle start) {
-        CalculatedStyle result = start;
-        for (CascadedStyle o : getStyles()) {
-            result = result.deriveStyle(o);
+        return deriveAll(_styles, start);
+    }
+
+    private static CalculatedStyle deriveAll(PersistentStack<CascadedStyle> styles, CalculatedStyle start) {
+        if (styles.isEmpty()) {
+            return start;
         }
-        return result;
+        // the styles are applied from the bottom of the stack
+        return deriveAll(styles.pop(), start).deriveStyle(styles.peek());
     }
 
     public List<CascadedStyle> getStyles() {
-        return _styles;
+        return _styles.toList();
     }
 
+    /**
+     * @return a tracker with the same styles, which shares them with this one
+     */
     public StyleTracker copyOf() {
         StyleTracker result = new StyleTracker();
-        result._styles.addAll(this._styles);
+        result._styles = _styles;
         return result;
     }
 }
@@ -24,10 +24,18 @@ package org.xhtmlrenderer.layout.breaker;
 public class BreakAnywhereLineBreakStrategy implements BreakPointsProvider {
 
     private final String currentString;
-    private int position = 0;
+    private int position;
 
     public BreakAnywhereLineBreakStrategy(String currentString) {
+        this(currentString, 0);
+    }
+
+    /**
+     * Breaks {@code currentString} anywhere from {@code start} on.
+     */
+    public BreakAnywhereLineBreakStrategy(String currentString, int start) {
         this.currentString = currentString;
+        this.position = start;
     }
 
     @Override
@@ -0,0 +1,93 @@
+package org.xhtmlrenderer.layout.breaker;
+
+import org.xhtmlrenderer.layout.LineBreakContext;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The break points of the master string of a {@link LineBreakContext}, found
+ * by one {@link BreakPointsProvider} for the whole string and handed out line
+ * by line from the start of each line.
+ * <p>
+ * Break points after the start of the current line are kept, so the same line
+ * can be broken again (e.g. with a different available width) without asking
+ * the provider again.
+ */
+public final class BreakPointCursor {
+    private final BreakPointsProvider _provider;
+    private final List<BreakPoint> _fetched = new ArrayList<>();
+    private int _from;
+    private int _shift;
+    private boolean _done;
+
+    BreakPointCursor(BreakPointsProvider provider) {
+        _provider = provider;
+    }
+
+    /**
+     * @return whether {@link #from(int)} can be called with {@code start}, i.e.
+     * the break points after it have not been dropped yet
+     */
+    boolean canResumeAt(int start) {
+        return start >= _from;
+    }
+
+    /**
+     * @return the break points after {@code start}, positioned in the master string
+     */
+    BreakPointsProvider from(int start) {
+        int dropped = 0;
+        while (dropped < _fetched.size() && _fetched.get(dropped).getPosition() <= start) {
+            dropped++;
+        }
+        _fetched.subList(0, dropped).clear();
+        _from = start;
+
+        return new BreakPointsProvider() {
+            private int _index;
+
+            @Override
+            public BreakPoint next() {
+                if (_index < _fetched.size()) {
+                    return _fetched.get(_index++);
+                }
+                BreakPoint bp = fetch(start);
+                if (bp.getPosition() != BreakIterator.DONE) {
+                    _fetched.add(bp);
+                    _index++;
+                }
+                return bp;
+            }
+        };
+    }
+
+    private BreakPoint fetch(int start) {
+        while (!_done) {
+            BreakPoint bp = _provider.next();
+            if (bp == null || bp.getPosition() == BreakIterator.DONE) {
+                _done = true;
+            } else {
+                bp.setPosition(bp.getPosition() + _shift);
+                if (bp.getPosition() > start) {
+                    return bp;
+                }
+            }
+        }
+        return BreakPoint.getDonePoint();
+    }
+
+    /**
+     * Moves the break points after {@code position} by {@code length}, after
+     * that many characters (a hyphen) have been inserted into the master string.
+     */
+    void insert(int position, int length) {
+        for (BreakPoint bp : _fetched) {
+            if (bp.getPosition() > position) {
+                bp.setPosition(bp.getPosition() + length);
+            }
+        }
+        _shift += length;
+    }
+}
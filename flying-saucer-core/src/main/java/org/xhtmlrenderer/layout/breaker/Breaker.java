@@ -32,6 +32,7 @@ import org.xhtmlrenderer.layout.LineBreakContext;
 import org.xhtmlrenderer.layout.TextUtil;
 import org.xhtmlrenderer.layout.WhitespaceStripper;
 import org.xhtmlrenderer.render.FSFont;
+import org.xhtmlrenderer.render.TextAdvances;
 
 import java.text.BreakIterator;
 
@@ -91,9 +92,9 @@ public class Breaker {
         if (whitespace == IdentValue.PRE ||
                 whitespace == IdentValue.PRE_WRAP ||
                 whitespace == IdentValue.PRE_LINE) {
-            int n = context.getStartSubstring().indexOf(WhitespaceStripper.EOL);
+            int n = context.getMaster().indexOf(WhitespaceStripper.EOL, context.getStart());
             if (n > -1) {
-                context.setEnd(context.getStart() + n + 1);
+                context.setEnd(n + 1);
                 context.setWidth(c.getTextRenderer().getWidth(
                         c.getFontContext(), font, context.getCalculatedSubstring()));
                 context.setNeedsNewLine(true);
@@ -122,6 +123,26 @@ public class Breaker {
         return c.getTextRenderer().getWidth(c.getFontContext(), f, text);
     }
 
+    /**
+     * Measures {@code context.getMaster().substring(start, end)}, looking the width up in the
+     * advances of the master string if the text renderer supports them.
+     */
+    private static int getWidth(LayoutContext c, FSFont f, LineBreakContext context, int start, int end) {
+        TextAdvances advances = getAdvances(c, f, context);
+        if (advances != null) {
+            return advances.getWidth(start, end);
+        }
+        return getWidth(c, f, context.getMaster().substring(start, end));
+    }
+
+    @Nullable
+    private static TextAdvances getAdvances(LayoutContext c, FSFont f, LineBreakContext context) {
+        if (context.getAdvancesFont() != f) {
+            context.setAdvances(f, c.getTextRenderer().getAdvances(c.getFontContext(), f, context.getMaster()));
+        }
+        return context.getAdvances();
+    }
+
     public static BreakPointsProvider getBreakPointsProvider(String text, LayoutContext c, Element element, CalculatedStyle style) {
         return c.getSharedContext().getLineBreakingStrategy().getBreakPointsProvider(text, getLanguage(c, element), style);
     }
@@ -154,21 +175,24 @@ public class Breaker {
             LineBreakContext context, int avail, CalculatedStyle style,
             boolean tryToBreakAnywhere) {
         FSFont f = style.getFSFont(c);
-        String currentString = context.getStartSubstring();
-        BreakPointsProvider iterator = getBreakPointsProvider(currentString, c, context.getTextNode(), style);
-        if (tryToBreakAnywhere) {
-            iterator = new BreakAnywhereLineBreakStrategy(currentString);
-        }
+        int start = context.getStart();
+        String master = context.getMaster();
+        BreakPointsProvider iterator = tryToBreakAnywhere ?
+                new BreakAnywhereLineBreakStrategy(master, start) :
+                getBreakPoints(c, context, style).from(start);
         BreakPoint bp = iterator.next();
         BreakPoint lastBreakPoint = null;
         int right = -1;
         int previousWidth = 0;
         int previousPosition = 0;
         while (bp != null && bp.getPosition() != BreakIterator.DONE) {
-            int currentWidth = getWidth(c, f, currentString.substring(previousPosition, bp.getPosition()) + bp.getHyphen());
+            int position = bp.getPosition() - start;
+            int currentWidth = bp.getHyphen().isEmpty() ?
+                    getWidth(c, f, context, start + previousPosition, bp.getPosition()) :
+                    getWidth(c, f, master.substring(start + previousPosition, bp.getPosition()) + bp.getHyphen());
             int widthWithHyphen = previousWidth + currentWidth;
             previousWidth = widthWithHyphen;
-            previousPosition = bp.getPosition();
+            previousPosition = position;
             if (widthWithHyphen > avail) break;
             right = previousPosition;
             lastBreakPoint = bp;
@@ -179,12 +203,17 @@ public class Breaker {
         if (bp != null && bp.getPosition() != BreakIterator.DONE // it fits
                 && right >= 0 // some break point found
                 && !lastBreakPoint.getHyphen().isEmpty()) {
-            context.setMaster(new StringBuilder(context.getMaster()).insert(context.getStart() + right, lastBreakPoint.getHyphen()).toString());
+            BreakPointCursor breakPoints = context.getBreakPoints();
+            context.setMaster(new StringBuilder(master).insert(start + right, lastBreakPoint.getHyphen()).toString());
+            if (breakPoints != null) {
+                breakPoints.insert(start + right, lastBreakPoint.getHyphen().length());
+                context.setBreakPoints(breakPoints);
+            }
             right += lastBreakPoint.getHyphen().length();
         }
 
         if (bp != null && bp.getPosition() == BreakIterator.DONE) {
-            context.setWidth(getWidth(c, f, currentString));
+            context.setWidth(getWidth(c, f, context, start, context.getMaster().length()));
             context.setEnd(context.getMaster().length());
             //It fits!
             return;
@@ -199,15 +228,29 @@ public class Breaker {
         }
 
         if (right > 0) { // found a place to wrap
-            context.setEnd(context.getStart() + right);
-            context.setWidth(getWidth(c, f, context.getMaster().substring(context.getStart(), context.getStart() + right)));
+            context.setEnd(start + right);
+            context.setWidth(getWidth(c, f, context, start, start + right));
             return;
         }
 
         // unbreakable string
-        context.setEnd(context.getStart() + currentString.length());
+        context.setEnd(context.getMaster().length());
         context.setUnbreakable(true);
-        context.setWidth(getWidth(c, f, context.getCalculatedSubstring()));
+        context.setWidth(getWidth(c, f, context, start, context.getCalculatedEnd()));
+    }
+
+    /**
+     * @return the break points of the master string of {@code context}, which are looked
+     * for once per master string rather than once per line
+     */
+    private static BreakPointCursor getBreakPoints(LayoutContext c, LineBreakContext context, CalculatedStyle style) {
+        BreakPointCursor breakPoints = context.getBreakPoints();
+        if (breakPoints == null || !breakPoints.canResumeAt(context.getStart())) {
+            breakPoints = new BreakPointCursor(
+                    getBreakPointsProvider(context.getMaster(), c, context.getTextNode(), style));
+            context.setBreakPoints(breakPoints);
+        }
+        return breakPoints;
     }
 
 }
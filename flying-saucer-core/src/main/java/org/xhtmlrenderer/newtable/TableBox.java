@@ -155,7 +155,8 @@ public class TableBox extends BlockBox {
         if (isMarginAreaRoot()) {
             _tableLayout = new MarginTableLayout(this);
         } else if (style.isIdent(CSSName.TABLE_LAYOUT, IdentValue.AUTO) || style.isAutoWidth()) {
-            _tableLayout = new AutoTableLayout(this);
+            int sample = style.getTableLayoutSample();
+            _tableLayout = sample >= 0 ? new SampledTableLayout(this, sample) : new AutoTableLayout(this);
         } else {
             _tableLayout = new FixedTableLayout(this);
         }
@@ -397,6 +398,10 @@ public class TableBox extends BlockBox {
         _contentLimitContainer = new ContentLimitContainer(c, getAbsY());
         _contentLimitContainer.setParent(container);
 
+        if (hasRepeatedSection()) {
+            c.getRootLayer().setRepeatedTableSections(true);
+        }
+
         if (container != null) {
             container.updateTop(c, getAbsY());
             container.updateBottom(c, getAbsY() + getHeight());
@@ -484,6 +489,12 @@ public class TableBox extends BlockBox {
         }
     }
 
+    private boolean hasRepeatedSection() {
+        int count = getChildCount();
+        return count > 0 &&
+                (((TableSectionBox) getChild(0)).isHeader() || ((TableSectionBox) getChild(count - 1)).isFooter());
+    }
+
     public void updateHeaderFooterPosition(RenderingContext c) {
         ContentLimit limit = _contentLimitContainer.getContentLimit(c.getPageNo());
 
@@ -961,6 +972,30 @@ public class TableBox extends BlockBox {
         }
     }
 
+    /**
+     * A specialization of {@code AutoTableLayout} which only measures the cells
+     * of the header, the footer and the first rows of the body (see
+     * {@link CSSName#FS_TABLE_LAYOUT_SAMPLE}). The remaining rows are laid out
+     * once in the resulting columns and never measured, which keeps the layout
+     * of tables with a very large number of rows linear.
+     */
+    private static class SampledTableLayout extends AutoTableLayout {
+        private final int _sampleRows;
+
+        private SampledTableLayout(TableBox table, int sampleRows) {
+            super(table);
+            _sampleRows = sampleRows;
+        }
+
+        @Override
+        protected int rowsToMeasure(TableSectionBox section, int precedingBodyRows) {
+            if (section.isHeader() || section.isFooter()) {
+                return section.numRows();
+            }
+            return Math.max(0, Math.min(section.numRows(), _sampleRows - precedingBodyRows));
+        }
+    }
+
     private static class FixedTableLayout implements TableLayout {
         private final TableBox _table;
         private List<Length> _widths;
@@ -1252,14 +1287,26 @@ public class TableBox extends BlockBox {
             return 1;
         }
 
+        /**
+         * @param precedingBodyRows the number of rows in the body sections before this section
+         * @return the number of rows, from the start of the section, whose cells are measured
+         */
+        protected int rowsToMeasure(TableSectionBox section, int precedingBodyRows) {
+            return section.numRows();
+        }
+
         @SuppressWarnings("MissingCasesInEnumSwitch")
         private void recalcColumn(LayoutContext c, int effCol) {
             Layout l = _layoutStruct[effCol];
 
             // first we iterate over all rows.
+            int bodyRows = 0;
             for (Box box : _table.getChildren()) {
                 TableSectionBox section = (TableSectionBox) box;
-                int numRows = section.numRows();
+                int numRows = rowsToMeasure(section, bodyRows);
+                if (! section.isHeader() && ! section.isFooter()) {
+                    bodyRows += section.numRows();
+                }
                 for (int i = 0; i < numRows; i++) {
                     TableCellBox cell = section.cellAt(i, effCol);
                     if (cell == TableCellBox.SPANNING_CELL || cell == null) {
@@ -781,6 +781,23 @@ public class TableCellBox extends BlockBox {
         return bounds;
     }
 
+    /**
+     * @return the area covered by one side of the collapsed border, including both corners
+     */
+    @CheckReturnValue
+    public Rectangle getCollapsedBorderSideBounds(CssContext c, int side) {
+        BorderPropertySet border = getCollapsedPaintingBorder();
+        Rectangle bounds = getCollapsedBorderBounds(c);
+        return switch (side) {
+            case BorderPainter.TOP -> new Rectangle(bounds.x, bounds.y, bounds.width, (int) border.top());
+            case BorderPainter.BOTTOM -> new Rectangle(
+                    bounds.x, bounds.y + bounds.height - (int) border.bottom(), bounds.width, (int) border.bottom());
+            case BorderPainter.LEFT -> new Rectangle(bounds.x, bounds.y, (int) border.left(), bounds.height);
+            default -> new Rectangle(
+                    bounds.x + bounds.width - (int) border.right(), bounds.y, (int) border.right(), bounds.height);
+        };
+    }
+
     @CheckReturnValue
     @Override
     public Rectangle getPaintingClipEdge(CssContext c) {
@@ -795,7 +812,7 @@ public class TableCellBox extends BlockBox {
         return _collapsedPaintingBorder != null;
     }
 
-    protected BorderPropertySet getCollapsedPaintingBorder() {
+    public BorderPropertySet getCollapsedPaintingBorder() {
         return _collapsedPaintingBorder;
     }
 
@@ -19,7 +19,9 @@
  */
 package org.xhtmlrenderer.render;
 
+import org.jspecify.annotations.Nullable;
 import org.xhtmlrenderer.css.constants.IdentValue;
+import org.xhtmlrenderer.css.parser.FSColor;
 import org.xhtmlrenderer.css.parser.FSRGBColor;
 import org.xhtmlrenderer.css.style.BorderRadiusCorner;
 import org.xhtmlrenderer.css.style.derived.BorderPropertySet;
@@ -30,6 +32,7 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Area;
 import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
 
 
 public class BorderPainter {
@@ -265,6 +268,12 @@ public class BorderPainter {
             sides -= BorderPainter.RIGHT;
         }
 
+        FSColor solidColor = uniformSolidColor(sides, border);
+        if (solidColor != null) {
+            paintSolidRectangles(ctx.getOutputDevice(), bounds, sides, border, solidColor);
+            return;
+        }
+
         //Now paint!
         if ((sides & BorderPainter.TOP) == BorderPainter.TOP && border.topColor() != FSRGBColor.TRANSPARENT) {
             paintBorderSide(ctx.getOutputDevice(),
@@ -284,6 +293,88 @@ public class BorderPainter {
         }
     }
 
+    /**
+     * @return the color of the border if every side is either painted solid in that color or has no width,
+     * and no corner is rounded, so that the border can be painted as rectangles
+     */
+    @Nullable
+    private static FSColor uniformSolidColor(int sides, BorderPropertySet border) {
+        if (sides == 0 || border.hasBorderRadius()) {
+            return null;
+        }
+        FSColor color = null;
+        for (int side = TOP; side <= RIGHT; side <<= 1) {
+            if ((sides & side) == side) {
+                FSColor sideColor = sideColor(border, side);
+                if (sideStyle(border, side) != IdentValue.SOLID || sideColor == FSRGBColor.TRANSPARENT ||
+                        (color != null && !color.equals(sideColor))) {
+                    return null;
+                }
+                color = sideColor;
+            } else if (sideWidth(border, side) != 0) {
+                // the painted sides are mitered against this one
+                return null;
+            }
+        }
+        return color;
+    }
+
+    /**
+     * Paints the top and bottom sides over the whole width and the left and right sides between them,
+     * which covers the same area as the mitered sides since they have the same color.
+     */
+    private static void paintSolidRectangles(OutputDevice outputDevice, Rectangle bounds, int sides,
+                                             BorderPropertySet border, FSColor color) {
+        float top = (sides & TOP) == TOP ? border.top() : 0;
+        float bottom = (sides & BOTTOM) == BOTTOM ? border.bottom() : 0;
+        float left = (sides & LEFT) == LEFT ? border.left() : 0;
+        float right = (sides & RIGHT) == RIGHT ? border.right() : 0;
+        float middle = bounds.height - top - bottom;
+
+        outputDevice.setStroke(new BasicStroke(1f));
+        outputDevice.setColor(color);
+        if (top > 0) {
+            outputDevice.fill(new Rectangle2D.Float(bounds.x, bounds.y, bounds.width, top));
+        }
+        if (bottom > 0) {
+            outputDevice.fill(new Rectangle2D.Float(bounds.x, bounds.y + bounds.height - bottom, bounds.width, bottom));
+        }
+        if (left > 0 && middle > 0) {
+            outputDevice.fill(new Rectangle2D.Float(bounds.x, bounds.y + top, left, middle));
+        }
+        if (right > 0 && middle > 0) {
+            outputDevice.fill(new Rectangle2D.Float(bounds.x + bounds.width - right, bounds.y + top, right, middle));
+        }
+    }
+
+    @Nullable
+    private static IdentValue sideStyle(BorderPropertySet border, int side) {
+        return switch (side) {
+            case TOP -> border.topStyle();
+            case LEFT -> border.leftStyle();
+            case BOTTOM -> border.bottomStyle();
+            default -> border.rightStyle();
+        };
+    }
+
+    private static FSColor sideColor(BorderPropertySet border, int side) {
+        return switch (side) {
+            case TOP -> border.topColor();
+            case LEFT -> border.leftColor();
+            case BOTTOM -> border.bottomColor();
+            default -> border.rightColor();
+        };
+    }
+
+    private static float sideWidth(BorderPropertySet border, int side) {
+        return switch (side) {
+            case TOP -> border.top();
+            case LEFT -> border.left();
+            case BOTTOM -> border.bottom();
+            default -> border.right();
+        };
+    }
+
     private static void paintBorderSide(OutputDevice outputDevice, final BorderPropertySet border,
                                         final Rectangle bounds, int currentSide,
                                         final IdentValue borderSideStyle, int xOffset) {
@@ -0,0 +1,16 @@
+package org.xhtmlrenderer.render;
+
+/**
+ * The widths of the substrings of one string in one font, as measured once by a
+ * {@link org.xhtmlrenderer.extend.TextRenderer}. Implementations keep the cumulative advance of
+ * every prefix of the string, so the width of any substring is a constant time lookup.
+ *
+ * @see org.xhtmlrenderer.extend.TextRenderer#getAdvances
+ */
+public interface TextAdvances {
+    /**
+     * @return the width of {@code string.substring(start, end)}, the same value
+     * {@link org.xhtmlrenderer.extend.TextRenderer#getWidth} would return for that substring
+     */
+    int getWidth(int start, int end);
+}
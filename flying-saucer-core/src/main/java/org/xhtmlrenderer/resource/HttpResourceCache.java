@@ -0,0 +1,474 @@
+package org.xhtmlrenderer.resource;
+
+import com.google.errorprone.annotations.CheckReturnValue;
+import org.jspecify.annotations.Nullable;
+import org.xhtmlrenderer.util.XRLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * A thread-safe cache of HTTP responses on disk, which can be shared between any number of user
+ * agents (see {@link org.xhtmlrenderer.swing.NaiveUserAgent#setHttpCache}) and survives restarts
+ * of the application.
+ * <p>
+ * Responses are cached as a private cache would: a response is used without asking the server
+ * for as long as its {@code Cache-Control: max-age} or {@code Expires} header allows. Afterwards
+ * (or right away for {@code no-cache}) it is revalidated with a conditional request made from its
+ * {@code ETag} and {@code Last-Modified} headers, and used again if the server answers
+ * {@code 304 Not Modified}. Responses with {@code no-store}, and responses which can neither be
+ * used for some time nor be revalidated, are not cached.
+ * <p>
+ * The cache is bounded by the total size of the cached bodies; least recently used responses are
+ * deleted first.
+ */
+public class HttpResourceCache {
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    private static final String BODY = ".body";
+    private static final String META = ".meta";
+    private static final String TEMP = ".tmp";
+
+    private final Path _directory;
+    private final long _maxSize;
+    private final Clock _clock;
+
+    private final Map<String, Entry> _entries = new ConcurrentHashMap<>();
+    private final AtomicLong _accesses = new AtomicLong();
+    private final AtomicLong _size = new AtomicLong();
+
+    private final AtomicLong _hits = new AtomicLong();
+    private final AtomicLong _revalidations = new AtomicLong();
+    private final AtomicLong _misses = new AtomicLong();
+    private final AtomicLong _evictions = new AtomicLong();
+
+    public HttpResourceCache(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_SIZE, Clock.systemUTC());
+    }
+
+    /**
+     * Opens the cache in the directory, with the responses cached there before.
+     *
+     * @param maxSize the maximum total size of the cached bodies in bytes
+     * @param clock   tells whether cached responses are fresh
+     */
+    public HttpResourceCache(Path directory, long maxSize, Clock clock) throws IOException {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        _directory = Files.createDirectories(directory);
+        _maxSize = maxSize;
+        _clock = clock;
+        load();
+    }
+
+    private void load() throws IOException {
+        List<Path> metas = new ArrayList<>();
+        List<Path> temps = new ArrayList<>();
+        try (Stream<Path> files = Files.list(_directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.endsWith(META)) {
+                    metas.add(file);
+                } else if (name.endsWith(TEMP)) {
+                    temps.add(file);
+                }
+            });
+        }
+        // left behind by writes which did not complete
+        for (Path temp : temps) {
+            Files.deleteIfExists(temp);
+        }
+        // the least recently stored responses are evicted first
+        metas.sort(Comparator.comparingLong(HttpResourceCache::lastModified));
+        for (Path meta : metas) {
+            Entry entry = readEntry(meta);
+            if (entry == null) {
+                continue;
+            }
+            Path body = body(entry.key);
+            if (Files.isRegularFile(body) && Files.size(body) == entry.size) {
+                _entries.put(entry.uri, entry);
+                _size.addAndGet(entry.size);
+            }
+        }
+        evictIfNeeded();
+    }
+
+    @Nullable
+    private Entry readEntry(Path meta) {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(meta, UTF_8)) {
+            properties.load(reader);
+            String uri = properties.getProperty("uri");
+            if (uri == null) {
+                return null;
+            }
+            return new Entry(uri, key(uri), properties.getProperty("etag"), properties.getProperty("last-modified"),
+                    Long.parseLong(properties.getProperty("expires", "0")),
+                    Long.parseLong(properties.getProperty("size", "-1")), _accesses.incrementAndGet());
+        } catch (IOException | NumberFormatException e) {
+            XRLog.load(Level.WARNING, "Ignoring unreadable cache entry " + meta + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * @return whether responses from the URI can be cached
+     */
+    @CheckReturnValue
+    public static boolean isCacheable(String uri) {
+        String lowerCase = uri.toLowerCase(Locale.ROOT);
+        return lowerCase.startsWith("http:") || lowerCase.startsWith("https:");
+    }
+
+    /**
+     * @param uri the resolved URI of the resource
+     * @return the cached body, if the server allows using it without revalidation; {@code null} otherwise
+     */
+    @CheckReturnValue
+    public byte @Nullable [] getFresh(String uri) {
+        Entry entry = _entries.get(uri);
+        if (entry == null || entry.expires <= _clock.millis()) {
+            return null;
+        }
+        byte[] body = read(entry);
+        if (body != null) {
+            _hits.incrementAndGet();
+        }
+        return body;
+    }
+
+    /**
+     * Turns the request into a conditional one if a response to it is cached. Must be called
+     * before the connection is connected.
+     */
+    public void addValidators(String uri, URLConnection connection) {
+        Entry entry = _entries.get(uri);
+        if (entry == null) {
+            return;
+        }
+        if (entry.etag != null) {
+            connection.setRequestProperty("If-None-Match", entry.etag);
+        }
+        if (entry.lastModified != null) {
+            connection.setRequestProperty("If-Modified-Since", entry.lastModified);
+        }
+    }
+
+    /**
+     * Reads the response, caching it if allowed, or takes the body from the cache if the server
+     * answered a conditional request with {@code 304 Not Modified}. A 304 only updates the cached
+     * headers; a response with {@code no-store} deletes the cached one.
+     *
+     * @param uri the resolved URI of the resource
+     * @return the body of the response, or {@code null} if the server answered {@code 304 Not Modified}
+     * but the response is not cached anymore (e.g. it has been evicted for another render meanwhile),
+     * so the request has to be made again
+     */
+    @CheckReturnValue
+    public @Nullable InputStream open(String uri, URLConnection connection) throws IOException {
+        if (!(connection instanceof HttpURLConnection http)) {
+            return connection.getInputStream();
+        }
+        int status = http.getResponseCode();
+        if (status == HTTP_NOT_MODIFIED) {
+            Entry entry = _entries.get(uri);
+            byte[] body = entry == null ? null : read(entry);
+            if (body == null) {
+                return null;
+            }
+            _revalidations.incrementAndGet();
+            revalidate(entry, connection);
+            return new ByteArrayInputStream(body);
+        }
+        _misses.incrementAndGet();
+        String cacheControl = headerOrEmpty(connection, "Cache-Control");
+        String etag = connection.getHeaderField("ETag");
+        String lastModified = connection.getHeaderField("Last-Modified");
+        if (status != HTTP_OK) {
+            return connection.getInputStream();
+        }
+        if (cacheControl.contains("no-store")) {
+            remove(uri);
+            return connection.getInputStream();
+        }
+        byte[] body;
+        try (InputStream in = connection.getInputStream()) {
+            body = in.readAllBytes();
+        }
+        store(uri, connection, body, etag, lastModified);
+        return new ByteArrayInputStream(body);
+    }
+
+    private void store(String uri, URLConnection connection, byte[] body,
+                       @Nullable String etag, @Nullable String lastModified) {
+        long expires = expires(connection);
+        if ((expires <= _clock.millis() && etag == null && lastModified == null) || body.length > _maxSize) {
+            remove(uri);
+            return;
+        }
+        Entry created = new Entry(uri, key(uri), etag, lastModified, expires, body.length, _accesses.incrementAndGet());
+        try {
+            write(created, body);
+        } catch (IOException e) {
+            XRLog.load(Level.WARNING, "Could not cache " + uri + ": " + e);
+        }
+    }
+
+    /**
+     * Keeps the cached body, with the headers of the {@code 304 Not Modified} response which
+     * revalidated it.
+     */
+    private void revalidate(Entry entry, URLConnection connection) {
+        String etag = connection.getHeaderField("ETag");
+        String lastModified = connection.getHeaderField("Last-Modified");
+        Entry revalidated = new Entry(entry.uri, entry.key, etag == null ? entry.etag : etag,
+                lastModified == null ? entry.lastModified : lastModified,
+                expires(connection), entry.size, _accesses.incrementAndGet());
+        try {
+            synchronized (this) {
+                // unless another response has replaced the body meanwhile
+                if (_entries.get(entry.uri) == entry) {
+                    writeMeta(revalidated);
+                }
+            }
+        } catch (IOException e) {
+            XRLog.load(Level.WARNING, "Could not update cached " + entry.uri + ": " + e);
+        }
+    }
+
+    private synchronized void write(Entry created, byte[] body) throws IOException {
+        Path temp = Files.write(temp(created.key), body);
+        Files.move(temp, body(created.key), REPLACE_EXISTING, ATOMIC_MOVE);
+        writeMeta(created);
+    }
+
+    private synchronized void writeMeta(Entry created) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("uri", created.uri);
+        if (created.etag != null) {
+            properties.setProperty("etag", created.etag);
+        }
+        if (created.lastModified != null) {
+            properties.setProperty("last-modified", created.lastModified);
+        }
+        properties.setProperty("expires", Long.toString(created.expires));
+        properties.setProperty("size", Long.toString(created.size));
+        Path temp = temp(created.key);
+        try (Writer writer = Files.newBufferedWriter(temp, UTF_8)) {
+            properties.store(writer, null);
+        }
+        Files.move(temp, meta(created.key), REPLACE_EXISTING, ATOMIC_MOVE);
+
+        Entry replaced = _entries.put(created.uri, created);
+        _size.addAndGet(created.size - (replaced == null ? 0 : replaced.size));
+        evictIfNeeded();
+    }
+
+    /**
+     * @return when the response stops being fresh, in milliseconds since the epoch
+     */
+    private long expires(URLConnection connection) {
+        String cacheControl = headerOrEmpty(connection, "Cache-Control");
+        if (cacheControl.contains("no-cache")) {
+            return 0;
+        }
+        for (String directive : cacheControl.split(",", -1)) {
+            String trimmed = directive.trim();
+            if (trimmed.startsWith("max-age=")) {
+                try {
+                    long maxAge = Long.parseLong(trimmed.substring("max-age=".length()).replace("\"", ""));
+                    long age = Math.max(0, connection.getHeaderFieldLong("Age", 0));
+                    return _clock.millis() + (maxAge - age) * 1000;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return connection.getExpiration();
+    }
+
+    private static String headerOrEmpty(URLConnection connection, String name) {
+        String value = connection.getHeaderField(name);
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    private byte @Nullable [] read(Entry entry) {
+        try {
+            byte[] body = Files.readAllBytes(body(entry.key));
+            entry.lastAccess = _accesses.incrementAndGet();
+            return body;
+        } catch (IOException e) {
+            XRLog.load(Level.WARNING, "Could not read cached " + entry.uri + ": " + e);
+            remove(entry.uri);
+            return null;
+        }
+    }
+
+    private synchronized void remove(String uri) {
+        Entry removed = _entries.remove(uri);
+        if (removed != null) {
+            delete(removed);
+        }
+    }
+
+    private void evictIfNeeded() {
+        while (_size.get() > _maxSize) {
+            Entry eldest = null;
+            for (Entry candidate : _entries.values()) {
+                if (eldest == null || candidate.lastAccess < eldest.lastAccess) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (_entries.remove(eldest.uri, eldest)) {
+                delete(eldest);
+                _evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private void delete(Entry entry) {
+        _size.addAndGet(-entry.size);
+        try {
+            Files.deleteIfExists(meta(entry.key));
+            Files.deleteIfExists(body(entry.key));
+        } catch (IOException e) {
+            XRLog.load(Level.WARNING, "Could not delete cached " + entry.uri + ": " + e);
+        }
+    }
+
+    /**
+     * Deletes all cached responses.
+     */
+    public synchronized void clear() {
+        for (Entry entry : List.copyOf(_entries.values())) {
+            if (_entries.remove(entry.uri, entry)) {
+                delete(entry);
+            }
+        }
+    }
+
+    public int size() {
+        return _entries.size();
+    }
+
+    /**
+     * @return the total size of the cached bodies in bytes
+     */
+    public long getWeight() {
+        return _size.get();
+    }
+
+    /**
+     * @return the number of responses used without asking the server
+     */
+    public long getHitCount() {
+        return _hits.get();
+    }
+
+    /**
+     * @return the number of responses used after the server answered {@code 304 Not Modified}
+     */
+    public long getRevalidationCount() {
+        return _revalidations.get();
+    }
+
+    /**
+     * @return the number of responses whose body had to be downloaded
+     */
+    public long getMissCount() {
+        return _misses.get();
+    }
+
+    public long getEvictionCount() {
+        return _evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "HttpResourceCache{size=%d, weight=%d, hits=%d, revalidations=%d, misses=%d, evictions=%d}".formatted(
+                size(), getWeight(), getHitCount(), getRevalidationCount(), getMissCount(), getEvictionCount());
+    }
+
+    private Path body(String key) {
+        return _directory.resolve(key + BODY);
+    }
+
+    private Path meta(String key) {
+        return _directory.resolve(key + META);
+    }
+
+    private Path temp(String key) {
+        return _directory.resolve(key + TEMP);
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String key(String uri) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(uri.getBytes(UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final String uri;
+        private final String key;
+        @Nullable
+        private final String etag;
+        @Nullable
+        private final String lastModified;
+        private final long expires;
+        private final long size;
+        private volatile long lastAccess;
+
+        private Entry(String uri, String key, @Nullable String etag, @Nullable String lastModified,
+                      long expires, long size, long lastAccess) {
+            this.uri = uri;
+            this.key = key;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expires = expires;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.xhtmlrenderer.resource;
+
+import com.google.errorprone.annotations.CheckReturnValue;
+import org.jspecify.annotations.Nullable;
+import org.xhtmlrenderer.util.WeightedLruCache;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A thread-safe cache of decoded images which can be shared between any number of user agents,
+ * e.g. by keeping it in a static field and passing it to
+ * {@link org.xhtmlrenderer.swing.NaiveUserAgent#setImageCache}.
+ * <p>
+ * Images are keyed by their resolved URI and a variant, which tells apart decodings of the same
+ * image that can't be used in place of each other (say, for Java2D and for PDF, or at different
+ * resolutions). The cache is bounded both by number of entries and by total weight (the size of
+ * the decoded images in bytes); least recently used entries are evicted first.
+ * <p>
+ * Cached {@link ImageResource}s are shared, so the images in them must not be modified.
+ */
+public class SharedImageCache {
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    public static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+    private final WeightedLruCache<Key, ImageResource> _cache;
+
+    public SharedImageCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * @param maxEntries the maximum number of cached images, zero to cache none
+     * @param maxWeight the maximum total size of the cached images in bytes
+     */
+    public SharedImageCache(int maxEntries, long maxWeight) {
+        _cache = new WeightedLruCache<>("SharedImageCache", maxEntries, maxWeight);
+    }
+
+    /**
+     * @param uri     the resolved URI of the image
+     * @param variant tells apart decodings of the same image which can't replace each other
+     * @return the cached image, or {@code null} on a cache miss
+     */
+    @CheckReturnValue
+    @Nullable
+    public ImageResource get(String uri, String variant) {
+        return _cache.get(new Key(uri, variant));
+    }
+
+    /**
+     * @return whether the image is cached; unlike {@link #get} this does not count as a hit or miss
+     */
+    @CheckReturnValue
+    public boolean contains(String uri, String variant) {
+        return _cache.containsKey(new Key(uri, variant));
+    }
+
+    /**
+     * Caches a decoded image, unless another thread has cached the same image in the meantime.
+     * Images heavier than the whole cache are not cached.
+     *
+     * @param weight the weight of the entry, usually the size of the decoded image in bytes
+     * @return the image now in the cache, which is the given one unless another thread won
+     */
+    @CheckReturnValue
+    public ImageResource put(String uri, String variant, ImageResource resource, long weight) {
+        return _cache.putIfAbsent(new Key(uri, variant), resource, weight);
+    }
+
+    /**
+     * @return the removed image, or {@code null} if it was not cached
+     */
+    @Nullable
+    public ImageResource remove(String uri, String variant) {
+        return _cache.remove(new Key(uri, variant));
+    }
+
+    /**
+     * Caches a decoded image in place of the one cached for the same URI and variant, if any.
+     *
+     * @return the replaced image, or {@code null} if there was none
+     */
+    @Nullable
+    public ImageResource replace(String uri, String variant, ImageResource resource, long weight) {
+        return _cache.put(new Key(uri, variant), resource, weight);
+    }
+
+    /**
+     * @return a copy of the cached images of the variant, by URI
+     */
+    public Map<String, ImageResource> getImages(String variant) {
+        Map<String, ImageResource> images = new HashMap<>();
+        _cache.snapshot().forEach((key, resource) -> {
+            if (key.variant().equals(variant)) {
+                images.put(key.uri(), resource);
+            }
+        });
+        return Collections.unmodifiableMap(images);
+    }
+
+    public void clear() {
+        _cache.clear();
+    }
+
+    public int size() {
+        return _cache.size();
+    }
+
+    public long getWeight() {
+        return _cache.getWeight();
+    }
+
+    public long getHitCount() {
+        return _cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return _cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return _cache.getEvictionCount();
+    }
+
+    @Override
+    public String toString() {
+        return _cache.toString();
+    }
+
+    /**
+     * @return the size of the pixel data of the image in bytes
+     */
+    public static long weightOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    private record Key(String uri, String variant) {
+    }
+}
@@ -22,10 +22,12 @@ package org.xhtmlrenderer.swing;
 import org.jspecify.annotations.Nullable;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.xhtmlrenderer.event.RenderPhase;
 import org.xhtmlrenderer.extend.NamespaceHandler;
 import org.xhtmlrenderer.extend.UserInterface;
 import org.xhtmlrenderer.layout.BoxBuilder;
 import org.xhtmlrenderer.layout.LayoutContext;
+import org.xhtmlrenderer.layout.RenderMetrics;
 import org.xhtmlrenderer.layout.SharedContext;
 import org.xhtmlrenderer.render.BlockBox;
 import org.xhtmlrenderer.render.Box;
@@ -248,11 +250,17 @@ public class Java2DRenderer {
             int height = this.height == -1 ? root.getHeight() : this.height;
             outputImage = createBufferedImage(this.width, height);
             outputDevice = new Java2DOutputDevice(outputImage);
+            long start = System.nanoTime();
             withGraphics(outputImage, newG -> {
                 RenderingContext rc = sharedContext.newRenderingContextInstance(outputDevice, new Java2DFontContext(newG));
                 sharedContext.getTextRenderer().setup(rc.getFontContext());
                 root.getLayer().paint(rc);
             });
+            RenderMetrics metrics = sharedContext.getMetrics();
+            if (metrics != null) {
+                metrics.addTime(RenderPhase.PAINT, start);
+                metrics.flush();
+            }
 
             rendered = true;
         }
@@ -295,6 +303,7 @@ public class Java2DRenderer {
     }
 
     private void layout(int width) {
+        long start = System.nanoTime();
         Rectangle rect = new Rectangle(0, 0, width, DEFAULT_HEIGHT);
         sharedContext.setTemporaryCanvas(rect);
         LayoutContext c = newLayoutContext();
@@ -302,10 +311,23 @@ public class Java2DRenderer {
         root.setContainingBlock(new ViewportBox(rect));
         root.layout(c);
         this.root = root;
+
+        RenderMetrics metrics = sharedContext.getMetrics();
+        if (metrics != null) {
+            metrics.addTime(RenderPhase.LAYOUT, start);
+            metrics.countBoxes(root);
+            metrics.flush();
+        }
     }
 
     private Document loadDocument(final String uri) {
-        return sharedContext.getUac().getXMLResource(uri).getDocument();
+        long start = System.nanoTime();
+        Document result = sharedContext.getUac().getXMLResource(uri).getDocument();
+        RenderMetrics metrics = sharedContext.getMetrics();
+        if (metrics != null) {
+            metrics.addTime(RenderPhase.XML_PARSE, start);
+        }
+        return result;
     }
 
     private LayoutContext newLayoutContext() {
@@ -20,6 +20,7 @@
 package org.xhtmlrenderer.swing;
 
 import com.google.errorprone.annotations.CheckReturnValue;
+import org.jspecify.annotations.Nullable;
 import org.xhtmlrenderer.extend.FSGlyphVector;
 import org.xhtmlrenderer.extend.FontContext;
 import org.xhtmlrenderer.extend.OutputDevice;
@@ -28,6 +29,7 @@ import org.xhtmlrenderer.render.FSFont;
 import org.xhtmlrenderer.render.FSFontMetrics;
 import org.xhtmlrenderer.render.JustificationInfo;
 import org.xhtmlrenderer.render.LineMetricsAdapter;
+import org.xhtmlrenderer.render.TextAdvances;
 import org.xhtmlrenderer.util.Configuration;
 
 import java.awt.*;
@@ -210,6 +212,34 @@ public class Java2DTextRenderer implements TextRenderer {
         return width;
     }
 
+    @Override
+    @Nullable
+    public TextAdvances getAdvances(FontContext fc, FSFont font, String string) {
+        Font awtFont = ((AWTFSFont)font).getAWTFont();
+        char[] chars = string.toCharArray();
+        if (awtFont.hasLayoutAttributes() || Font.textRequiresLayout(chars, 0, chars.length)) {
+            return null;
+        }
+
+        Graphics2D graphics = ((Java2DFontContext)fc).getGraphics();
+        Object fracHint = graphics.getRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS);
+        graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, fractionalFontMetricsHint);
+        GlyphVector vector = awtFont.createGlyphVector(graphics.getFontRenderContext(), chars);
+        graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, fracHint);
+
+        // e.g. surrogate pairs, which are one glyph
+        if (vector.getNumGlyphs() != chars.length) {
+            return null;
+        }
+
+        float[] positions = vector.getGlyphPositions(0, chars.length + 1, null);
+        boolean fractional = fractionalFontMetricsHint == RenderingHints.VALUE_FRACTIONALMETRICS_ON;
+        return (start, end) -> {
+            double width = positions[end * 2] - positions[start * 2];
+            return (int) (fractional ? Math.round(width) : Math.ceil(width));
+        };
+    }
+
     @Override
     public float getFontScale() {
         return this.scale;
@@ -21,17 +21,22 @@ package org.xhtmlrenderer.swing;
 
 import com.google.errorprone.annotations.CheckReturnValue;
 import org.jspecify.annotations.Nullable;
+import org.w3c.dom.Document;
 import org.xhtmlrenderer.event.DocumentListener;
 import org.xhtmlrenderer.extend.UserAgentCallback;
 import org.xhtmlrenderer.resource.CSSResource;
+import org.xhtmlrenderer.resource.HttpResourceCache;
 import org.xhtmlrenderer.resource.ImageResource;
+import org.xhtmlrenderer.resource.SharedImageCache;
 import org.xhtmlrenderer.resource.XMLResource;
+import org.xhtmlrenderer.util.Configuration;
 import org.xhtmlrenderer.util.IOUtil;
 import org.xhtmlrenderer.util.XRLog;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -42,9 +47,17 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
 
 import static java.net.HttpURLConnection.HTTP_MOVED_PERM;
 import static java.net.HttpURLConnection.HTTP_MOVED_TEMP;
@@ -59,12 +72,14 @@ import static org.xhtmlrenderer.util.ImageUtil.loadEmbeddedBase64Image;
  * XML, CSS or images are loaded, and reports visited links without any filtering. The most straightforward process
  * available in the JDK is used to load the resources in question--either using java.io or java.net classes.
  *
- * <p>The NaiveUserAgent has a small cache for images,
- * the size of which (number of images) can be passed as a constructor argument. There is no automatic cleaning of
- * the cache; call {@link #shrinkImageCache()} to remove the least-accessed elements--for example, you might do this
- * when a new document is about to be loaded. The NaiveUserAgent is also a DocumentListener; if registered with a
- * source of document events (like the panel hierarchy), it will respond to the
- * {@link org.xhtmlrenderer.event.DocumentListener#documentStarted()} call and attempt to shrink its cache.
+ * <p>The NaiveUserAgent has a small cache for images, the size of which (number of images) can be passed as a
+ * constructor argument. The cache also holds at most {@code xr.image.cache-weight} bytes of decoded images, and drops
+ * the least recently used images when it grows beyond either bound. User agents can share one
+ * {@link SharedImageCache} (see {@link #setImageCache(SharedImageCache)}), so images used by many documents are
+ * decoded only once.
+ *
+ * <p>Resources loaded over HTTP can be kept in an {@link HttpResourceCache} on disk (see
+ * {@link #setHttpCache(HttpResourceCache)}), which honours the caching headers of the server.
  *
  * <p>This class is meant as a starting point--it will work out of the box, but you should really implement your
  * own, tuned to your application's needs.
@@ -74,14 +89,25 @@ import static org.xhtmlrenderer.util.ImageUtil.loadEmbeddedBase64Image;
 public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
 
     private static final int DEFAULT_IMAGE_CACHE_SIZE = 16;
+    private static final String IMAGE_CACHE_VARIANT = "awt";
+
     /**
-     * a (simple) LRU cache
+     * the images in the image cache of this user agent. Keys are resolved with {@link #resolveURI(String)},
+     * as image sources are, so the image of a source can be looked up by the source; entries are listed by
+     * resolved URI
      */
-    protected final Map<String, ImageResource> _imageCache;
-    private final int _imageCacheCapacity;
+    protected final Map<String, ImageResource> _imageCache = new ImageCacheView();
+    private SharedImageCache _sharedImageCache;
+    @Nullable
+    private HttpResourceCache _httpCache;
     @Nullable
     private String _baseURL;
 
+    /**
+     * content of resources fetched ahead of layout, by resolved URI, removed once used
+     */
+    private volatile Map<String, CompletableFuture<byte @Nullable []>> _prefetched = new ConcurrentHashMap<>();
+
     /**
      * Creates a new instance of NaiveUserAgent with a max image cache of 16 images.
      */
@@ -92,34 +118,110 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
     /**
      * Creates a new NaiveUserAgent with a cache of a specific size.
      *
-     * @param imgCacheSize Number of images to hold in cache before LRU images are released.
+     * @param imgCacheSize Number of images to hold in cache before LRU images are released, zero to cache none.
      */
     public NaiveUserAgent(final int imgCacheSize) {
-        _imageCacheCapacity = imgCacheSize;
-
-        // note we do *not* override removeEldestEntry() here--users of this class must call shrinkImageCache().
-        // that's because we don't know when is a good time to flush the cache
-        _imageCache = new LinkedHashMap<>(_imageCacheCapacity, 0.75f, true);
+        _sharedImageCache = new SharedImageCache(imgCacheSize,
+                Configuration.valueAsLong("xr.image.cache-weight", SharedImageCache.DEFAULT_MAX_WEIGHT));
     }
 
     /**
-     * If the image cache has more items than the limit specified for this class, the least-recently used will
-     * be dropped from cache until it reaches the desired size.
+     * @deprecated the image cache drops the least recently used images itself whenever it grows beyond its bounds
      */
+    @Deprecated
     public void shrinkImageCache() {
-        int ovr = _imageCache.size() - _imageCacheCapacity;
-        Iterator<String> it = _imageCache.keySet().iterator();
-        while (it.hasNext() && ovr-- > 0) {
-            it.next();
-            it.remove();
-        }
     }
 
     /**
-     * Empties the image cache entirely.
+     * Empties the image cache entirely. A shared cache is emptied for all user agents using it.
      */
     public void clearImageCache() {
-        _imageCache.clear();
+        _sharedImageCache.clear();
+    }
+
+    public SharedImageCache getImageCache() {
+        return _sharedImageCache;
+    }
+
+    /**
+     * Replaces the image cache of this user agent, e.g. with one shared by all user agents of the application.
+     */
+    public void setImageCache(SharedImageCache imageCache) {
+        _sharedImageCache = imageCache;
+    }
+
+    @Nullable
+    public HttpResourceCache getHttpCache() {
+        return _httpCache;
+    }
+
+    /**
+     * Keeps the CSS, images, fonts and other resources loaded over HTTP in the cache, or stops
+     * caching them if {@code null}. The cache can be shared by all user agents of the application.
+     */
+    public void setHttpCache(@Nullable HttpResourceCache httpCache) {
+        _httpCache = httpCache;
+    }
+
+    /**
+     * Starts fetching the images, stylesheets and fonts of the document on the executor, so that
+     * layout does not wait for them one after another. Call it after the base URL of the document
+     * has been set. Resources are fetched with {@link #openStream(String)}, and kept until they
+     * are requested or {@linkplain #discardPrefetchedResources() discarded}; a resource which could
+     * not be fetched is loaded again when it is requested. Images which are in the image cache
+     * already are not fetched.
+     *
+     * @return completes when all found resources have been fetched
+     */
+    public CompletableFuture<Void> prefetchResources(Document document, Executor executor) {
+        Map<String, CompletableFuture<byte @Nullable []>> prefetched = new ConcurrentHashMap<>();
+        _prefetched = prefetched;
+        ResourcePrefetcher prefetcher = new ResourcePrefetcher(executor, this::resolveURI,
+                uri -> _sharedImageCache.contains(uri, getImageCacheVariant()),
+                uri -> {
+                    CompletableFuture<byte @Nullable []> content = CompletableFuture.supplyAsync(() -> prefetch(uri), executor);
+                    prefetched.put(uri, content);
+                    return content;
+                });
+        return prefetcher.prefetch(document);
+    }
+
+    /**
+     * Drops the prefetched resources which have not been requested, e.g. images which turned out
+     * to be in the image cache or stylesheets which were parsed already. Call it when layout is
+     * done with the document; resources still being fetched are dropped when they arrive.
+     */
+    public void discardPrefetchedResources() {
+        _prefetched = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return tells apart the images decoded by this user agent from other decodings of the same
+     * image in a shared {@link SharedImageCache}
+     */
+    protected String getImageCacheVariant() {
+        return IMAGE_CACHE_VARIANT;
+    }
+
+    private byte @Nullable [] prefetch(String uri) {
+        try (InputStream is = openStream(uri)) {
+            return is.readAllBytes();
+        } catch (IOException e) {
+            XRLog.load(Level.FINE, "Could not prefetch " + uri + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the prefetched content, or {@code null} if prefetching failed and the resource has to be loaded again
+     */
+    private static byte @Nullable [] getPrefetched(String uri, CompletableFuture<byte @Nullable []> prefetched) {
+        try {
+            return prefetched.join();
+        } catch (CompletionException | CancellationException e) {
+            XRLog.load(Level.FINE, "Could not prefetch " + uri + ", loading it again: " + e);
+            return null;
+        }
     }
 
     /**
@@ -130,6 +232,13 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
     protected InputStream resolveAndOpenStream(@Nullable String uri) {
         String resolvedUri = resolveURI(uri);
         try {
+            if (resolvedUri != null) {
+                CompletableFuture<byte @Nullable []> prefetched = _prefetched.remove(resolvedUri);
+                byte[] content = prefetched == null ? null : getPrefetched(resolvedUri, prefetched);
+                if (content != null) {
+                    return new ByteArrayInputStream(content);
+                }
+            }
             return isEmbeddedBase64Font(uri) ? getEmbeddedBase64Data(uri) : openStream(resolvedUri);
         } catch (MalformedURLException e) {
             XRLog.exception("bad URL given: " + resolvedUri, e);
@@ -143,6 +252,22 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
 
     @CheckReturnValue
     protected InputStream openStream(String uri) throws IOException {
+        HttpResourceCache httpCache = _httpCache;
+        if (httpCache != null && HttpResourceCache.isCacheable(uri)) {
+            byte[] fresh = httpCache.getFresh(uri);
+            if (fresh != null) {
+                return new ByteArrayInputStream(fresh);
+            }
+            InputStream body = httpCache.open(uri, openConnection(uri));
+            if (body == null) {
+                // the response was dropped from the cache while it was revalidated, so this request has no validators
+                body = httpCache.open(uri, openConnection(uri));
+            }
+            if (body == null) {
+                throw new IOException("Not modified, but not cached either: " + uri);
+            }
+            return body;
+        }
         return openConnection(uri).getInputStream();
     }
 
@@ -160,6 +285,10 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
         URLConnection connection = new URL(uri).openConnection();
         connection.setRequestProperty("Accept", "*/*");
         if (connection instanceof HttpURLConnection) {
+            HttpResourceCache httpCache = _httpCache;
+            if (httpCache != null) {
+                httpCache.addValidators(uri, connection);
+            }
             connection = onHttpConnection((HttpURLConnection) connection);
         }
         return connection;
@@ -236,14 +365,15 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
             return createImageResource(null, loadEmbeddedBase64Image(imageLocation));
         }
 
-        final String unresolvedUri = imageLocation;
-        ImageResource cached = _imageCache.get(unresolvedUri);
-        if (cached != null) {
-            //TODO: check that cached image is still valid
-            return cached;
+        final String uri = resolveURI(imageLocation);
+        if (uri != null) {
+            ImageResource cached = _sharedImageCache.get(uri, getImageCacheVariant());
+            if (cached != null) {
+                //TODO: check that cached image is still valid
+                return cached;
+            }
         }
 
-        final String uri = resolveURI(imageLocation);
         try (InputStream is = resolveAndOpenStream(uri)) {
             if (is != null) {
                 BufferedImage img = ImageIO.read(is);
@@ -251,8 +381,7 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
                     throw new IOException("ImageIO.read() returned null for URI %s".formatted(uri));
                 }
                 ImageResource ir = createImageResource(uri, img);
-                _imageCache.put(unresolvedUri, ir);
-                return ir;
+                return uri == null ? ir : _sharedImageCache.put(uri, getImageCacheVariant(), ir, SharedImageCache.weightOf(img));
             }
         } catch (FileNotFoundException e) {
             XRLog.exception("Can't read image file; image at URI '%s' not found (caused by: %s)".formatted(uri, e));
@@ -411,16 +540,100 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
     }
 
     @Override
-    public void documentStarted() {
-        shrinkImageCache();
-    }
+    public void documentStarted() { /* ignore*/ }
 
     @Override
-    public void documentLoaded() { /* ignore*/ }
+    public void documentLoaded() {
+        discardPrefetchedResources();
+    }
 
     @Override
     public void onLayoutException(Throwable t) { /* ignore*/ }
 
     @Override
     public void onRenderException(Throwable t) { /* ignore*/ }
+
+    /**
+     * The images of {@link #_imageCache}, kept in the {@link SharedImageCache} of this user agent.
+     */
+    private final class ImageCacheView extends AbstractMap<String, ImageResource> {
+        @Override
+        @Nullable
+        public ImageResource get(Object key) {
+            String uri = resolve(key);
+            return uri == null ? null : _sharedImageCache.get(uri, getImageCacheVariant());
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        @Nullable
+        public ImageResource put(String key, ImageResource resource) {
+            String uri = resolve(key);
+            if (uri == null) {
+                return null;
+            }
+            long weight = resource.getImage() instanceof AWTFSImage image ? SharedImageCache.weightOf(image.getImage()) : 0;
+            return _sharedImageCache.replace(uri, getImageCacheVariant(), resource, weight);
+        }
+
+        @Override
+        @Nullable
+        public ImageResource remove(Object key) {
+            String uri = resolve(key);
+            return uri == null ? null : _sharedImageCache.remove(uri, getImageCacheVariant());
+        }
+
+        @Nullable
+        private String resolve(@Nullable Object key) {
+            return key instanceof String uri ? resolveURI(uri) : null;
+        }
+
+        @Override
+        public void clear() {
+            _sharedImageCache.clear();
+        }
+
+        @Override
+        public Set<Map.Entry<String, ImageResource>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<String, ImageResource>> iterator() {
+                    Iterator<Map.Entry<String, ImageResource>> images =
+                            _sharedImageCache.getImages(getImageCacheVariant()).entrySet().iterator();
+                    return new Iterator<>() {
+                        private Map.@Nullable Entry<String, ImageResource> _current;
+
+                        @Override
+                        public boolean hasNext() {
+                            return images.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<String, ImageResource> next() {
+                            _current = images.next();
+                            return _current;
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (_current == null) {
+                                throw new IllegalStateException();
+                            }
+                            _sharedImageCache.remove(_current.getKey(), getImageCacheVariant());
+                            _current = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return _sharedImageCache.getImages(getImageCacheVariant()).size();
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,168 @@
+package org.xhtmlrenderer.swing;
+
+import org.jspecify.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xhtmlrenderer.util.XRLog;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Finds the resources a document will load during layout and fetches them concurrently: the
+ * sources of images, linked stylesheets, and the stylesheets imported and fonts declared by
+ * {@code @font-face} rules in these stylesheets and in {@code style} elements.
+ * <p>
+ * The CSS is only scanned, not parsed, so some URLs might be missed or fetched in vain; layout
+ * loads whatever has not been prefetched as usual.
+ */
+final class ResourcePrefetcher {
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern IMPORT = Pattern.compile(
+            "@import\\s+(?:url\\(\\s*)?[\"']?([^\"')\\s;]+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FONT_FACE = Pattern.compile("@font-face\\s*\\{([^}]*)}", Pattern.CASE_INSENSITIVE);
+    private static final Pattern URL = Pattern.compile("url\\(\\s*[\"']?([^\"')\\s]+)", Pattern.CASE_INSENSITIVE);
+
+    private final Executor _executor;
+    private final Function<String, @Nullable String> _resolver;
+    private final Predicate<String> _cachedImage;
+    private final Fetcher _fetcher;
+
+    private final Set<String> _seen = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger _pending = new AtomicInteger(1);
+    private final CompletableFuture<Void> _done = new CompletableFuture<>();
+
+    /**
+     * @param resolver    resolves the URIs found in the document
+     * @param cachedImage tells whether the image at a resolved URI is cached, so it needs no fetching
+     * @param fetcher     starts fetching a resolved URI, and returns the future content
+     */
+    ResourcePrefetcher(Executor executor, Function<String, @Nullable String> resolver,
+                       Predicate<String> cachedImage, Fetcher fetcher) {
+        _executor = executor;
+        _resolver = resolver;
+        _cachedImage = cachedImage;
+        _fetcher = fetcher;
+    }
+
+    /**
+     * @return completes when all resources found so far, and everything they refer to, are fetched
+     */
+    CompletableFuture<Void> prefetch(Document document) {
+        try {
+            scan(document.getDocumentElement());
+        } finally {
+            finished();
+        }
+        return _done;
+    }
+
+    private void scan(Element element) {
+        String name = element.getLocalName() == null ? element.getTagName() : element.getLocalName();
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "img" -> {
+                String uri = _resolver.apply(element.getAttribute("src"));
+                if (uri != null && !_cachedImage.test(uri)) {
+                    fetch(uri, false);
+                }
+            }
+            case "link" -> {
+                if (element.getAttribute("rel").toLowerCase(Locale.ROOT).contains("stylesheet")) {
+                    fetch(_resolver.apply(element.getAttribute("href")), true);
+                }
+            }
+            case "style" -> scanCss(element.getTextContent(), null);
+            default -> {
+            }
+        }
+
+        NodeList children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child instanceof Element) {
+                scan((Element) child);
+            }
+        }
+    }
+
+    /**
+     * @param base the URI of the stylesheet, or {@code null} for a {@code style} element
+     */
+    private void scanCss(CharSequence css, @Nullable String base) {
+        String text = COMMENT.matcher(css).replaceAll("");
+        Matcher imports = IMPORT.matcher(text);
+        while (imports.find()) {
+            fetch(resolve(base, imports.group(1)), true);
+        }
+        Matcher fontFaces = FONT_FACE.matcher(text);
+        while (fontFaces.find()) {
+            Matcher urls = URL.matcher(fontFaces.group(1));
+            while (urls.find()) {
+                fetch(resolve(base, urls.group(1)), false);
+            }
+        }
+    }
+
+    @Nullable
+    private String resolve(@Nullable String base, String uri) {
+        if (base == null) {
+            return _resolver.apply(uri);
+        }
+        try {
+            return URI.create(base).resolve(uri).toString();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void fetch(@Nullable String uri, boolean stylesheet) {
+        if (uri == null || uri.isEmpty() || uri.startsWith("data:") || !_seen.add(uri)) {
+            return;
+        }
+        _pending.incrementAndGet();
+        CompletableFuture<byte @Nullable []> fetched;
+        try {
+            fetched = _fetcher.fetch(uri);
+        } catch (RuntimeException e) {
+            // e.g. the executor rejected the fetch
+            XRLog.load(Level.WARNING, "Could not prefetch " + uri + ": " + e);
+            finished();
+            return;
+        }
+        CompletableFuture<Void> unused = fetched.thenAcceptAsync(content -> {
+            if (stylesheet && content != null) {
+                scanCss(new String(content, UTF_8), uri);
+            }
+        }, _executor).whenComplete((ignored, e) -> {
+            if (e != null) {
+                XRLog.load(Level.WARNING, "Could not prefetch " + uri + ": " + e);
+            }
+            finished();
+        });
+    }
+
+    private void finished() {
+        if (_pending.decrementAndGet() == 0) {
+            _done.complete(null);
+        }
+    }
+
+    @FunctionalInterface
+    interface Fetcher {
+        CompletableFuture<byte @Nullable []> fetch(String uri);
+    }
+}
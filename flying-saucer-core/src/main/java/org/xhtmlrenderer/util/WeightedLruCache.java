@@ -0,0 +1,192 @@
+package org.xhtmlrenderer.util;
+
+import com.google.errorprone.annotations.CheckReturnValue;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe cache bounded both by number of entries and by total weight (usually the size
+ * of the cached values in bytes); least recently used entries are evicted first when a new entry
+ * makes the cache exceed either bound. A bound of zero caches nothing.
+ * <p>
+ * Lookups don't lock, insertions do. The cache counts hits, misses and evictions, so that the
+ * caches built on it, like {@link org.xhtmlrenderer.context.SharedStylesheetCache}, can report them.
+ */
+public class WeightedLruCache<K, V> {
+    private final String _name;
+    private final int _maxEntries;
+    private final long _maxWeight;
+
+    private final Map<K, Entry<V>> _entries = new ConcurrentHashMap<>();
+    private final AtomicLong _clock = new AtomicLong();
+    private final AtomicLong _weight = new AtomicLong();
+
+    private final AtomicLong _hits = new AtomicLong();
+    private final AtomicLong _misses = new AtomicLong();
+    private final AtomicLong _evictions = new AtomicLong();
+
+    /**
+     * @param name the name of the cache in {@link #toString()}
+     */
+    public WeightedLruCache(String name, int maxEntries, long maxWeight) {
+        if (maxEntries < 0 || maxWeight < 0) {
+            throw new IllegalArgumentException("Cache bounds must not be negative: " + maxEntries + ", " + maxWeight);
+        }
+        _name = name;
+        _maxEntries = maxEntries;
+        _maxWeight = maxWeight;
+    }
+
+    /**
+     * @return the cached value, or {@code null} on a cache miss
+     */
+    @CheckReturnValue
+    @Nullable
+    public V get(K key) {
+        Entry<V> entry = _entries.get(key);
+        if (entry == null) {
+            _misses.incrementAndGet();
+            return null;
+        }
+        _hits.incrementAndGet();
+        entry.lastAccess = _clock.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * @return whether a value is cached for the key; unlike {@link #get} this does not count as a hit or miss
+     */
+    @CheckReturnValue
+    public boolean containsKey(K key) {
+        return _entries.containsKey(key);
+    }
+
+    /**
+     * Caches a value, unless another thread has cached a value for the same key in the meantime.
+     * Values heavier than the whole cache are not cached.
+     *
+     * @return the value now in the cache, which is the given one unless another thread won
+     */
+    @CheckReturnValue
+    public V putIfAbsent(K key, V value, long weight) {
+        if (weight > _maxWeight || _maxEntries == 0) {
+            return value;
+        }
+        return put(key, new Entry<>(value, weight, _clock.incrementAndGet()));
+    }
+
+    /**
+     * Caches a value in place of the one cached for the same key, if any.
+     * Values heavier than the whole cache are not cached.
+     *
+     * @return the replaced value, or {@code null} if there was none
+     */
+    @Nullable
+    public synchronized V put(K key, V value, long weight) {
+        V previous = remove(key);
+        if (weight <= _maxWeight && _maxEntries > 0) {
+            _entries.put(key, new Entry<>(value, weight, _clock.incrementAndGet()));
+            _weight.addAndGet(weight);
+            evictIfNeeded();
+        }
+        return previous;
+    }
+
+    private synchronized V put(K key, Entry<V> created) {
+        Entry<V> existing = _entries.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing.value;
+        }
+        _weight.addAndGet(created.weight);
+        evictIfNeeded();
+        return created.value;
+    }
+
+    private void evictIfNeeded() {
+        while (_entries.size() > _maxEntries || _weight.get() > _maxWeight) {
+            Map.Entry<K, Entry<V>> eldest = null;
+            for (Map.Entry<K, Entry<V>> candidate : _entries.entrySet()) {
+                if (eldest == null || candidate.getValue().lastAccess < eldest.getValue().lastAccess) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (_entries.remove(eldest.getKey(), eldest.getValue())) {
+                _weight.addAndGet(-eldest.getValue().weight);
+                _evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return the removed value, or {@code null} if there was none
+     */
+    @Nullable
+    public synchronized V remove(K key) {
+        Entry<V> removed = _entries.remove(key);
+        if (removed == null) {
+            return null;
+        }
+        _weight.addAndGet(-removed.weight);
+        return removed.value;
+    }
+
+    public synchronized void clear() {
+        _entries.clear();
+        _weight.set(0);
+    }
+
+    /**
+     * @return a copy of the cached entries; taking it does not count as using them
+     */
+    public Map<K, V> snapshot() {
+        Map<K, V> result = new HashMap<>();
+        _entries.forEach((key, entry) -> result.put(key, entry.value));
+        return Collections.unmodifiableMap(result);
+    }
+
+    public int size() {
+        return _entries.size();
+    }
+
+    public long getWeight() {
+        return _weight.get();
+    }
+
+    public long getHitCount() {
+        return _hits.get();
+    }
+
+    public long getMissCount() {
+        return _misses.get();
+    }
+
+    public long getEvictionCount() {
+        return _evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "%s{size=%d, weight=%d, hits=%d, misses=%d, evictions=%d}".formatted(
+                _name, size(), getWeight(), getHitCount(), getMissCount(), getEvictionCount());
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long weight;
+        private volatile long lastAccess;
+
+        private Entry(V value, long weight, long lastAccess) {
+            this.value = value;
+            this.weight = weight;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
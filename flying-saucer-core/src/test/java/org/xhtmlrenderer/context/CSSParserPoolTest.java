@@ -0,0 +1,54 @@
+package org.xhtmlrenderer.context;
+
+import org.junit.jupiter.api.Test;
+import org.xhtmlrenderer.css.parser.CSSParser;
+import org.xhtmlrenderer.css.sheet.Ruleset;
+import org.xhtmlrenderer.css.sheet.Stylesheet;
+
+import java.io.StringReader;
+import java.nio.CharBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.xhtmlrenderer.css.sheet.StylesheetInfo.Origin.AUTHOR;
+
+class CSSParserPoolTest {
+    private static final String CSS = "@namespace svg url(http://www.w3.org/2000/svg);\n p { color: red }\n";
+
+    @Test
+    void reusesReleasedParsers() {
+        CSSParserPool pool = new CSSParserPool(2);
+
+        CSSParser parser = pool.get(false);
+        Stylesheet first = parser.parseStylesheet("a.css", AUTHOR, CSS);
+        pool.release(parser);
+
+        CSSParser reused = pool.get(false);
+        assertThat(reused).isSameAs(parser);
+        Stylesheet second = reused.parseStylesheet("b.css", AUTHOR, "div { margin: 1px } span { margin: 2px }");
+
+        assertThat(first.getContents()).hasSize(1);
+        assertThat(second.getContents()).hasSize(2);
+        assertThat(second.getURI()).isEqualTo("b.css");
+    }
+
+    @Test
+    void parsesAnyCharSequenceLikeReader() throws Exception {
+        String css = "div { background-image: url('something') }\n".repeat(1000);
+        CSSParser parser = new CSSParser((uri, message) -> {});
+
+        int expected = parser.parseStylesheet(null, AUTHOR, new StringReader(css)).getContents().size();
+
+        assertThat(expected).isEqualTo(1000);
+        assertThat(parser.parseStylesheet(null, AUTHOR, css).getContents()).hasSize(expected);
+        assertThat(parser.parseStylesheet(null, AUTHOR, CharBuffer.wrap(css)).getContents()).hasSize(expected);
+    }
+
+    @Test
+    void parsesDeclarationsFromCharSequence() {
+        CSSParser parser = new CSSParser((uri, message) -> {});
+
+        Ruleset ruleset = parser.parseDeclaration(AUTHOR, CharBuffer.wrap("padding:2px;text-align:right"));
+
+        assertThat(ruleset.getPropertyDeclarations()).hasSize(5);
+    }
+}
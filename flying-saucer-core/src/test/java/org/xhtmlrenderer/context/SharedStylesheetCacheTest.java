@@ -0,0 +1,97 @@
+package org.xhtmlrenderer.context;
+
+import org.junit.jupiter.api.Test;
+import org.xhtmlrenderer.css.sheet.Stylesheet;
+import org.xhtmlrenderer.css.sheet.StylesheetInfo;
+import org.xhtmlrenderer.swing.NaiveUserAgent;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.xhtmlrenderer.css.sheet.StylesheetInfo.Origin.AUTHOR;
+import static org.xhtmlrenderer.css.sheet.StylesheetInfo.Origin.USER_AGENT;
+
+class SharedStylesheetCacheTest {
+    private final AtomicInteger parsed = new AtomicInteger();
+
+    private Stylesheet parse(String uri) {
+        parsed.incrementAndGet();
+        return new Stylesheet(uri, AUTHOR);
+    }
+
+    @Test
+    void parsesEachDistinctStylesheetOnlyOnce() {
+        SharedStylesheetCache cache = new SharedStylesheetCache();
+
+        Stylesheet first = cache.get("https://a.css", AUTHOR, "digest1", 10, () -> parse("https://a.css"));
+        Stylesheet second = cache.get("https://a.css", AUTHOR, "digest1", 10, () -> parse("https://a.css"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(parsed).hasValue(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void changedContentOrOriginIsParsedAgain() {
+        SharedStylesheetCache cache = new SharedStylesheetCache();
+
+        Stylesheet first = cache.get("https://a.css", AUTHOR, "digest1", 10, () -> parse("https://a.css"));
+        Stylesheet changed = cache.get("https://a.css", AUTHOR, "digest2", 10, () -> parse("https://a.css"));
+        Stylesheet otherOrigin = cache.get("https://a.css", USER_AGENT, "digest1", 10, () -> parse("https://a.css"));
+
+        assertThat(changed).isNotSameAs(first);
+        assertThat(otherOrigin).isNotSameAs(first);
+        assertThat(parsed).hasValue(3);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntryWhenTooManyEntries() {
+        SharedStylesheetCache cache = new SharedStylesheetCache(2, 1000);
+
+        Stylesheet a = cache.get("a", AUTHOR, "x", 1, () -> parse("a"));
+        Stylesheet b = cache.get("b", AUTHOR, "x", 1, () -> parse("b"));
+        assertThat(cache.get("a", AUTHOR, "x", 1, () -> parse("a"))).isSameAs(a);
+        assertThat(cache.get("c", AUTHOR, "x", 1, () -> parse("c"))).isNotNull();
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+        assertThat(cache.get("a", AUTHOR, "x", 1, () -> parse("a"))).isSameAs(a);
+        assertThat(cache.get("b", AUTHOR, "x", 1, () -> parse("b"))).isNotSameAs(b);
+    }
+
+    @Test
+    void evictsByWeight() {
+        SharedStylesheetCache cache = new SharedStylesheetCache(100, 100);
+
+        assertThat(cache.get("a", AUTHOR, "x", 60, () -> parse("a"))).isNotNull();
+        assertThat(cache.get("b", AUTHOR, "x", 60, () -> parse("b"))).isNotNull();
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.getWeight()).isEqualTo(60);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+
+        assertThat(cache.get("huge", AUTHOR, "x", 101, () -> parse("huge"))).isNotNull();
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.getWeight()).isEqualTo(60);
+    }
+
+    @Test
+    void isSharedBetweenFactories() {
+        SharedStylesheetCache cache = new SharedStylesheetCache();
+        StylesheetInfo info = new StylesheetInfo(AUTHOR, "inline:1", List.of("all"), "p { color: red }");
+
+        StylesheetFactoryImpl factory1 = new StylesheetFactoryImpl(new NaiveUserAgent());
+        factory1.setSharedCache(cache);
+        StylesheetFactoryImpl factory2 = new StylesheetFactoryImpl(new NaiveUserAgent());
+        factory2.setSharedCache(cache);
+
+        Stylesheet sheet = factory1.getStylesheet(info);
+        assertThat(sheet).isNotNull();
+        assertThat(sheet.getContents()).hasSize(1);
+        assertThat(factory2.getStylesheet(info)).isSameAs(sheet);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+}
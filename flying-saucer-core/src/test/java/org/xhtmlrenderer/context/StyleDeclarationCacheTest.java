@@ -0,0 +1,80 @@
+package org.xhtmlrenderer.context;
+
+import org.junit.jupiter.api.Test;
+import org.xhtmlrenderer.css.sheet.Ruleset;
+import org.xhtmlrenderer.swing.NaiveUserAgent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.xhtmlrenderer.css.sheet.StylesheetInfo.Origin.AUTHOR;
+import static org.xhtmlrenderer.css.sheet.StylesheetInfo.Origin.USER;
+
+class StyleDeclarationCacheTest {
+    private final AtomicInteger parsed = new AtomicInteger();
+
+    private Ruleset parse() {
+        parsed.incrementAndGet();
+        return new Ruleset(AUTHOR);
+    }
+
+    @Test
+    void parsesEachDistinctDeclarationOnlyOnce() {
+        StyleDeclarationCache cache = new StyleDeclarationCache();
+
+        Ruleset first = cache.get(AUTHOR, false, "padding:2px;text-align:right", this::parse);
+        Ruleset second = cache.get(AUTHOR, false, "padding:2px;text-align:right", this::parse);
+
+        assertThat(second).isSameAs(first);
+        assertThat(parsed).hasValue(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void keyIncludesOriginAndCmykSupport() {
+        StyleDeclarationCache cache = new StyleDeclarationCache();
+
+        Ruleset author = cache.get(AUTHOR, false, "color: red", this::parse);
+        assertThat(cache.get(USER, false, "color: red", this::parse)).isNotSameAs(author);
+        assertThat(cache.get(AUTHOR, true, "color: red", this::parse)).isNotSameAs(author);
+        assertThat(parsed).hasValue(3);
+    }
+
+    @Test
+    void staysWithinMaximumSize() {
+        StyleDeclarationCache cache = new StyleDeclarationCache(100);
+
+        Ruleset used = cache.get(AUTHOR, false, "color: red", this::parse);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(cache.get(AUTHOR, false, "width: " + i + "px", this::parse)).isNotNull();
+            assertThat(cache.get(AUTHOR, false, "color: red", this::parse)).isSameAs(used);
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(100);
+        assertThat(cache.getEvictionCount()).isGreaterThan(0);
+    }
+
+    @Test
+    void canBeDisabled() {
+        StyleDeclarationCache cache = new StyleDeclarationCache(0);
+
+        Ruleset first = cache.get(AUTHOR, false, "color: red", this::parse);
+        assertThat(cache.get(AUTHOR, false, "color: red", this::parse)).isNotSameAs(first);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void factoriesShareParsedStyleAttributes() {
+        StyleDeclarationCache cache = new StyleDeclarationCache();
+        StylesheetFactoryImpl factory1 = new StylesheetFactoryImpl(new NaiveUserAgent());
+        factory1.setDeclarationCache(cache);
+        StylesheetFactoryImpl factory2 = new StylesheetFactoryImpl(new NaiveUserAgent());
+        factory2.setDeclarationCache(cache);
+
+        Ruleset ruleset = factory1.parseStyleDeclaration(AUTHOR, "padding:2px;text-align:right");
+
+        assertThat(ruleset.getPropertyDeclarations()).hasSize(5);
+        assertThat(factory2.parseStyleDeclaration(AUTHOR, "padding:2px;text-align:right")).isSameAs(ruleset);
+    }
+}
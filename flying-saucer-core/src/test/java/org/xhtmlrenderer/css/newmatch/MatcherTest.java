@@ -0,0 +1,168 @@
+package org.xhtmlrenderer.css.newmatch;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xhtmlrenderer.context.StandardAttributeResolver;
+import org.xhtmlrenderer.context.StylesheetFactoryImpl;
+import org.xhtmlrenderer.css.extend.lib.DOMTreeResolver;
+import org.xhtmlrenderer.css.parser.CSSParser;
+import org.xhtmlrenderer.css.sheet.Stylesheet;
+import org.xhtmlrenderer.css.style.CalculatedStyle;
+import org.xhtmlrenderer.css.style.EmptyStyle;
+import org.xhtmlrenderer.extend.UserInterface;
+import org.xhtmlrenderer.simple.extend.XhtmlNamespaceHandler;
+import org.xhtmlrenderer.swing.NaiveUserAgent;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.xhtmlrenderer.css.sheet.StylesheetInfo.Origin.AUTHOR;
+
+class MatcherTest {
+    private static final String CSS = """
+            * { margin: 1px }
+            p { color: red }
+            .note { color: blue }
+            p.note { color: green }
+            #main .note { color: yellow }
+            div > p { padding: 2px }
+            div p em { font-weight: bold }
+            .a.b { margin: 3px }
+            [title] { padding: 4px }
+            p:first-child { margin: 5px }
+            .note::before { content: "*" }
+            ul li + li { margin: 6px }
+            """;
+
+    private static final String HTML = """
+            <html><body>
+              <div id="main">
+                <p class="note">first <em>one</em></p>
+                <p>second</p>
+                <span class="note b a" title="t">third</span>
+                <p class="b  note">fourth <em>two</em></p>
+              </div>
+              <p class="note">outside</p>
+              <ul><li>x</li><li class="note">y</li></ul>
+            </body></html>
+            """;
+
+    private final UserInterface ui = new UserInterface() {
+        @Override
+        public boolean isHover(Element e) {
+            return false;
+        }
+
+        @Override
+        public boolean isActive(Element e) {
+            return false;
+        }
+
+        @Override
+        public boolean isFocus(Element e) {
+            return false;
+        }
+    };
+
+    @Test
+    void selectorIndexMatchesSameRulesAsLinearMatching() throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(HTML)));
+        Stylesheet sheet = new CSSParser((uri, message) -> {})
+                .parseStylesheet("test.css", AUTHOR, new StringReader(CSS));
+
+        Matcher indexed = matcher(sheet, true);
+        Matcher linear = matcher(sheet, false);
+
+        NodeList elements = doc.getElementsByTagName("*");
+        assertThat(elements.getLength()).isGreaterThan(10);
+        for (int i = 0; i < elements.getLength(); i++) {
+            Element e = (Element) elements.item(i);
+            assertThat(indexed.getCascadedStyle(e, false).getFingerprint())
+                    .as(e.getTagName() + "#" + i)
+                    .isEqualTo(linear.getCascadedStyle(e, false).getFingerprint());
+            assertThat(fingerprint(indexed.getPECascadedStyle(e, "before")))
+                    .isEqualTo(fingerprint(linear.getPECascadedStyle(e, "before")));
+        }
+    }
+
+    @Test
+    void matchersOnDifferentThreadsCanShareDomAndStylesheets() throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(HTML)));
+        Stylesheet sheet = new CSSParser((uri, message) -> {})
+                .parseStylesheet("test.css", AUTHOR, new StringReader(CSS));
+        NodeList elements = doc.getElementsByTagName("*");
+        List<String> expected = fingerprints(matcher(sheet, true), elements);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> fingerprints(matcher(sheet, true), elements)));
+            }
+            for (Future<List<String>> result : results) {
+                assertThat(result.get()).isEqualTo(expected);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void elementsWithSameRulesAndInlineStylesShareStyles() throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader("""
+                        <html><body>
+                          <h1>styles</h1><p class="note">a</p><p class="note">b</p>
+                          <p style="color: red">c</p><p style="color: red">d</p><p style="color: blue">e</p>
+                        </body></html>
+                        """)));
+        Stylesheet sheet = new CSSParser((uri, message) -> {})
+                .parseStylesheet("test.css", AUTHOR, new StringReader(CSS));
+        Matcher matcher = matcher(sheet, true);
+        NodeList paragraphs = doc.getElementsByTagName("p");
+        List<CascadedStyle> styles = new ArrayList<>();
+        for (int i = 0; i < paragraphs.getLength(); i++) {
+            styles.add(matcher.getCascadedStyle((Element) paragraphs.item(i), false));
+        }
+
+        assertThat(styles.get(1)).isSameAs(styles.get(0));
+        assertThat(styles.get(3)).isNotSameAs(styles.get(2));
+        assertThat(styles.get(3).getKey()).isEqualTo(styles.get(2).getKey());
+        assertThat(styles.get(4).getKey()).isNotEqualTo(styles.get(2).getKey());
+
+        CalculatedStyle parent = new EmptyStyle();
+        assertThat(parent.deriveStyle(styles.get(3))).isSameAs(parent.deriveStyle(styles.get(2)));
+        assertThat(parent.deriveStyle(styles.get(4))).isNotSameAs(parent.deriveStyle(styles.get(2)));
+        assertThat(parent.deriveStyle(styles.get(1))).isSameAs(parent.deriveStyle(styles.get(0)));
+    }
+
+    private static List<String> fingerprints(Matcher matcher, NodeList elements) {
+        List<String> result = new ArrayList<>(elements.getLength());
+        for (int i = 0; i < elements.getLength(); i++) {
+            result.add(matcher.getCascadedStyle((Element) elements.item(i), false).getFingerprint());
+        }
+        return result;
+    }
+
+    private Matcher matcher(Stylesheet sheet, boolean useSelectorIndex) {
+        XhtmlNamespaceHandler nsh = new XhtmlNamespaceHandler();
+        NaiveUserAgent userAgent = new NaiveUserAgent();
+        return new Matcher(new DOMTreeResolver(), new StandardAttributeResolver(nsh, userAgent, ui),
+                new StylesheetFactoryImpl(userAgent), List.of(sheet), "screen", useSelectorIndex);
+    }
+
+    private static String fingerprint(CascadedStyle style) {
+        return style == null ? null : style.getFingerprint();
+    }
+}
@@ -0,0 +1,74 @@
+package org.xhtmlrenderer.css.style;
+
+import org.junit.jupiter.api.Test;
+import org.xhtmlrenderer.css.constants.CSSName;
+import org.xhtmlrenderer.css.constants.IdentValue;
+import org.xhtmlrenderer.css.newmatch.CascadedStyle;
+import org.xhtmlrenderer.css.parser.CSSParser;
+import org.xhtmlrenderer.css.parser.FSRGBColor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.xhtmlrenderer.css.sheet.StylesheetInfo.Origin.AUTHOR;
+
+class CalculatedStyleTest {
+    private static CascadedStyle style(String declarations) {
+        return CascadedStyle.createLayoutStyle(new CSSParser((uri, message) -> {})
+                .parseDeclaration(AUTHOR, declarations).getPropertyDeclarations());
+    }
+
+    @Test
+    void inheritsValuesNotDeclaredByChildren() {
+        CalculatedStyle root = new EmptyStyle().deriveStyle(style("font-weight: bold; color: red; margin-top: 3px"));
+        CalculatedStyle child = root.deriveStyle(style("padding-left: 2px"));
+        CalculatedStyle grandchild = child.deriveStyle(style("color: blue; font-weight: normal"));
+
+        assertThat(child.getIdent(CSSName.FONT_WEIGHT)).isEqualTo(IdentValue.BOLD);
+        assertThat(child.asColor(CSSName.COLOR)).isEqualTo(new FSRGBColor(255, 0, 0));
+        assertThat(child.valueByName(CSSName.MARGIN_TOP)).isSameAs(CSSName.MARGIN_TOP.initialDerivedValue());
+        assertThat(child.valueByName(CSSName.BORDER_TOP_COLOR)).isSameAs(child.valueByName(CSSName.COLOR));
+
+        assertThat(grandchild.getIdent(CSSName.FONT_WEIGHT)).isEqualTo(IdentValue.NORMAL);
+        assertThat(grandchild.asColor(CSSName.COLOR)).isEqualTo(new FSRGBColor(0, 0, 255));
+        assertThat(grandchild.valueByName(CSSName.PADDING_LEFT)).isSameAs(CSSName.PADDING_LEFT.initialDerivedValue());
+
+        assertThat(child.getIdent(CSSName.FONT_WEIGHT)).isEqualTo(IdentValue.BOLD);
+        assertThat(root.asColor(CSSName.COLOR)).isEqualTo(new FSRGBColor(255, 0, 0));
+    }
+
+    @Test
+    void descendantsSeeDefaultValuesOfRootStyle() {
+        CalculatedStyle root = new EmptyStyle().deriveStyle(style("color: red"));
+        CalculatedStyle child = root.deriveStyle(style("margin-top: 1px"));
+        CalculatedStyle grandchild = child.deriveStyle(style("margin-top: 2px"));
+
+        root.setDefaultValue(CSSName.FONT_STYLE, IdentValue.ITALIC);
+
+        assertThat(grandchild.getIdent(CSSName.FONT_STYLE)).isEqualTo(IdentValue.ITALIC);
+        assertThat(child.getIdent(CSSName.FONT_STYLE)).isEqualTo(IdentValue.ITALIC);
+    }
+
+    @Test
+    void defaultValuesOfChildStylesDoNotChangeParentStyle() {
+        CalculatedStyle root = new EmptyStyle().deriveStyle(style("color: red"));
+        CalculatedStyle child = root.deriveStyle(style("margin-top: 1px"));
+        CalculatedStyle sibling = root.deriveStyle(style("margin-top: 2px"));
+
+        child.setDefaultValue(CSSName.FONT_STYLE, IdentValue.ITALIC);
+
+        assertThat(child.getIdent(CSSName.FONT_STYLE)).isEqualTo(IdentValue.ITALIC);
+        assertThat(sibling.getIdent(CSSName.FONT_STYLE)).isEqualTo(IdentValue.NORMAL);
+        assertThat(root.getIdent(CSSName.FONT_STYLE)).isEqualTo(IdentValue.NORMAL);
+    }
+
+    @Test
+    void explicitlyInheritedValuesAreTheParentValues() {
+        CalculatedStyle root = new EmptyStyle().deriveStyle(style("text-align: center; margin-left: 4px"));
+        CalculatedStyle child = root.deriveStyle(style("text-align: right; margin-left: 3px"));
+        CalculatedStyle inheriting = child.deriveStyle(style("text-align: inherit; margin-left: inherit"));
+        CalculatedStyle indented = child.deriveStyle(style("text-align: inherit; text-indent: 5px"));
+
+        assertThat(inheriting.getIdent(CSSName.TEXT_ALIGN)).isEqualTo(IdentValue.RIGHT);
+        assertThat(inheriting.valueByName(CSSName.MARGIN_LEFT)).isSameAs(child.valueByName(CSSName.MARGIN_LEFT));
+        assertThat(indented.getIdent(CSSName.TEXT_ALIGN)).isEqualTo(IdentValue.RIGHT);
+    }
+}
@@ -0,0 +1,42 @@
+package org.xhtmlrenderer.event;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.xhtmlrenderer.event.JfrRenderMetrics.COUNTER_EVENT;
+import static org.xhtmlrenderer.event.JfrRenderMetrics.PHASE_EVENT;
+
+class JfrRenderMetricsTest {
+    @Test
+    void recordsPhasesAndCountersAsEvents(@TempDir Path dir) throws IOException {
+        JfrRenderMetrics metrics = new JfrRenderMetrics();
+        Path file = dir.resolve("render.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PHASE_EVENT);
+            recording.enable(COUNTER_EVENT);
+            recording.start();
+            metrics.phaseFinished(RenderPhase.LAYOUT, 1_500_000);
+            metrics.counted(RenderCounter.PAGES, 3);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertThat(events).hasSize(2);
+        RecordedEvent phase = events.stream().filter(e -> e.getEventType().getName().equals(PHASE_EVENT)).findFirst().orElseThrow();
+        assertThat(phase.getString("phase")).isEqualTo("LAYOUT");
+        assertThat(phase.getDuration("elapsed")).isEqualTo(Duration.ofNanos(1_500_000));
+        RecordedEvent counter = events.stream().filter(e -> e.getEventType().getName().equals(COUNTER_EVENT)).findFirst().orElseThrow();
+        assertThat(counter.getString("counter")).isEqualTo("PAGES");
+        assertThat(counter.getLong("count")).isEqualTo(3);
+    }
+}
@@ -0,0 +1,51 @@
+package org.xhtmlrenderer.layout;
+
+import org.junit.jupiter.api.Test;
+import org.xhtmlrenderer.css.newmatch.CascadedStyle;
+
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PersistentStackTest {
+    @Test
+    void pushingAndPoppingLeavesTheOriginalStackAsItWas() {
+        PersistentStack<String> bottom = PersistentStack.<String>empty().push("a");
+        PersistentStack<String> top = bottom.push("b").push("c");
+
+        assertThat(top.peek()).isEqualTo("c");
+        assertThat(top.size()).isEqualTo(3);
+        assertThat(top.toList()).containsExactly("a", "b", "c");
+        assertThat(top.pop().pop()).isSameAs(bottom);
+        assertThat(bottom.toList()).containsExactly("a");
+        assertThat(bottom.pop().isEmpty()).isTrue();
+    }
+
+    @Test
+    void emptyStackHasNoTop() {
+        PersistentStack<String> empty = PersistentStack.empty();
+
+        assertThat(empty.toList()).isEmpty();
+        assertThatThrownBy(empty::peek).isInstanceOf(NoSuchElementException.class);
+        assertThatThrownBy(empty::pop).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void copiesOfStyleTrackersAreIndependent() {
+        CascadedStyle bold = CascadedStyle.emptyCascadedStyle;
+        StyleTracker tracker = new StyleTracker();
+        tracker.addStyle(bold);
+        StyleTracker copy = tracker.copyOf();
+
+        tracker.clearStyles();
+        copy.addStyle(bold);
+
+        assertThat(tracker.hasStyles()).isFalse();
+        assertThat(copy.getStyles()).containsExactly(bold, bold);
+        copy.removeLast();
+        copy.removeLast();
+        copy.removeLast();
+        assertThat(copy.hasStyles()).isFalse();
+    }
+}
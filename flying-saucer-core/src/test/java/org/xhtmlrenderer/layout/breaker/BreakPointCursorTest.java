@@ -0,0 +1,59 @@
+package org.xhtmlrenderer.layout.breaker;
+
+import org.junit.jupiter.api.Test;
+import org.xhtmlrenderer.css.style.EmptyStyle;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BreakPointCursorTest {
+    private static final String TEXT = "one two three four five";
+
+    @Test
+    void handsOutTheBreakPointsAfterEachLineStart() {
+        BreakPointCursor cursor = cursor(TEXT);
+
+        BreakPointsProvider firstLine = cursor.from(0);
+        assertThat(firstLine.next().getPosition()).isEqualTo(4);
+        assertThat(firstLine.next().getPosition()).isEqualTo(8);
+
+        assertThat(positions(cursor.from(4))).containsExactly(8, 14, 19, 23);
+    }
+
+    @Test
+    void breaksTheSameLineAgain() {
+        BreakPointCursor cursor = cursor(TEXT);
+        cursor.from(8).next();
+
+        assertThat(cursor.canResumeAt(8)).isTrue();
+        assertThat(positions(cursor.from(8))).containsExactly(14, 19, 23);
+        assertThat(cursor.canResumeAt(4)).isFalse();
+    }
+
+    @Test
+    void movesBreakPointsAfterAnInsertedHyphen() {
+        BreakPointCursor cursor = cursor(TEXT);
+        BreakPointsProvider firstLine = cursor.from(0);
+        firstLine.next();
+        firstLine.next();
+
+        cursor.insert(4, 1);
+
+        assertThat(positions(cursor.from(5))).containsExactly(9, 15, 20, 24);
+    }
+
+    private static BreakPointCursor cursor(String text) {
+        return new BreakPointCursor(new DefaultLineBreakingStrategy().getBreakPointsProvider(text, "en", new EmptyStyle()));
+    }
+
+    private static List<Integer> positions(BreakPointsProvider provider) {
+        List<Integer> result = new ArrayList<>();
+        for (BreakPoint bp = provider.next(); bp.getPosition() != BreakIterator.DONE; bp = provider.next()) {
+            result.add(bp.getPosition());
+        }
+        return result;
+    }
+}
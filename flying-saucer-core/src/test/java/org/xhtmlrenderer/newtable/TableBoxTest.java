@@ -0,0 +1,74 @@
+package org.xhtmlrenderer.newtable;
+
+import org.junit.jupiter.api.Test;
+import org.xhtmlrenderer.render.Box;
+import org.xhtmlrenderer.resource.XMLResource;
+import org.xhtmlrenderer.simple.Graphics2DRenderer;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TableBoxTest {
+    @Test
+    void sampledLayoutSizesColumnsFromTheFirstRows() {
+        int[] columns = columnPositions(table("none", false));
+        int[] withWideRow = columnPositions(table("none", true));
+        int[] sampledWithWideRow = columnPositions(table("20", true));
+
+        assertThat(withWideRow).isNotEqualTo(columns);
+        assertThat(sampledWithWideRow).isEqualTo(columns);
+    }
+
+    @Test
+    void sampledLayoutMeasuresHeaderAndSampleRowsOnly() {
+        TableBox table = layout(table("20", true));
+        TableSectionBox header = (TableSectionBox) table.getChild(0);
+        TableSectionBox body = (TableSectionBox) table.getChild(1);
+
+        assertThat(header.isHeader()).isTrue();
+        assertThat(header.cellAt(0, 0).getMaxWidth()).isPositive();
+        assertThat(body.cellAt(19, 0).getMaxWidth()).isPositive();
+        assertThat(body.cellAt(20, 0).getMaxWidth()).isZero();
+        assertThat(body.cellAt(150, 1).getMaxWidth()).isZero();
+        assertThat(body.cellAt(150, 1).getContentWidth()).isEqualTo(body.cellAt(0, 1).getContentWidth());
+    }
+
+    private static String table(String sample, boolean wideRow) {
+        StringBuilder html = new StringBuilder("<html xmlns=\"http://www.w3.org/1999/xhtml\"><head><style>" +
+                "table { -fs-table-layout-sample: " + sample + " }" +
+                "</style></head><body><table><thead><tr><th>Date</th><th>Description</th><th>Amount</th></tr></thead><tbody>");
+        for (int i = 0; i < 200; i++) {
+            html.append("<tr><td>2024-01-").append(i % 28 + 1).append("</td><td>");
+            html.append(wideRow && i == 150 ? "an_unusually_long_description_without_any_break" : "entry " + i);
+            html.append("</td><td>").append(i * 37).append(".00</td></tr>");
+        }
+        return html.append("</tbody></table></body></html>").toString();
+    }
+
+    private static int[] columnPositions(String html) {
+        return layout(html).getColumnPos();
+    }
+
+    private static TableBox layout(String html) {
+        Graphics2DRenderer renderer = new Graphics2DRenderer(XMLResource.load(html).getDocument(), "");
+        BufferedImage image = new BufferedImage(800, 1, TYPE_INT_ARGB);
+        renderer.layout(image.createGraphics(), new Dimension(800, 1000));
+        return findTable(renderer.getPanel().getRootBox());
+    }
+
+    private static TableBox findTable(Box box) {
+        if (box instanceof TableBox table) {
+            return table;
+        }
+        for (Box child : box.getChildren()) {
+            TableBox result = findTable(child);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+}
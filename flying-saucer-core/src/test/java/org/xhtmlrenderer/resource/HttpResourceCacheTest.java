@@ -0,0 +1,228 @@
+package org.xhtmlrenderer.resource;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xhtmlrenderer.swing.NaiveUserAgent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpResourceCacheTest {
+    @TempDir
+    Path directory;
+
+    private final TestClock clock = new TestClock();
+    private final Map<String, String> cacheControl = new ConcurrentHashMap<>();
+    private final Map<String, String> etags = new ConcurrentHashMap<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private volatile Runnable beforeNotModified = () -> {};
+    private HttpServer server;
+    private String base;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            requests.add(path + (ifNoneMatch == null ? "" : " " + ifNoneMatch));
+            exchange.getResponseHeaders().add("Cache-Control", cacheControl.getOrDefault(path, "max-age=60"));
+            String etag = etags.getOrDefault(path, "\"v1\"");
+            exchange.getResponseHeaders().add("ETag", etag);
+            if (etag.equals(ifNoneMatch)) {
+                beforeNotModified.run();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = ("body of " + path).getBytes(UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        base = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private byte[] fetch(HttpResourceCache cache, String path) {
+        NaiveUserAgent userAgent = new NaiveUserAgent();
+        userAgent.setHttpCache(cache);
+        return userAgent.getBinaryResource(base + path);
+    }
+
+    @Test
+    void servesFreshResponsesFromDiskAcrossRestarts() throws IOException {
+        HttpResourceCache cache = new HttpResourceCache(directory, 1000, clock);
+        assertThat(fetch(cache, "/style.css")).isEqualTo("body of /style.css".getBytes(UTF_8));
+        assertThat(fetch(cache, "/style.css")).isEqualTo("body of /style.css".getBytes(UTF_8));
+
+        HttpResourceCache restarted = new HttpResourceCache(directory, 1000, clock);
+        assertThat(fetch(restarted, "/style.css")).isEqualTo("body of /style.css".getBytes(UTF_8));
+
+        assertThat(requests).containsExactly("/style.css");
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(restarted.getHitCount()).isEqualTo(1);
+        assertThat(restarted.getWeight()).isEqualTo("body of /style.css".length());
+    }
+
+    @Test
+    void revalidatesStaleResponses() throws IOException {
+        HttpResourceCache cache = new HttpResourceCache(directory, 1000, clock);
+        assertThat(fetch(cache, "/font.ttf")).isNotNull();
+
+        clock.advanceSeconds(61);
+        assertThat(fetch(cache, "/font.ttf")).isEqualTo("body of /font.ttf".getBytes(UTF_8));
+        assertThat(fetch(cache, "/font.ttf")).isEqualTo("body of /font.ttf".getBytes(UTF_8));
+
+        assertThat(requests).containsExactly("/font.ttf", "/font.ttf \"v1\"");
+        assertThat(cache.getRevalidationCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void revalidatesNoCacheResponsesEveryTime() throws IOException {
+        cacheControl.put("/logo.png", "no-cache");
+        HttpResourceCache cache = new HttpResourceCache(directory, 1000, clock);
+
+        assertThat(fetch(cache, "/logo.png")).isNotNull();
+        assertThat(fetch(cache, "/logo.png")).isEqualTo("body of /logo.png".getBytes(UTF_8));
+
+        assertThat(requests).containsExactly("/logo.png", "/logo.png \"v1\"");
+        assertThat(cache.getRevalidationCount()).isEqualTo(1);
+    }
+
+    @Test
+    void requestsAgainWhenRevalidatedResponseIsNoLongerCached() throws IOException {
+        HttpResourceCache cache = new HttpResourceCache(directory, 1000, clock);
+        assertThat(fetch(cache, "/font.ttf")).isNotNull();
+
+        clock.advanceSeconds(61);
+        beforeNotModified = cache::clear;
+        assertThat(fetch(cache, "/font.ttf")).isEqualTo("body of /font.ttf".getBytes(UTF_8));
+
+        assertThat(requests).containsExactly("/font.ttf", "/font.ttf \"v1\"", "/font.ttf");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotStoreNoStoreResponses() throws IOException {
+        cacheControl.put("/report.css", "no-store");
+        HttpResourceCache cache = new HttpResourceCache(directory, 1000, clock);
+
+        assertThat(fetch(cache, "/report.css")).isNotNull();
+        assertThat(fetch(cache, "/report.css")).isNotNull();
+
+        assertThat(requests).containsExactly("/report.css", "/report.css");
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void revalidationOnlyUpdatesTheCachedHeaders() throws IOException {
+        HttpResourceCache cache = new HttpResourceCache(directory, 1000, clock);
+        assertThat(fetch(cache, "/font.ttf")).isNotNull();
+        Path body = cachedBody();
+        Files.setLastModifiedTime(body, FileTime.fromMillis(0));
+
+        clock.advanceSeconds(61);
+        assertThat(fetch(cache, "/font.ttf")).isEqualTo("body of /font.ttf".getBytes(UTF_8));
+        assertThat(Files.getLastModifiedTime(body).toMillis()).isZero();
+
+        HttpResourceCache restarted = new HttpResourceCache(directory, 1000, clock);
+        assertThat(fetch(restarted, "/font.ttf")).isEqualTo("body of /font.ttf".getBytes(UTF_8));
+        assertThat(requests).containsExactly("/font.ttf", "/font.ttf \"v1\"");
+        assertThat(restarted.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void deletesCachedResponseWhenServerSendsNoStore() throws IOException {
+        HttpResourceCache cache = new HttpResourceCache(directory, 1000, clock);
+        assertThat(fetch(cache, "/report.css")).isNotNull();
+
+        clock.advanceSeconds(61);
+        cacheControl.put("/report.css", "no-store");
+        etags.put("/report.css", "\"v2\"");
+        assertThat(fetch(cache, "/report.css")).isEqualTo("body of /report.css".getBytes(UTF_8));
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getWeight()).isZero();
+        assertThat(directory).isEmptyDirectory();
+    }
+
+    @Test
+    void deletesTemporaryFilesLeftBehind() throws IOException {
+        Path temp = Files.writeString(directory.resolve("abc.tmp"), "partial");
+
+        HttpResourceCache cache = new HttpResourceCache(directory, 1000, clock);
+
+        assertThat(cache.size()).isZero();
+        assertThat(temp).doesNotExist();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedResponsesBySize() throws IOException {
+        HttpResourceCache cache = new HttpResourceCache(directory, 20, clock);
+        assertThat(fetch(cache, "/a.css")).isNotNull();
+        assertThat(fetch(cache, "/b.css")).isNotNull();
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+        assertThat(new HttpResourceCache(directory, 20, clock).size()).isEqualTo(1);
+
+        assertThat(fetch(cache, "/b.css")).isNotNull();
+        assertThat(requests).containsExactly("/a.css", "/b.css");
+    }
+
+    private Path cachedBody() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".body")).findFirst().orElseThrow();
+        }
+    }
+
+    private static final class TestClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advanceSeconds(long seconds) {
+            now = now.plusSeconds(seconds);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
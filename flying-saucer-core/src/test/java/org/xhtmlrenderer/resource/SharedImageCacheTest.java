@@ -0,0 +1,64 @@
+package org.xhtmlrenderer.resource;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SharedImageCacheTest {
+    @Test
+    void returnsCachedImagePerUriAndVariant() {
+        SharedImageCache cache = new SharedImageCache();
+        ImageResource logo = new ImageResource("https://logo.png", null);
+
+        assertThat(cache.get("https://logo.png", "awt")).isNull();
+        assertThat(cache.put("https://logo.png", "awt", logo, 100)).isSameAs(logo);
+
+        assertThat(cache.get("https://logo.png", "awt")).isSameAs(logo);
+        assertThat(cache.get("https://logo.png", "pdf@20")).isNull();
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsFirstImageCachedByConcurrentLoads() {
+        SharedImageCache cache = new SharedImageCache();
+        ImageResource first = new ImageResource("a", null);
+
+        assertThat(cache.put("a", "awt", first, 10)).isSameAs(first);
+        assertThat(cache.put("a", "awt", new ImageResource("a", null), 10)).isSameAs(first);
+        assertThat(cache.getWeight()).isEqualTo(10);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedImagesByWeight() {
+        SharedImageCache cache = new SharedImageCache(100, 1000);
+        ImageResource a = cache.put("a", "awt", new ImageResource("a", null), 400);
+        assertThat(cache.put("b", "awt", new ImageResource("b", null), 400)).isNotNull();
+        assertThat(cache.get("a", "awt")).isSameAs(a);
+
+        assertThat(cache.put("c", "awt", new ImageResource("c", null), 400)).isNotNull();
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getWeight()).isEqualTo(800);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+        assertThat(cache.get("a", "awt")).isSameAs(a);
+        assertThat(cache.get("b", "awt")).isNull();
+    }
+
+    @Test
+    void doesNotCacheImagesHeavierThanTheCache() {
+        SharedImageCache cache = new SharedImageCache(100, 1000);
+
+        assertThat(cache.put("huge", "awt", new ImageResource("huge", null), 1001)).isNotNull();
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void weighsDecodedPixels() {
+        assertThat(SharedImageCache.weightOf(new BufferedImage(10, 20, BufferedImage.TYPE_INT_ARGB))).isEqualTo(800);
+        assertThat(SharedImageCache.weightOf(new BufferedImage(10, 20, BufferedImage.TYPE_BYTE_GRAY))).isEqualTo(200);
+    }
+}
@@ -3,8 +3,10 @@ package org.xhtmlrenderer.simple;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xhtmlrenderer.resource.XMLResource;
 
 import javax.imageio.ImageIO;
+import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -57,4 +59,39 @@ public class Graphics2DRendererTest {
         assertThat(image.getWidth()).isEqualTo(600);
         assertThat(image.getHeight()).isCloseTo(80, withPercentage(10));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void paintsClippedStripsLikeTheWholeDocument() {
+        StringBuilder html = new StringBuilder("<html xmlns=\"http://www.w3.org/1999/xhtml\"><head><style>" +
+                "div { border-bottom: 1px solid #ccc } span { float: right } " +
+                "p { margin-top: -30px; color: red } .relative { position: relative; top: -40px }" +
+                "</style></head><body>");
+        for (int i = 0; i < 500; i++) {
+            html.append("<div>entry ").append(i).append("<span>").append(i * 37).append("</span></div>");
+            if (i % 100 == 50) {
+                html.append("<p>negative margin</p><div class=\"relative\">relative</div>");
+            }
+        }
+        html.append("</body></html>");
+        Graphics2DRenderer renderer = new Graphics2DRenderer(XMLResource.load(html.toString()).getDocument(), "");
+        BufferedImage whole = new BufferedImage(400, 1, TYPE_INT_ARGB);
+        renderer.layout(whole.createGraphics(), new Dimension(400, 1000));
+        Rectangle size = renderer.getMinimumSize();
+
+        whole = new BufferedImage(size.width, size.height, TYPE_INT_ARGB);
+        renderer.render(whole.createGraphics());
+        BufferedImage strips = new BufferedImage(size.width, size.height, TYPE_INT_ARGB);
+        for (int y = 0; y < size.height; y += 97) {
+            Graphics2D g = strips.createGraphics();
+            g.setClip(0, y, size.width, 97);
+            renderer.render(g);
+            g.dispose();
+        }
+
+        assertThat(size.height).isGreaterThan(5000);
+        for (int y = 0; y < size.height; y++) {
+            assertThat(strips.getRGB(0, y, size.width, 1, null, 0, size.width)).as("row %s", y)
+                    .isEqualTo(whole.getRGB(0, y, size.width, 1, null, 0, size.width));
+        }
+    }
+}
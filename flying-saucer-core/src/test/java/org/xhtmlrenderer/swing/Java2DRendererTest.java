@@ -1,16 +1,24 @@
 package org.xhtmlrenderer.swing;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.xhtmlrenderer.event.InMemoryRenderMetrics;
+import org.xhtmlrenderer.event.RenderPhase;
+import org.xml.sax.InputSource;
 
 import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.Base64;
+import java.util.List;
 
 import static java.awt.Color.RED;
 import static java.awt.Color.WHITE;
@@ -19,6 +27,16 @@ import static java.awt.image.BufferedImage.TYPE_4BYTE_ABGR_PRE;
 import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
 import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.xhtmlrenderer.event.RenderCounter.BOXES;
+import static org.xhtmlrenderer.event.RenderCounter.ELEMENTS;
+import static org.xhtmlrenderer.event.RenderCounter.LINE_BOXES;
+import static org.xhtmlrenderer.event.RenderCounter.STYLESHEET_REQUESTS;
+import static org.xhtmlrenderer.event.RenderPhase.BOX_BUILDING;
+import static org.xhtmlrenderer.event.RenderPhase.CASCADE;
+import static org.xhtmlrenderer.event.RenderPhase.LAYOUT;
+import static org.xhtmlrenderer.event.RenderPhase.PAINT;
+import static org.xhtmlrenderer.event.RenderPhase.STYLESHEETS;
 
 class Java2DRendererTest {
   private static final Logger log = LoggerFactory.getLogger(Java2DRendererTest.class);
@@ -41,6 +59,25 @@ class Java2DRendererTest {
     assertEquals(WHITE.getRGB(), htmlAsImage.getRGB(25, 25));
   }
 
+  @Test
+  void reportsMetricsOfLayoutAndPainting() throws Exception {
+    Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(
+        "<html><head><style>p { color: red }</style></head><body><p>Hello</p><p>World</p></body></html>")));
+    InMemoryRenderMetrics metrics = new InMemoryRenderMetrics();
+    Java2DRenderer renderer = new Java2DRenderer(document, 100);
+    renderer.getSharedContext().setMetricsListener(metrics);
+
+    BufferedImage unused = renderer.getImage();
+
+    for (RenderPhase phase : List.of(STYLESHEETS, CASCADE, BOX_BUILDING, LAYOUT, PAINT)) {
+      assertTrue(metrics.getElapsedNanos(phase) > 0, phase::name);
+    }
+    assertEquals(5, metrics.getCount(ELEMENTS));
+    assertEquals(2, metrics.getCount(LINE_BOXES));
+    assertTrue(metrics.getCount(BOXES) > metrics.getCount(LINE_BOXES));
+    assertTrue(metrics.getCount(STYLESHEET_REQUESTS) > 0);
+  }
+
   private static BufferedImage create2PixelImage(int imageType) {
     BufferedImage img = new BufferedImage(2, 1, imageType);
     img.setRGB(0, 0, 0);
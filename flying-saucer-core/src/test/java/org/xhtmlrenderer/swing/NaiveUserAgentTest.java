@@ -1,8 +1,37 @@
 package org.xhtmlrenderer.swing;
 
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.xhtmlrenderer.resource.ImageResource;
+import org.xhtmlrenderer.resource.SharedImageCache;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 
 public class NaiveUserAgentTest {
     private static String resolve(String baseUri, String uri) {
@@ -63,4 +92,191 @@ public class NaiveUserAgentTest {
         assertThat(resolve("jar:file:/path/jarfile.jar!/foo/", "/other.xhtml")).isEqualTo("jar:file:/path/jarfile.jar!/other.xhtml");
     }
 
+    @Test
+    public void userAgentsShareDecodedImages() {
+        String image = requireNonNull(getClass().getResource("/transgrey.png")).toString();
+        SharedImageCache cache = new SharedImageCache();
+        NaiveUserAgent first = new NaiveUserAgent();
+        first.setImageCache(cache);
+        NaiveUserAgent second = new NaiveUserAgent();
+        second.setImageCache(cache);
+
+        ImageResource decoded = first.getImageResource(image);
+
+        assertThat(decoded.getImage()).isNotNull();
+        assertThat(second.getImageResource(image)).isSameAs(decoded);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getWeight()).isPositive();
+    }
+
+    @Test
+    public void imageCacheOfSizeZeroCachesNoImages() {
+        String image = requireNonNull(getClass().getResource("/transgrey.png")).toString();
+        NaiveUserAgent userAgent = new NaiveUserAgent(0);
+
+        ImageResource decoded = userAgent.getImageResource(image);
+
+        assertThat(decoded.getImage()).isNotNull();
+        assertThat(userAgent.getImageResource(image)).isNotSameAs(decoded);
+        assertThat(userAgent.getImageCache().size()).isZero();
+    }
+
+    @Test
+    public void imageCacheMapShowsTheCachedImages() {
+        String image = requireNonNull(getClass().getResource("/transgrey.png")).toString();
+        NaiveUserAgent userAgent = new NaiveUserAgent();
+
+        ImageResource decoded = userAgent.getImageResource(image);
+
+        assertThat(userAgent._imageCache).containsOnly(entry(decoded.getImageUri(), decoded));
+        assertThat(userAgent._imageCache.remove(decoded.getImageUri())).isSameAs(decoded);
+        assertThat(userAgent.getImageCache().size()).isZero();
+
+        userAgent._imageCache.put(decoded.getImageUri(), decoded);
+        assertThat(userAgent.getImageResource(image)).isSameAs(decoded);
+    }
+
+    @Test
+    public void imageCacheMapResolvesImageSources() {
+        String image = requireNonNull(getClass().getResource("/transgrey.png")).toString();
+        NaiveUserAgent userAgent = new NaiveUserAgent();
+        userAgent.setBaseURL(image);
+
+        ImageResource decoded = userAgent.getImageResource("transgrey.png");
+
+        assertThat(userAgent._imageCache.get("transgrey.png")).isSameAs(decoded);
+        assertThat(userAgent._imageCache.get(image)).isSameAs(decoded);
+        assertThat(userAgent._imageCache.remove("transgrey.png")).isSameAs(decoded);
+        assertThat(userAgent._imageCache).isEmpty();
+    }
+
+    @Test
+    public void prefetchesResourcesConcurrently() throws Exception {
+        byte[] image;
+        try (InputStream in = requireNonNull(getClass().getResourceAsStream("/transgrey.png"))) {
+            image = in.readAllBytes();
+        }
+        Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+        CountDownLatch imagesRequested = new CountDownLatch(3);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            requests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            byte[] body;
+            if (path.endsWith(".png")) {
+                imagesRequested.countDown();
+                try {
+                    // every image is only served when all of them are requested
+                    imagesRequested.await(10, SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                body = image;
+            } else if (path.equals("/css/main.css")) {
+                body = "@import url(\"print.css\"); /* @import \"ignored.css\"; */\n@font-face { font-family: Test; src: url(../fonts/test.ttf) }".getBytes(UTF_8);
+            } else {
+                body = path.getBytes(UTF_8);
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        ExecutorService serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.start();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            String base = "http://localhost:" + server.getAddress().getPort() + "/";
+            String html = "<html><head><link rel='stylesheet' href='css/main.css'/></head><body>" +
+                    "<img src='a.png'/><img src='b.png'/><img src='c.png'/><img src='a.png'/></body></html>";
+            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(new ByteArrayInputStream(html.getBytes(UTF_8)));
+            NaiveUserAgent userAgent = new NaiveUserAgent();
+            userAgent.setBaseURL(base);
+
+            userAgent.prefetchResources(document, executor).get(20, SECONDS);
+
+            assertThat(requests.keySet()).containsExactlyInAnyOrder(
+                    "/a.png", "/b.png", "/c.png", "/css/main.css", "/css/print.css", "/fonts/test.ttf");
+            assertThat(requests.values()).allMatch(count -> count.get() == 1);
+
+            assertThat(userAgent.getImageResource("b.png").getImage()).isNotNull();
+            assertThat(userAgent.getBinaryResource("fonts/test.ttf")).isEqualTo("/fonts/test.ttf".getBytes(UTF_8));
+            assertThat(userAgent.getCSSResource(base + "css/print.css")).isNotNull();
+            assertThat(requests.values()).allMatch(count -> count.get() == 1);
+        } finally {
+            executor.shutdownNow();
+            server.stop(0);
+            serverExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void prefetchSkipsCachedImagesAndDiscardsUnusedResources(@TempDir Path dir) throws Exception {
+        String cachedImage = requireNonNull(getClass().getResource("/transgrey.png")).toString();
+        Path copy = dir.resolve("copy.png");
+        try (InputStream in = requireNonNull(getClass().getResourceAsStream("/transgrey.png"))) {
+            Files.copy(in, copy);
+        }
+        String otherImage = copy.toUri().toString();
+        List<String> opened = Collections.synchronizedList(new ArrayList<>());
+        NaiveUserAgent userAgent = new NaiveUserAgent() {
+            @Override
+            protected InputStream openStream(String uri) throws IOException {
+                opened.add(uri);
+                return super.openStream(uri);
+            }
+        };
+        assertThat(userAgent.getImageResource(cachedImage).getImage()).isNotNull();
+        opened.clear();
+        String html = "<html><body><img src='" + cachedImage + "'/><img src='" + otherImage + "'/></body></html>";
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(html.getBytes(UTF_8)));
+
+        userAgent.prefetchResources(document, Runnable::run).get(20, SECONDS);
+        assertThat(opened).containsExactly(otherImage);
+
+        userAgent.discardPrefetchedResources();
+        assertThat(userAgent.getImageResource(otherImage).getImage()).isNotNull();
+        assertThat(opened).containsExactly(otherImage, otherImage);
+    }
+
+    @Test
+    public void prefetchCompletesWhenTheExecutorRejectsFetches() throws Exception {
+        String image = requireNonNull(getClass().getResource("/transgrey.png")).toString();
+        String html = "<html><body><img src='" + image + "'/></body></html>";
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(html.getBytes(UTF_8)));
+        NaiveUserAgent userAgent = new NaiveUserAgent();
+
+        userAgent.prefetchResources(document, command -> {
+            throw new RejectedExecutionException("shut down");
+        }).get(20, SECONDS);
+
+        assertThat(userAgent.getImageResource(image).getImage()).isNotNull();
+    }
+
+    @Test
+    public void loadsResourceAgainWhenPrefetchingFailed() throws Exception {
+        String image = requireNonNull(getClass().getResource("/transgrey.png")).toString();
+        String html = "<html><body><img src='" + image + "'/></body></html>";
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(html.getBytes(UTF_8)));
+        AtomicInteger opened = new AtomicInteger();
+        NaiveUserAgent userAgent = new NaiveUserAgent() {
+            @Override
+            protected InputStream openStream(String uri) throws IOException {
+                if (opened.incrementAndGet() == 1) {
+                    throw new IllegalStateException("prefetch fails");
+                }
+                return super.openStream(uri);
+            }
+        };
+
+        userAgent.prefetchResources(document, Runnable::run).get(20, SECONDS);
+
+        assertThat(userAgent.getBinaryResource(image)).isNotEmpty();
+        assertThat(opened).hasValue(2);
+    }
 }
@@ -0,0 +1,56 @@
+package org.xhtmlrenderer.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+class WeightedLruCacheTest {
+    @Test
+    void evictsLeastRecentlyUsedEntries() {
+        WeightedLruCache<String, String> cache = new WeightedLruCache<>("test", 2, 100);
+        assertThat(cache.putIfAbsent("a", "A", 10)).isEqualTo("A");
+        assertThat(cache.putIfAbsent("b", "B", 10)).isEqualTo("B");
+        assertThat(cache.get("a")).isEqualTo("A");
+
+        assertThat(cache.putIfAbsent("c", "C", 10)).isEqualTo("C");
+
+        assertThat(cache.snapshot()).containsOnlyKeys("a", "c");
+        assertThat(cache.getWeight()).isEqualTo(20);
+        assertThat(cache).hasToString("test{size=2, weight=20, hits=1, misses=0, evictions=1}");
+    }
+
+    @Test
+    void replacesEntries() {
+        WeightedLruCache<String, String> cache = new WeightedLruCache<>("test", 2, 100);
+        assertThat(cache.putIfAbsent("a", "A", 10)).isEqualTo("A");
+
+        assertThat(cache.put("a", "B", 30)).isEqualTo("A");
+
+        assertThat(cache.snapshot()).containsExactly(entry("a", "B"));
+        assertThat(cache.getWeight()).isEqualTo(30);
+    }
+
+    @Test
+    void removesEntries() {
+        WeightedLruCache<String, String> cache = new WeightedLruCache<>("test", 2, 100);
+        assertThat(cache.putIfAbsent("a", "A", 10)).isEqualTo("A");
+
+        assertThat(cache.remove("a")).isEqualTo("A");
+        assertThat(cache.remove("a")).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getWeight()).isZero();
+    }
+
+    @Test
+    void zeroBoundCachesNothing() {
+        WeightedLruCache<String, String> cache = new WeightedLruCache<>("test", 0, 100);
+
+        assertThat(cache.putIfAbsent("a", "A", 10)).isEqualTo("A");
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.getEvictionCount()).isZero();
+        assertThatThrownBy(() -> new WeightedLruCache<>("test", -1, 100)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -38,7 +38,14 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
+/**
+ * Splits an XML document into one DOM document per top-level element, the {@code head} element
+ * being copied into every one of them. The documents are either collected (see
+ * {@link #getDocuments()}) or handed to a consumer as soon as each one has been read, so that a
+ * long document can be processed one section at a time.
+ */
 public class DocumentSplitter implements ContentHandler {
     private static final String HEAD_ELEMENT_NAME = "head";
 
@@ -59,9 +66,25 @@ public class DocumentSplitter implements ContentHandler {
     private boolean _inDocument;
 
     private final List<Document> _documents = new LinkedList<>();
+    @Nullable
+    private final Consumer<Document> _documentHandler;
+    @Nullable
+    private Document _document;
 
     private boolean _replayedHead;
 
+    public DocumentSplitter() {
+        _documentHandler = null;
+    }
+
+    /**
+     * @param documentHandler receives every document as soon as it is complete; the documents are
+     *                        not collected by the splitter
+     */
+    public DocumentSplitter(Consumer<Document> documentHandler) {
+        _documentHandler = documentHandler;
+    }
+
     @Override
     public void characters(char[] ch, int start, int length) throws SAXException {
         if (_inHead) {
@@ -159,7 +182,10 @@ public class DocumentSplitter implements ContentHandler {
                         factory.setValidating(false);
 
                         Document doc = factory.newDocumentBuilder().newDocument();
-                        _documents.add(doc);
+                        if (_documentHandler == null) {
+                            _documents.add(doc);
+                        }
+                        _document = doc;
                         _handler =
                             ((SAXTransformerFactory) TransformerFactory.newInstance()).newTransformerHandler();
                         _handler.setResult(new DOMResult(doc));
@@ -204,6 +230,11 @@ public class DocumentSplitter implements ContentHandler {
                 _handler.endElement(uri, localName, qName);
                 _handler.endDocument();
                 _inDocument = false;
+                if (_documentHandler != null && _document != null) {
+                    Document doc = _document;
+                    _document = null;
+                    _documentHandler.accept(doc);
+                }
             } else {
                 _handler.endElement(uri, localName, qName);
             }
@@ -1,14 +1,24 @@
 package org.xhtmlrenderer.pdf;
 
 import com.lowagie.text.pdf.BaseFont;
+import org.jspecify.annotations.Nullable;
 import org.xhtmlrenderer.css.constants.IdentValue;
 
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
 public class FontDescription {
     private static final int DEFAULT_FONT_WEIGHT = 400;
     private final IdentValue _style;
-    private final BaseFont _font;
+    @Nullable
+    private volatile BaseFont _font;
+    @Nullable
+    private final Supplier<BaseFont> _fontLoader;
     private final Decorations _decorations;
     private final boolean _isFromFontFace;
+    @Nullable
+    private volatile GlyphAdvances _advances;
 
     public FontDescription(BaseFont font) {
         this(font, false);
@@ -28,13 +38,50 @@ public class FontDescription {
 
     public FontDescription(BaseFont font, boolean isFromFontFace, IdentValue style, Decorations decorations) {
         _font = font;
+        _fontLoader = null;
         _isFromFontFace = isFromFontFace;
         _style = style;
         _decorations = decorations;
     }
 
+    /**
+     * A description of a font which is only loaded when it's used for the first time
+     */
+    FontDescription(Supplier<BaseFont> fontLoader, IdentValue style, Decorations decorations) {
+        _fontLoader = fontLoader;
+        _isFromFontFace = false;
+        _style = style;
+        _decorations = decorations;
+    }
+
     public BaseFont getFont() {
-        return _font;
+        BaseFont font = _font;
+        if (font == null) {
+            synchronized (this) {
+                font = _font;
+                if (font == null) {
+                    font = requireNonNull(_fontLoader).get();
+                    _font = font;
+                }
+            }
+        }
+        return font;
+    }
+
+    /**
+     * Only for tests, which check that fonts registered from the font index are loaded lazily
+     */
+    boolean isLoaded() {
+        return _font != null;
+    }
+
+    GlyphAdvances getAdvances() {
+        GlyphAdvances advances = _advances;
+        if (advances == null) {
+            advances = new GlyphAdvances(getFont());
+            _advances = advances;
+        }
+        return advances;
     }
 
     public int getWeight() {
@@ -86,7 +133,7 @@ public class FontDescription {
 
     @Override
     public String toString() {
-        return String.format("Font %s:%s", _font.getPostscriptFontName(), getWeight());
+        return String.format("Font %s:%s", getFont().getPostscriptFontName(), getWeight());
     }
 
     public record Decorations(
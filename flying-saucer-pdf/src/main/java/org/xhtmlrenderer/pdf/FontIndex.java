@@ -0,0 +1,166 @@
+package org.xhtmlrenderer.pdf;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xhtmlrenderer.css.constants.IdentValue;
+import org.xhtmlrenderer.pdf.FontDescription.Decorations;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * The family names, style and decorations of font files, kept in a file so that a font can be
+ * registered without parsing it. An entry is only used as long as the size and the modification
+ * time of its font file don't change.
+ *
+ * @see ITextFontResolver#setFontIndex
+ */
+final class FontIndex {
+    private static final Logger log = LoggerFactory.getLogger(FontIndex.class);
+
+    private static final int MAGIC = 0x46534649;
+    private static final int VERSION = 1;
+
+    private final Path _file;
+    private final Map<String, Entry> _entries = new HashMap<>();
+    private boolean _modified;
+
+    FontIndex(Path file) {
+        _file = file;
+        try {
+            load();
+        } catch (NoSuchFileException e) {
+            log.debug("Font index {} does not exist yet", file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable font index {}", file, e);
+            _entries.clear();
+        }
+    }
+
+    /**
+     * @return the entry of the font, or {@code null} if the font has not been indexed or has
+     * changed since
+     */
+    @Nullable
+    Entry get(Path font) throws IOException {
+        Entry entry = _entries.get(font.toString());
+        if (entry != null
+                && entry.lastModified() == Files.getLastModifiedTime(font).toMillis()
+                && entry.size() == Files.size(font)) {
+            return entry;
+        }
+        return null;
+    }
+
+    void put(Path font, Collection<String> familyNames, FontDescription description) throws IOException {
+        Entry entry = new Entry(font.toString(), Files.getLastModifiedTime(font).toMillis(), Files.size(font),
+                List.copyOf(familyNames), description.getStyle(), new Decorations(
+                description.getWeight(), description.getYStrikeoutSize(), description.getYStrikeoutPosition(),
+                description.getUnderlinePosition(), description.getUnderlineThickness()));
+        _entries.put(entry.path(), entry);
+        _modified = true;
+    }
+
+    int size() {
+        return _entries.size();
+    }
+
+    /**
+     * Writes the index if it has changed. The file is replaced atomically, so that processes
+     * sharing it never read a partially written index.
+     */
+    void save() throws IOException {
+        if (!_modified) {
+            return;
+        }
+        Path parent = _file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, _file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                write(out);
+            }
+            Files.move(temp, _file, REPLACE_EXISTING, ATOMIC_MOVE);
+            _modified = false;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(_file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a font index of version " + VERSION);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Entry entry = read(in);
+                _entries.put(entry.path(), entry);
+            }
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (Entry entry : _entries.values()) {
+            // forget fonts which have been removed
+            if (Files.exists(Path.of(entry.path()))) {
+                entries.add(entry);
+            }
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+            out.writeUTF(entry.path());
+            out.writeLong(entry.lastModified());
+            out.writeLong(entry.size());
+            out.writeInt(entry.familyNames().size());
+            for (String familyName : entry.familyNames()) {
+                out.writeUTF(familyName);
+            }
+            out.writeUTF(entry.style().asString());
+            Decorations decorations = entry.decorations();
+            out.writeInt(decorations.weight());
+            out.writeFloat(decorations.yStrikeoutSize());
+            out.writeFloat(decorations.yStrikeoutPosition());
+            out.writeFloat(decorations.underlinePosition());
+            out.writeFloat(decorations.underlineThickness());
+        }
+    }
+
+    private static Entry read(DataInputStream in) throws IOException {
+        String path = in.readUTF();
+        long lastModified = in.readLong();
+        long size = in.readLong();
+        int familyCount = in.readInt();
+        List<String> familyNames = new ArrayList<>(familyCount);
+        for (int i = 0; i < familyCount; i++) {
+            familyNames.add(in.readUTF());
+        }
+        IdentValue style = IdentValue.getByIdentString(in.readUTF());
+        Decorations decorations = new Decorations(
+                in.readInt(), in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat());
+        return new Entry(path, lastModified, size, familyNames, style, decorations);
+    }
+
+    record Entry(String path, long lastModified, long size, List<String> familyNames,
+                 IdentValue style, Decorations decorations) {
+    }
+}
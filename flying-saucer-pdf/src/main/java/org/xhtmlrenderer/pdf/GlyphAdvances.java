@@ -0,0 +1,92 @@
+package org.xhtmlrenderer.pdf;
+
+import com.lowagie.text.pdf.BaseFont;
+import org.jspecify.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The advance widths of the BMP characters of one {@link BaseFont}, in glyph space units (1/1000 of
+ * the font size), so that the width of a string or a substring can be summed up from a table
+ * instead of asking the font for every measurement.
+ * <p>
+ * {@link BaseFont#getWidth(String)} sums the per-character widths, so the results are identical.
+ * The only exception are surrogate pairs, which some fonts measure as one code point; strings
+ * containing them are measured by the font itself.
+ * <p>
+ * The table is filled lazily in pages of 256 characters and can be shared by several threads.
+ */
+final class GlyphAdvances {
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final BaseFont _font;
+    private final AtomicReferenceArray<int[]> _pages = new AtomicReferenceArray<>(0x10000 >> PAGE_BITS);
+
+    GlyphAdvances(BaseFont font) {
+        _font = font;
+    }
+
+    /**
+     * @return the advance width of the character in glyph space units
+     */
+    int getAdvance(char c) {
+        int[] page = _pages.get(c >> PAGE_BITS);
+        if (page == null) {
+            page = loadPage(c >> PAGE_BITS);
+        }
+        return page[c & PAGE_MASK];
+    }
+
+    /**
+     * @return the width of {@code text.substring(start, end)} in glyph space units
+     */
+    int getWidth(CharSequence text, int start, int end) {
+        int total = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isSurrogate(c)) {
+                return _font.getWidth(text.subSequence(start, end).toString());
+            }
+            total += getAdvance(c);
+        }
+        return total;
+    }
+
+    /**
+     * @return the cumulative widths of the text in glyph space units, element {@code i} being the
+     * width of {@code text.substring(0, i)}, or {@code null} if the text contains surrogate pairs
+     */
+    int @Nullable [] getPrefixWidths(CharSequence text) {
+        int length = text.length();
+        int[] result = new int[length + 1];
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (Character.isSurrogate(c)) {
+                return null;
+            }
+            result[i + 1] = result[i] + getAdvance(c);
+        }
+        return result;
+    }
+
+    /**
+     * @return the width of {@code text.substring(start, end)} in points
+     */
+    float getWidthPoint(CharSequence text, int start, int end, float fontSize) {
+        return getWidth(text, start, end) * 0.001f * fontSize;
+    }
+
+    private int[] loadPage(int index) {
+        int[] page = new int[PAGE_SIZE];
+        int first = index << PAGE_BITS;
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            char c = (char) (first + i);
+            page[i] = Character.isSurrogate(c) ? 0 : _font.getWidth(c);
+        }
+        // Concurrent loads compute the same page, it does not matter which one wins
+        _pages.compareAndSet(index, null, page);
+        return _pages.get(index);
+    }
+}
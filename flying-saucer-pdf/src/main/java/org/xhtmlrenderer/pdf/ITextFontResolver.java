@@ -30,8 +30,10 @@ import org.xhtmlrenderer.css.sheet.FontFaceRule;
 import org.xhtmlrenderer.css.style.CalculatedStyle;
 import org.xhtmlrenderer.css.style.FSDerivedValue;
 import org.xhtmlrenderer.css.value.FontSpecification;
+import org.xhtmlrenderer.event.RenderCounter;
 import org.xhtmlrenderer.extend.FontResolver;
 import org.xhtmlrenderer.extend.UserAgentCallback;
+import org.xhtmlrenderer.layout.RenderMetrics;
 import org.xhtmlrenderer.layout.SharedContext;
 import org.xhtmlrenderer.render.FSFont;
 import org.xhtmlrenderer.util.IOUtil;
@@ -40,6 +42,7 @@ import org.xhtmlrenderer.util.XRLog;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collection;
@@ -72,7 +75,10 @@ public class ITextFontResolver implements FontResolver {
     private static final String TTC_COMMA = ".ttc,";
 
     private final Map<String, FontFamily> _fontFamilies = new HashMap<>();
-    private final Map<String, FontDescription> _fontCache = new ConcurrentHashMap<>();
+    private final Map<FontKey, FontDescription> _fontCache = new ConcurrentHashMap<>();
+    private final Map<ResolvedFontKey, ITextFSFont> _resolvedFonts = new ConcurrentHashMap<>();
+    @Nullable
+    private FontIndex _fontIndex;
 
     public Map<String, FontFamily> getFonts() {
         if (_fontFamilies.isEmpty()) {
@@ -111,7 +117,26 @@ public class ITextFontResolver implements FontResolver {
     @Nullable
     @Override
     public FSFont resolveFont(SharedContext renderingContext, FontSpecification spec) {
-        return resolveFont(spec.families, spec.size, spec.fontWeight, spec.fontStyle);
+        ResolvedFontKey key = new ResolvedFontKey(spec.families, spec.fontWeight, spec.fontStyle, spec.size);
+        ITextFSFont result = _resolvedFonts.get(key);
+        RenderMetrics metrics = renderingContext == null ? null : renderingContext.getMetrics();
+        if (metrics != null) {
+            metrics.increment(RenderCounter.FONT_REQUESTS);
+        }
+        if (result == null) {
+            if (metrics != null) {
+                metrics.increment(RenderCounter.FONTS_RESOLVED);
+            }
+            result = resolveFont(spec.families, spec.size, spec.fontWeight, spec.fontStyle);
+            if (result != null) {
+                // the array of the specification might change later
+                ResolvedFontKey copy = new ResolvedFontKey(
+                        spec.families == null ? null : spec.families.clone(), spec.fontWeight, spec.fontStyle, spec.size);
+                ITextFSFont existing = _resolvedFonts.putIfAbsent(copy, result);
+                return existing == null ? result : existing;
+            }
+        }
+        return result;
     }
 
     @Override
@@ -120,10 +145,12 @@ public class ITextFontResolver implements FontResolver {
             _fontFamilies.clear();
         }
         _fontCache.clear();
+        _resolvedFonts.clear();
     }
 
     public void flushFontFaceFonts() {
         _fontCache.clear();
+        _resolvedFonts.clear();
 
         for (Iterator<FontFamily> i = getFonts().values().iterator(); i.hasNext(); ) {
             FontFamily family = i.next();
@@ -192,14 +219,57 @@ public class ITextFontResolver implements FontResolver {
 
     /**
      * Add all fonts from given directory (all files with extension ".otf" and ".ttf")
+     * <p>
+     * If a {@linkplain #setFontIndex font index} is set, fonts found in the index are registered without parsing
+     * them; they are only loaded when they are used for the first time.
      */
     public void addFontDirectory(String dir, String encoding, boolean embedded) throws DocumentException, IOException {
         File f = new File(dir);
         if (!f.isDirectory()) {
             throw new IllegalArgumentException("%s is not a directory".formatted(dir));
         }
+        FontIndex index = _fontIndex;
         for (File file : filesWithExtensions(f, OTF, TTF)) {
-            addFont(file.getAbsolutePath(), encoding, embedded);
+            if (index == null) {
+                addFont(file.getAbsolutePath(), encoding, embedded);
+            } else {
+                addIndexedFont(index, file.getAbsoluteFile().toPath(), encoding, embedded);
+            }
+        }
+        if (index != null) {
+            index.save();
+        }
+    }
+
+    /**
+     * Keeps the family names, weights, styles and decorations of the fonts added by {@link #addFontDirectory} in the
+     * given file, which is created if it doesn't exist. When the fonts are added again, e.g. when the application is
+     * restarted, they don't need to be parsed up front. Entries are keyed by path and only used while the size and
+     * modification time of the font file are unchanged.
+     *
+     * @param indexFile the index file, or {@code null} to parse every font up front (the default)
+     */
+    public void setFontIndex(@Nullable Path indexFile) {
+        _fontIndex = indexFile == null ? null : new FontIndex(indexFile);
+    }
+
+    private void addIndexedFont(FontIndex index, Path file, String encoding, boolean embedded) throws IOException {
+        String path = file.toString();
+        FontIndex.Entry entry = index.get(file);
+        if (entry == null) {
+            BaseFont font = BaseFont.createFont(path, encoding, embedded);
+            Collection<String> familyNames = TrueTypeUtil.getFamilyNames(font);
+            FontDescription description = extractDescription(path, font, null);
+            index.put(file, familyNames, description);
+            for (String familyName : familyNames) {
+                getFontFamily(familyName).addFontDescription(description);
+            }
+        } else {
+            FontDescription description = new FontDescription(
+                    () -> createFont(path, encoding, embedded), entry.style(), entry.decorations());
+            for (String familyName : entry.familyNames()) {
+                getFontFamily(familyName).addFontDescription(description);
+            }
         }
     }
 
@@ -339,6 +409,8 @@ public class ITextFontResolver implements FontResolver {
     }
 
     private FontFamily getFontFamily(String fontFamilyName) {
+        // a font is about to be added, which may change how font specifications resolve
+        _resolvedFonts.clear();
         FontFamily fontFamily = getFonts().get(fontFamilyName);
         if (fontFamily == null) {
             fontFamily = new FontFamily(fontFamilyName);
@@ -348,14 +420,14 @@ public class ITextFontResolver implements FontResolver {
     }
 
     @Nullable
-    private FSFont resolveFont(String @Nullable [] families, float size, IdentValue weight, IdentValue style) {
+    private ITextFSFont resolveFont(String @Nullable [] families, float size, IdentValue weight, IdentValue style) {
         if (!(style == IdentValue.NORMAL || style == IdentValue.OBLIQUE
                 || style == IdentValue.ITALIC)) {
             style = IdentValue.NORMAL;
         }
         if (families != null) {
             for (String family : families) {
-                FSFont font = resolveFont(family, size, weight, style);
+                ITextFSFont font = resolveFont(family, size, weight, style);
                 if (font != null) {
                     log.debug("Resolved font {}:{}:{} -> {}", family, weight, style, font);
                     return font;
@@ -398,10 +470,10 @@ public class ITextFontResolver implements FontResolver {
     }
 
     @Nullable
-    private FSFont resolveFont(String fontFamily, float size, IdentValue weight, IdentValue style) {
+    private ITextFSFont resolveFont(String fontFamily, float size, IdentValue weight, IdentValue style) {
         String normalizedFontFamily = normalizeFontFamily(fontFamily);
 
-        String cacheKey = String.format("%s-%s-%s", normalizedFontFamily, weight, style);
+        FontKey cacheKey = new FontKey(normalizedFontFamily, weight, style);
         FontDescription result = _fontCache.get(cacheKey);
 
         if (result != null) {
@@ -539,4 +611,43 @@ public class ITextFontResolver implements FontResolver {
         result.put("ZapfDingbats", fontFamily);
     }
 
+    private record FontKey(String family, IdentValue weight, IdentValue style) {
+    }
+
+    /**
+     * The families, weight, style and size of a font specification. {@link IdentValue}s are singletons, so they are
+     * compared by identity.
+     */
+    private static final class ResolvedFontKey {
+        private final String @Nullable [] _families;
+        private final IdentValue _weight;
+        private final IdentValue _style;
+        private final int _sizeBits;
+        private final int _hash;
+
+        private ResolvedFontKey(String @Nullable [] families, IdentValue weight, IdentValue style, float size) {
+            _families = families;
+            _weight = weight;
+            _style = style;
+            _sizeBits = Float.floatToIntBits(size);
+            _hash = 31 * (31 * (31 * Arrays.hashCode(families) + System.identityHashCode(weight))
+                    + System.identityHashCode(style)) + _sizeBits;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ResolvedFontKey other
+                    && _hash == other._hash
+                    && _sizeBits == other._sizeBits
+                    && _weight == other._weight
+                    && _style == other._style
+                    && Arrays.equals(_families, other._families);
+        }
+
+        @Override
+        public int hashCode() {
+            return _hash;
+        }
+    }
+
 }
@@ -21,6 +21,7 @@ package org.xhtmlrenderer.pdf;
 
 import com.lowagie.text.DocumentException;
 import com.lowagie.text.Image;
+import com.lowagie.text.pdf.BaseFont;
 import com.lowagie.text.pdf.CMYKColor;
 import com.lowagie.text.pdf.PdfAction;
 import com.lowagie.text.pdf.PdfAnnotation;
@@ -75,6 +76,7 @@ import java.awt.geom.Line2D;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
@@ -86,6 +88,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
@@ -135,6 +138,36 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
     @Nullable
     private Area _clip;
 
+    /**
+     * Whether consecutive strings are shown in one text object, see {@link #drawString}
+     */
+    private boolean _batchText = Configuration.isTrue("xr.pdf.batch-text", true);
+
+    /**
+     * Whether characters missing from the font are replaced before strings are drawn
+     */
+    private boolean _replaceMissingCharacters = Configuration.isTrue("xr.renderer.replace-missing-characters", false);
+
+    /**
+     * Whether a text object is open on the current page. It is closed by {@link #endText()}
+     * before anything else is added to the page.
+     */
+    private boolean _inText;
+    /**
+     * The font and size set on the current page since the graphics state was last saved or restored
+     */
+    @Nullable
+    private BaseFont _textFont;
+    private float _textFontSize;
+    /**
+     * Whether the open text object strokes glyphs to emulate bold
+     */
+    private boolean _textStroked;
+    /**
+     * The line width set for stroking glyphs in the open text object, or NaN
+     */
+    private float _textLineWidth = Float.NaN;
+
     @Nullable
     private SharedContext _sharedContext;
     private final float _dotsPerPoint;
@@ -142,7 +175,10 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
     @Nullable
     private PdfWriter _writer;
 
-    private final Map<URI, PdfReader> _readerCache = new HashMap<>();
+    private final Map<URI, PdfReader> _readerCache;
+    @Nullable
+    private SharedPdfReaderCache _sharedReaderCache;
+    private final ImageDeduplicator _imageDeduplicator;
 
     @Nullable
     private PdfDestination _defaultDestination;
@@ -156,15 +192,97 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
 
     private int _startPageNo;
 
-    private int _nextFormFieldIndex;
+    private final AtomicInteger _nextFormFieldIndex;
 
     private final Set<String> _linkTargetAreas = new HashSet<>();
 
+    /**
+     * Guards everything that is shared through the {@link PdfWriter} (fonts, images, imported pages,
+     * page references) when pages are painted on several threads, see {@link #createPageDevice()}.
+     */
+    private final Object _writerLock;
+
+    /**
+     * Link annotations painted by a page device, added to the page by the writing thread
+     */
+    @Nullable
+    private final List<PdfAnnotation> _deferredAnnotations;
+
+    /**
+     * Form fields found by a page device, painted by the writing thread
+     */
+    @Nullable
+    private final List<DeferredReplacedElement> _deferredReplacedElements;
+
     public ITextOutputDevice(float dotsPerPoint) {
         _dotsPerPoint = dotsPerPoint;
+        _readerCache = new HashMap<>();
+        _imageDeduplicator = new ImageDeduplicator();
+        _nextFormFieldIndex = new AtomicInteger();
+        _writerLock = new Object();
+        _deferredAnnotations = null;
+        _deferredReplacedElements = null;
+    }
+
+    private ITextOutputDevice(ITextOutputDevice parent) {
+        _dotsPerPoint = parent._dotsPerPoint;
+        _sharedContext = parent._sharedContext;
+        _writer = parent._writer;
+        _root = parent._root;
+        _startPageNo = parent._startPageNo;
+        _defaultDestination = parent._defaultDestination;
+        _readerCache = parent._readerCache;
+        _sharedReaderCache = parent._sharedReaderCache;
+        _imageDeduplicator = parent._imageDeduplicator;
+        _nextFormFieldIndex = parent._nextFormFieldIndex;
+        _batchText = parent._batchText;
+        _replaceMissingCharacters = parent._replaceMissingCharacters;
+        _writerLock = parent._writerLock;
+        _deferredAnnotations = new ArrayList<>();
+        _deferredReplacedElements = new ArrayList<>();
+    }
+
+    /**
+     * Creates a device for painting one page into its own {@link com.lowagie.text.pdf.PdfTemplate}
+     * on another thread. Everything that has to be added to the page itself (link annotations and
+     * form fields) is kept until {@link #finishDeferred(RenderingContext)} is called by the thread
+     * writing the document, while the page is its current page.
+     */
+    ITextOutputDevice createPageDevice() {
+        return new ITextOutputDevice(this);
+    }
+
+    Object getWriterLock() {
+        return _writerLock;
+    }
+
+    /**
+     * Paints the form fields and adds the link annotations of a page painted by a page device.
+     * The page's template must not have been released yet.
+     */
+    void finishDeferred(RenderingContext c) {
+        if (_deferredReplacedElements != null) {
+            AffineTransform transform = _transform;
+            for (DeferredReplacedElement deferred : _deferredReplacedElements) {
+                _transform = deferred.transform();
+                ((ITextReplacedElement) deferred.box().getReplacedElement()).paint(c, this, deferred.box());
+            }
+            _transform = transform;
+            _deferredReplacedElements.clear();
+        }
+        if (_deferredAnnotations != null) {
+            for (PdfAnnotation annotation : _deferredAnnotations) {
+                _writer.addAnnotation(annotation);
+            }
+            _deferredAnnotations.clear();
+        }
     }
 
     public void setWriter(PdfWriter writer) {
+        if (writer != _writer) {
+            // images can only be shared within one writer
+            _imageDeduplicator.clear();
+        }
         _writer = writer;
     }
 
@@ -174,14 +292,24 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
     }
 
     public int getNextFormFieldIndex() {
-        return ++_nextFormFieldIndex;
+        return _nextFormFieldIndex.incrementAndGet();
+    }
+
+    /**
+     * @param batchText whether consecutive strings are shown in one text object (the default, unless
+     *                  {@code xr.pdf.batch-text} is false) or each string in a text object of its own
+     */
+    public void setBatchText(boolean batchText) {
+        _batchText = batchText;
     }
 
     public void initializePage(PdfContentByte currentPage, float height) {
         _currentPage = currentPage;
         _pageHeight = height;
+        _inText = false;
 
         _currentPage.saveState();
+        _textFont = null;
 
         _transform = new AffineTransform();
         _transform.scale(1.0d / _dotsPerPoint, 1.0d / _dotsPerPoint);
@@ -201,12 +329,20 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
     }
 
     public void finishPage() {
+        endText();
         _currentPage.restoreState();
+        _textFont = null;
     }
 
     @Override
     public void paintReplacedElement(RenderingContext c, BlockBox box) {
+        endText();
         ITextReplacedElement element = (ITextReplacedElement) box.getReplacedElement();
+        if (_deferredReplacedElements != null && !(element instanceof ITextImageElement || element instanceof BookmarkElement)) {
+            // form fields add their annotations directly to the current page of the writer
+            _deferredReplacedElements.add(new DeferredReplacedElement(box, (AffineTransform) _transform.clone()));
+            return;
+        }
         element.paint(c, this, box);
     }
 
@@ -276,9 +412,12 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
                         PdfDestination dest = createDestination(c, target);
 
                         if (dest != null) {
-                            PdfAction action = handler.getAttributeValue(elem, "onclick").isEmpty() ?
-                                    gotoDestination(dest) :
-                                    PdfAction.javaScript(handler.getAttributeValue(elem, "onclick"), _writer);
+                            PdfAction action;
+                            synchronized (_writerLock) {
+                                action = handler.getAttributeValue(elem, "onclick").isEmpty() ?
+                                        gotoDestination(dest) :
+                                        PdfAction.javaScript(handler.getAttributeValue(elem, "onclick"), _writer);
+                            }
 
                             checkLinkArea(c, box).ifPresent(targetArea -> {
                                 targetArea.setBorder(0);
@@ -313,7 +452,11 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
 
         annot.setBorderStyle(new PdfBorderDictionary(0.0f, 0));
         annot.setBorder(new PdfBorderArray(0.0f, 0.0f, 0));
-        _writer.addAnnotation(annot);
+        if (_deferredAnnotations != null) {
+            _deferredAnnotations.add(annot);
+        } else {
+            _writer.addAnnotation(annot);
+        }
     }
 
     public com.lowagie.text.Rectangle createLocalTargetArea(RenderingContext c, Box box) {
@@ -369,7 +512,9 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
             int distanceFromTop = page.getMarginBorderPadding(c, Edge.TOP);
             distanceFromTop += box.getAbsY() + box.getMargin(c).top() - page.getTop();
             result = new PdfDestination(PdfDestination.XYZ, 0, page.getHeight(c) / _dotsPerPoint - distanceFromTop / _dotsPerPoint, 0);
-            result.addPage(_writer.getPageReference(_startPageNo + page.getPageNo() + 1));
+            synchronized (_writerLock) {
+                result.addPage(_writer.getPageReference(_startPageNo + page.getPageNo() + 1));
+            }
         }
 
         return result;
@@ -494,59 +639,111 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
         return result;
     }
 
+    /**
+     * Shows the string in the text object of the page, which is kept open for the following
+     * strings until something else is painted. The font, text rendering mode and colors are only
+     * set when they differ from those of the previous string.
+     */
     public void drawString(String s, float x, float y, @Nullable JustificationInfo info) {
-        if (Configuration.isTrue("xr.renderer.replace-missing-characters", false)) {
+        if (_replaceMissingCharacters) {
             s = replaceMissingCharacters(s);
         }
         if (s.isEmpty())
             return;
         PdfContentByte cb = _currentPage;
         ensureFillColor();
-        AffineTransform at = (AffineTransform) getTransform().clone();
-        at.translate(x, y);
-        AffineTransform inverse = normalizeMatrix(at);
-        AffineTransform flipper = AffineTransform.getScaleInstance(1, -1);
-        inverse.concatenate(flipper);
-        inverse.scale(_dotsPerPoint, _dotsPerPoint);
-        double[] mx = new double[6];
-        inverse.getMatrix(mx);
-        cb.beginText();
-        // Check if bold or italic need to be emulated
-        boolean resetMode = false;
+        beginText();
         FontDescription desc = _font.getFontDescription();
         float fontSize = _font.getSize2D() / _dotsPerPoint;
-        cb.setFontAndSize(desc.getFont(), fontSize);
-        float b = (float) mx[1];
-        float c = (float) mx[2];
+        if (desc.getFont() != _textFont || fontSize != _textFontSize) {
+            synchronized (_writerLock) {
+                cb.setFontAndSize(desc.getFont(), fontSize);
+            }
+            _textFont = desc.getFont();
+            _textFontSize = fontSize;
+        }
+
+        // the transform translated to (x, y), flipped to PDF space and scaled to points
+        AffineTransform at = getTransform();
+        float a = (float) (at.getScaleX() * _dotsPerPoint);
+        float b = (float) (-at.getShearY() * _dotsPerPoint);
+        float c = (float) (-at.getShearX() * _dotsPerPoint);
+        float d = (float) (at.getScaleY() * _dotsPerPoint);
+        float e = (float) (x * at.getScaleX() + y * at.getShearX() + at.getTranslateX());
+        float f = (float) (_pageHeight - (x * at.getShearY() + y * at.getScaleY() + at.getTranslateY()));
+
+        // Check if bold or italic need to be emulated
+        boolean stroked = false;
         FontSpecification fontSpec = getFontSpecification();
         if (fontSpec != null) {
             int need = ITextFontResolver.convertWeightToInt(fontSpec.fontWeight);
             int have = desc.getWeight();
 
-            if (need > have) {
-                cb.setTextRenderingMode(PdfContentByte.TEXT_RENDER_MODE_FILL_STROKE);
-                float lineWidth = fontSize * 0.04f; // 4% of font size
-                cb.setLineWidth(lineWidth);
-                resetMode = true;
-                ensureStrokeColor();
-            }
+            stroked = need > have;
             if ((fontSpec.fontStyle == IdentValue.ITALIC) && (desc.getStyle() != IdentValue.ITALIC) && (desc.getStyle() != IdentValue.OBLIQUE)) {
                 b = 0f;
                 c = 0.21256f;
             }
         }
-        cb.setTextMatrix((float) mx[0], b, c, (float) mx[3], (float) mx[4], (float) mx[5]);
-        if (info == null) {
-            cb.showText(s);
-        } else {
-            PdfTextArray array = makeJustificationArray(s, info);
-            cb.showText(array);
+        setTextStroked(stroked, fontSize * 0.04f); // 4% of font size
+        cb.setTextMatrix(a, b, c, d, e, f);
+        PdfTextArray array = info == null ? null : makeJustificationArray(s, info);
+        synchronized (_writerLock) {
+            // encoding the text records the used glyphs in the font, which is shared
+            if (array == null) {
+                cb.showText(s);
+            } else {
+                cb.showText(array);
+            }
         }
-        if (resetMode) {
+        if (!_batchText) {
+            endText();
+            _textFont = null;
+        }
+    }
+
+    private void beginText() {
+        if (!_inText) {
+            _currentPage.beginText();
+            _inText = true;
+        }
+    }
+
+    private void setTextStroked(boolean stroked, float lineWidth) {
+        PdfContentByte cb = _currentPage;
+        if (stroked) {
+            if (!_textStroked) {
+                cb.setTextRenderingMode(PdfContentByte.TEXT_RENDER_MODE_FILL_STROKE);
+                _textStroked = true;
+            }
+            if (lineWidth != _textLineWidth) {
+                cb.setLineWidth(lineWidth);
+                _textLineWidth = lineWidth;
+            }
+            ensureStrokeColor();
+        } else if (_textStroked) {
             cb.setTextRenderingMode(PdfContentByte.TEXT_RENDER_MODE_FILL);
-            cb.setLineWidth(1);
+            _textStroked = false;
+        }
+    }
+
+    /**
+     * Closes the open text object, if any, resetting what was changed to emulate bold
+     */
+    private void endText() {
+        if (_inText) {
+            PdfContentByte cb = _currentPage;
+            if (_textStroked) {
+                cb.setTextRenderingMode(PdfContentByte.TEXT_RENDER_MODE_FILL);
+                _textStroked = false;
+            }
+            if (!Float.isNaN(_textLineWidth)) {
+                cb.setLineWidth(1);
+                _textLineWidth = Float.NaN;
+            }
+            cb.endText();
+            _inText = false;
         }
-        cb.endText();
     }
 
     private String replaceMissingCharacters(String string) {
@@ -612,11 +809,29 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
         }
     }
 
+    /**
+     * @return the current page, on which no text object is open, for adding content to it directly
+     */
     public PdfContentByte getCurrentPage() {
+        endText();
+        // the caller may save or restore the graphics state
+        _textFont = null;
         return _currentPage;
     }
 
+    private void appendRectangle(PdfContentByte cb, Rectangle2D rect) {
+        float[] coords = {
+                (float) rect.getMinX(), (float) rect.getMinY(),
+                (float) rect.getMaxX(), (float) rect.getMaxY()
+        };
+        _transform.transform(coords, 0, coords, 0, 2);
+        float x = Math.min(coords[0], coords[2]);
+        float y = normalizeY(Math.max(coords[1], coords[3]));
+        cb.rectangle(x, y, Math.abs(coords[2] - coords[0]), Math.abs(coords[3] - coords[1]));
+    }
+
     private void followPath(Shape s, int drawType) {
+        endText();
         PdfContentByte cb = _currentPage;
 
         if (drawType == STROKE) {
@@ -634,6 +849,20 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
             ensureFillColor();
         }
 
+        if (drawType != CLIP && s instanceof Rectangle2D rect
+                && _transform.getShearX() == 0 && _transform.getShearY() == 0) {
+            if (rect.getWidth() >= 0 && rect.getHeight() >= 0) {
+                // a single "re" instead of a move, four lines and a close
+                appendRectangle(cb, rect);
+                if (drawType == FILL) {
+                    cb.fill();
+                } else {
+                    cb.stroke();
+                }
+            }
+            return;
+        }
+
         PathIterator points;
         if (drawType == CLIP) {
             points = s.getPathIterator(IDENTITY);
@@ -819,9 +1048,11 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
 
     @Override
     public void setClip(Shape s) {
+        endText();
         PdfContentByte cb = _currentPage;
         cb.restoreState();
         cb.saveState();
+        _textFont = null;
         if (s != null)
             s = _transform.createTransformedShape(s);
         if (s == null) {
@@ -863,8 +1094,11 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
             double[] mx = new double[6];
             inverse.getMatrix(mx);
 
+            endText();
             try {
-                _currentPage.addImage(image, (float) mx[0], (float) mx[1], (float) mx[2], (float) mx[3], (float) mx[4], (float) mx[5]);
+                synchronized (_writerLock) {
+                    _currentPage.addImage(_imageDeduplicator.deduplicate(image), (float) mx[0], (float) mx[1], (float) mx[2], (float) mx[3], (float) mx[4], (float) mx[5]);
+                }
             } catch (DocumentException e) {
                 throw new XRRuntimeException(e.getMessage(), e);
             }
@@ -872,46 +1106,88 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
     }
 
     private void drawPDFAsImage(PDFAsImage image, int x, int y) {
-        URI uri = image.getURI();
-        PdfReader reader;
+        // imported pages and readers are shared by all pages
+        synchronized (_writerLock) {
+            URI uri = image.getURI();
+            PdfReader reader;
 
-        try {
-            reader = getReader(uri);
-        } catch (IOException e) {
-            throw new XRRuntimeException("Could not load " + uri + ": " + e.getMessage(), e);
-        }
+            try {
+                reader = getReader(uri);
+            } catch (IOException e) {
+                throw new XRRuntimeException("Could not load " + uri + ": " + e.getMessage(), e);
+            }
 
-        PdfImportedPage page = getWriter().getImportedPage(reader, 1);
+            PdfImportedPage page = getWriter().getImportedPage(reader, 1);
 
-        AffineTransform at = AffineTransform.getTranslateInstance(x, y);
-        at.translate(0, image.getHeightAsFloat());
-        at.scale(image.getWidthAsFloat(), image.getHeightAsFloat());
+            AffineTransform at = AffineTransform.getTranslateInstance(x, y);
+            at.translate(0, image.getHeightAsFloat());
+            at.scale(image.getWidthAsFloat(), image.getHeightAsFloat());
 
-        AffineTransform inverse = normalizeMatrix(_transform);
-        AffineTransform flipper = AffineTransform.getScaleInstance(1, -1);
-        inverse.concatenate(at);
-        inverse.concatenate(flipper);
+            AffineTransform inverse = normalizeMatrix(_transform);
+            AffineTransform flipper = AffineTransform.getScaleInstance(1, -1);
+            inverse.concatenate(at);
+            inverse.concatenate(flipper);
 
-        double[] mx = new double[6];
-        inverse.getMatrix(mx);
+            double[] mx = new double[6];
+            inverse.getMatrix(mx);
 
-        mx[0] = image.scaleWidth();
-        mx[3] = image.scaleHeight();
+            mx[0] = image.scaleWidth();
+            mx[3] = image.scaleHeight();
 
-        _currentPage.restoreState();
-        _currentPage.addTemplate(page, (float) mx[0], (float) mx[1], (float) mx[2], (float) mx[3], (float) mx[4], (float) mx[5]);
-        _currentPage.saveState();
+            endText();
+            _currentPage.restoreState();
+            _currentPage.addTemplate(page, (float) mx[0], (float) mx[1], (float) mx[2], (float) mx[3], (float) mx[4], (float) mx[5]);
+            _currentPage.saveState();
+            _textFont = null;
+        }
     }
 
     public PdfReader getReader(URI uri) throws IOException {
         PdfReader result = _readerCache.get(uri);
         if (result == null) {
-            result = new PdfReader(getSharedContext().getUserAgentCallback().getBinaryResource(uri.toString()));
+            byte[] content = getSharedContext().getUserAgentCallback().getBinaryResource(uri.toString());
+            if (content == null) {
+                throw new IOException("Could not load " + uri);
+            }
+            SharedPdfReaderCache sharedCache = _sharedReaderCache;
+            result = sharedCache == null ? new PdfReader(content) : sharedCache.get(uri, content);
             _readerCache.put(uri, result);
         }
         return result;
     }
 
+    /**
+     * Shares the parsed PDF documents which are embedded as images with other renderers. The
+     * writer imports each page of a reader only once, so every page drawing the same document
+     * refers to the same form XObject.
+     *
+     * @param readerCache the cache, or {@code null} (the default) to parse the documents for every
+     *                    output document
+     */
+    public void setReaderCache(@Nullable SharedPdfReaderCache readerCache) {
+        _sharedReaderCache = readerCache;
+    }
+
+    /**
+     * @return the number of images which have been written as an image with the same content
+     * drawn before, instead of as a new image XObject
+     */
+    public int getDuplicateImageCount() {
+        synchronized (_writerLock) {
+            return _imageDeduplicator.getDuplicateCount();
+        }
+    }
+
+    /**
+     * @return the size of the image data which has not been written because the same image had
+     * been drawn before
+     */
+    public long getImageBytesSaved() {
+        synchronized (_writerLock) {
+            return _imageDeduplicator.getBytesSaved();
+        }
+    }
+
     public float getDotsPerPoint() {
         return _dotsPerPoint;
     }
@@ -925,6 +1201,10 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
         writeOutline(c, root);
         writeNamedDestinations(c);
         _bookmarks.clear();
+        if (getDuplicateImageCount() > 0) {
+            XRLog.render(Level.FINE, "Wrote " + getDuplicateImageCount() + " duplicate images once, saving "
+                    + getImageBytesSaved() + " bytes");
+        }
     }
 
     private void writeOutline(RenderingContext c, Box root) {
@@ -1236,7 +1516,7 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
         sharedContext.getCss().setSupportCMYKColors(true);
     }
 
-    public void setRoot(Box root) {
+    public void setRoot(@Nullable Box root) {
         _root = root;
     }
 
@@ -1300,4 +1580,7 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
                 y / _dotsPerPoint, box.getHeight() / _dotsPerPoint
         );
     }
+
+    private record DeferredReplacedElement(BlockBox box, AffineTransform transform) {
+    }
 }
@@ -21,6 +21,7 @@ package org.xhtmlrenderer.pdf;
 
 import com.lowagie.text.DocumentException;
 import com.lowagie.text.pdf.PdfPageEvent;
+import com.lowagie.text.pdf.PdfTemplate;
 import com.lowagie.text.pdf.PdfWriter;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
@@ -29,6 +30,9 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.xhtmlrenderer.css.style.CalculatedStyle.Edge;
 import org.xhtmlrenderer.css.style.derived.RectPropertySet;
+import org.xhtmlrenderer.event.RenderCounter;
+import org.xhtmlrenderer.event.RenderMetricsListener;
+import org.xhtmlrenderer.event.RenderPhase;
 import org.xhtmlrenderer.extend.FontResolver;
 import org.xhtmlrenderer.extend.NamespaceHandler;
 import org.xhtmlrenderer.extend.ReplacedElementFactory;
@@ -37,15 +41,21 @@ import org.xhtmlrenderer.extend.UserInterface;
 import org.xhtmlrenderer.layout.BoxBuilder;
 import org.xhtmlrenderer.layout.Layer;
 import org.xhtmlrenderer.layout.LayoutContext;
+import org.xhtmlrenderer.layout.RenderMetrics;
 import org.xhtmlrenderer.layout.SharedContext;
 import org.xhtmlrenderer.render.BlockBox;
 import org.xhtmlrenderer.render.PageBox;
 import org.xhtmlrenderer.render.RenderingContext;
 import org.xhtmlrenderer.render.ViewportBox;
+import org.xhtmlrenderer.resource.FSEntityResolver;
 import org.xhtmlrenderer.resource.XMLResource;
 import org.xhtmlrenderer.simple.extend.XhtmlNamespaceHandler;
+import org.xhtmlrenderer.swing.NaiveUserAgent;
 import org.xhtmlrenderer.util.Configuration;
+import org.xhtmlrenderer.util.XRRuntimeException;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
@@ -62,8 +72,14 @@ import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -120,6 +136,12 @@ public class ITextRenderer {
     @Nullable
     private PDFCreationListener _listener;
 
+    @Nullable
+    private Executor _paintingExecutor;
+
+    @Nullable
+    private Executor _prefetchExecutor;
+
     public ITextRenderer(File file) throws IOException {
         this();
         File parent = file.getAbsoluteFile().getParentFile();
@@ -185,7 +207,10 @@ public class ITextRenderer {
     }
 
     private Document loadDocument(final String uri) {
-        return _sharedContext.getUac().getXMLResource(uri).getDocument();
+        long start = System.nanoTime();
+        Document result = _sharedContext.getUac().getXMLResource(uri).getDocument();
+        addTime(RenderPhase.XML_PARSE, start);
+        return result;
     }
 
     public static ITextRenderer fromUrl(String uri) {
@@ -221,8 +246,11 @@ public class ITextRenderer {
     }
 
     private Document parse(String content) {
+        long start = System.nanoTime();
         try (var is = new StringReader(content)) {
             return XMLResource.load(new InputSource(is)).getDocument();
+        } finally {
+            addTime(RenderPhase.XML_PARSE, start);
         }
     }
 
@@ -239,6 +267,9 @@ public class ITextRenderer {
             _sharedContext.getCss().flushAllStyleSheets();
         }
         _sharedContext.setBaseURL(url);
+        if (_prefetchExecutor != null && _sharedContext.getUac() instanceof NaiveUserAgent userAgent) {
+            CompletableFuture<Void> unused = userAgent.prefetchResources(doc, _prefetchExecutor);
+        }
         _sharedContext.setNamespaceHandler(nsh);
         _sharedContext.getCss().setDocumentContext(_sharedContext, _sharedContext.getNamespaceHandler(), doc, new NullUserInterface());
         getFontResolver().importFontFaces(_sharedContext.getCss().getFontFaceRules(), _sharedContext.getUac());
@@ -275,6 +306,7 @@ public class ITextRenderer {
     }
 
     public void layout() {
+        long start = System.nanoTime();
         LayoutContext c = newLayoutContext();
         BlockBox root = BoxBuilder.createRootBox(c, _doc);
         root.setContainingBlock(new ViewportBox(getInitialExtents(c)));
@@ -283,6 +315,32 @@ public class ITextRenderer {
         root.getLayer().trimEmptyPages(_dim.height);
         root.getLayer().layoutPages(c);
         _root = root;
+        if (_sharedContext.getUac() instanceof NaiveUserAgent userAgent) {
+            userAgent.discardPrefetchedResources();
+        }
+
+        RenderMetrics metrics = _sharedContext.getMetrics();
+        if (metrics != null) {
+            metrics.addTime(RenderPhase.LAYOUT, start);
+            metrics.countBoxes(root);
+            metrics.add(RenderCounter.PAGES, root.getLayer().getPages().size());
+            metrics.flush();
+        }
+    }
+
+    private void addTime(RenderPhase phase, long start) {
+        RenderMetrics metrics = _sharedContext.getMetrics();
+        if (metrics != null) {
+            metrics.addTime(phase, start);
+        }
+    }
+
+    private void flushMetrics(RenderPhase phase, long start) {
+        RenderMetrics metrics = _sharedContext.getMetrics();
+        if (metrics != null) {
+            metrics.addTime(phase, start);
+            metrics.flush();
+        }
     }
 
     private Rectangle getInitialExtents(LayoutContext c) {
@@ -331,6 +389,7 @@ public class ITextRenderer {
     }
 
     public void writeNextDocument(int initialPageNo) {
+        long start = System.nanoTime();
         List<PageBox> pages = _root.getLayer().getPages();
 
         RenderingContext c = newRenderingContext(initialPageNo);
@@ -345,15 +404,65 @@ public class ITextRenderer {
         _pdfDoc.newPage();
 
         writePDF(pages, c, firstPageSize, _pdfDoc, _writer);
+        flushMetrics(RenderPhase.PDF_WRITE, start);
     }
 
     public void finishPDF() {
         if (_pdfDoc != null) {
+            long start = System.nanoTime();
             fireOnClose();
             _pdfDoc.close();
+            flushMetrics(RenderPhase.PDF_WRITE, start);
         }
     }
 
+    /**
+     * Writes a long document one section at a time, so that only one section is held in memory.
+     * Every top-level element of the document other than {@code head} is a section. A section is
+     * read, laid out, written to the PDF and released before the next one is read; the
+     * {@code head} is copied into every section.
+     * <p>
+     * Each section is a page sequence of its own: page numbers restart, {@code counter(pages)}
+     * counts the pages of the section, and links can't point into other sections.
+     *
+     * @throws XRRuntimeException if the document can't be read, has no sections or a section
+     *                            exceeds the {@linkplain #setPageLimit page limit}
+     */
+    public void createPDFInSections(InputSource source, @Nullable String url, OutputStream os) {
+        AtomicInteger sections = new AtomicInteger();
+        XMLReader reader = XMLResource.newXMLReader();
+        reader.setEntityResolver(FSEntityResolver.instance());
+        reader.setContentHandler(new DocumentSplitter(
+                section -> writeSection(section, url, os, sections.getAndIncrement() == 0)));
+        try {
+            reader.setFeature("http://xml.org/sax/features/namespaces", true);
+            reader.parse(source);
+        } catch (IOException | SAXException e) {
+            throw new XRRuntimeException("Can't read the document. " + e.getMessage(), e);
+        }
+
+        if (sections.get() == 0) {
+            throw new XRRuntimeException("The document has no sections to write");
+        }
+        finishPDF();
+    }
+
+    private void writeSection(Document section, @Nullable String url, OutputStream os, boolean first) {
+        setDocument(section, url);
+        layout();
+        if (first) {
+            createPDF(os, false);
+        } else {
+            writeNextDocument();
+        }
+
+        // the pages are in the writer now, the boxes can go
+        _doc = null;
+        _root = null;
+        _outputDevice.setRoot(null);
+        _sharedContext.reset();
+    }
+
     public void createPDF(OutputStream os, boolean finish) throws DocumentException {
         createPDF(os, finish, 0);
     }
@@ -363,6 +472,7 @@ public class ITextRenderer {
      * something goes wrong.
      */
     public void createPDF(OutputStream os, boolean finish, int initialPageNo) throws DocumentException {
+        long start = System.nanoTime();
         List<PageBox> pages = _root.getLayer().getPages();
 
         RenderingContext c = newRenderingContext(initialPageNo);
@@ -405,6 +515,7 @@ public class ITextRenderer {
             fireOnClose();
             doc.close();
         }
+        flushMetrics(RenderPhase.PDF_WRITE, start);
     }
 
     private void firePreOpen() {
@@ -440,6 +551,16 @@ public class ITextRenderer {
         c.setPageCount(pageCount);
         firePreWrite(pageCount); // opportunity to adjust meta data
         setDidValues(doc); // set PDF header fields from meta data
+
+        if (_paintingExecutor != null && pageCount > 1 && !_root.getLayer().containsFixedContent()
+                && !_root.getLayer().containsRepeatedTableSections()) {
+            // the page devices need the default destination set up by initializePage()
+            _outputDevice.finishPage();
+            writePagesConcurrently(pages, c, doc, writer, _paintingExecutor);
+            _outputDevice.finish(c, _root);
+            return;
+        }
+
         for (int i = 0; i < pageCount; i++) {
 
             if (Thread.currentThread().isInterrupted()) {
@@ -448,14 +569,12 @@ public class ITextRenderer {
 
             PageBox currentPage = pages.get(i);
             c.setPage(i, currentPage);
-            paintPage(c, writer, currentPage);
+            provideMetadataToPage(writer, currentPage);
+            paintPage(c, currentPage, _outputDevice);
             _outputDevice.finishPage();
             if (i != pageCount - 1) {
                 PageBox nextPage = pages.get(i + 1);
-                int pageWidth = calculateWidth(c, nextPage);
-                com.lowagie.text.Rectangle nextPageSize =
-                        new com.lowagie.text.Rectangle(0, 0, pageWidth / _dotsPerPoint,
-                                nextPage.getHeight(c) / _dotsPerPoint);
+                com.lowagie.text.Rectangle nextPageSize = getPageSize(c, nextPage);
                 doc.setPageSize(nextPageSize);
                 doc.newPage();
                 _outputDevice.initializePage(writer.getDirectContent(), nextPageSize.getHeight());
@@ -465,6 +584,98 @@ public class ITextRenderer {
         _outputDevice.finish(c, _root);
     }
 
+    private com.lowagie.text.Rectangle getPageSize(RenderingContext c, PageBox page) {
+        int pageWidth = calculateWidth(c, page);
+        return new com.lowagie.text.Rectangle(0, 0, pageWidth / _dotsPerPoint, page.getHeight(c) / _dotsPerPoint);
+    }
+
+    /**
+     * Paints the pages into one {@link PdfTemplate} per page on the painting executor, and adds the
+     * templates to the document in page order. Only a few pages are painted ahead of the page being
+     * written, which bounds the memory used.
+     * <p>
+     * All access to the writer goes through the lock of the output device. Form fields use the
+     * writer directly, so they are painted by this thread when their page is written.
+     */
+    private void writePagesConcurrently(List<PageBox> pages, RenderingContext c,
+            com.lowagie.text.Document doc, PdfWriter writer, Executor executor) {
+        int pageCount = pages.size();
+        int ahead = pagesPaintedAhead();
+        Deque<CompletableFuture<PaintedPage>> painting = new ArrayDeque<>(ahead);
+        int submitted = 0;
+        try {
+            for (int i = 0; i < pageCount; i++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new RuntimeException("Timeout occurred");
+                }
+
+                while (submitted < pageCount && submitted <= i + ahead) {
+                    int pageNo = submitted++;
+                    PageBox page = pages.get(pageNo);
+                    com.lowagie.text.Rectangle pageSize = getPageSize(c, page);
+                    painting.add(CompletableFuture.supplyAsync(
+                            () -> paintPageTemplate(c, pageNo, page, pageSize, writer), executor));
+                }
+
+                PaintedPage painted = join(painting.remove());
+                synchronized (_outputDevice.getWriterLock()) {
+                    if (i > 0) {
+                        doc.setPageSize(painted.pageSize());
+                        doc.newPage();
+                    }
+                    provideMetadataToPage(writer, pages.get(i));
+                    painted.device().finishDeferred(painted.context());
+                    writer.getDirectContent().addTemplate(painted.template(), 0, 0);
+                    writer.releaseTemplate(painted.template());
+                }
+            }
+        } catch (IOException e) {
+            throw new XRRuntimeException("Failed to write page: " + e.getMessage(), e);
+        } finally {
+            painting.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private PaintedPage paintPageTemplate(RenderingContext parent, int pageNo, PageBox page,
+            com.lowagie.text.Rectangle pageSize, PdfWriter writer) {
+        ITextOutputDevice device = _outputDevice.createPageDevice();
+        PdfTemplate template;
+        synchronized (device.getWriterLock()) {
+            template = writer.getDirectContent().createTemplate(pageSize.getWidth(), pageSize.getHeight());
+        }
+
+        ITextFontContext fontContext = new ITextFontContext();
+        _sharedContext.getTextRenderer().setup(fontContext);
+        RenderingContext c = _sharedContext.newRenderingContextInstance(
+                device, fontContext, _root.getLayer(), parent.getInitialPageNo());
+        c.setPageCount(parent.getPageCount());
+        c.setPage(pageNo, page);
+
+        device.initializePage(template, pageSize.getHeight());
+        paintPage(c, page, device);
+        device.finishPage();
+        return new PaintedPage(template, pageSize, device, c);
+    }
+
+    private static PaintedPage join(CompletableFuture<PaintedPage> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static int pagesPaintedAhead() {
+        return Configuration.valueAsInt("xr.pdf.pages-painted-ahead", 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    private record PaintedPage(PdfTemplate template, com.lowagie.text.Rectangle pageSize,
+                               ITextOutputDevice device, RenderingContext context) {
+    }
+
     // Sets the document information dictionary values from html metadata
     private void setDidValues(com.lowagie.text.Document doc) {
         String v = _outputDevice.getMetadataByName("title");
@@ -485,31 +696,31 @@ public class ITextRenderer {
         }
     }
 
-    private void paintPage(RenderingContext c, PdfWriter writer, PageBox page) {
-        provideMetadataToPage(writer, page);
-
+    private void paintPage(RenderingContext c, PageBox page, ITextOutputDevice outputDevice) {
+        long start = System.nanoTime();
         page.paintBackground(c, 0, PAGED_MODE_PRINT);
         page.paintMarginAreas(c, 0, PAGED_MODE_PRINT);
         page.paintBorder(c, 0, PAGED_MODE_PRINT);
 
-        Shape working = _outputDevice.getClip();
+        Shape working = outputDevice.getClip();
 
         Rectangle content = page.getPrintClippingBounds(c);
         if (isScaleToFit()) {
             int pageWidth = calculateWidth(c, page);
             content.setSize(pageWidth, (int) content.getSize().getHeight());//RTD - to change
         }
-        _outputDevice.clip(content);
+        outputDevice.clip(content);
 
         int top = -page.getPaintingTop() + page.getMarginBorderPadding(c, Edge.TOP);
 
         int left = page.getMarginBorderPadding(c, Edge.LEFT);
 
-        _outputDevice.translate(left, top);
+        outputDevice.translate(left, top);
         _root.getLayer().paint(c);
-        _outputDevice.translate(-left, -top);
+        outputDevice.translate(-left, -top);
 
-        _outputDevice.setClip(working);
+        outputDevice.setClip(working);
+        addTime(RenderPhase.PAINT, start);
     }
 
     private void provideMetadataToPage(PdfWriter writer, PageBox page) {
@@ -636,6 +847,17 @@ public class ITextRenderer {
         _listener = listener;
     }
 
+    /**
+     * Reports the time spent in parsing, styling, laying out, painting and writing documents, and
+     * counts of what has been rendered.
+     *
+     * @param listener the listener, or {@code null} (the default) to collect no metrics
+     * @see SharedContext#setMetricsListener
+     */
+    public void setMetricsListener(@Nullable RenderMetricsListener listener) {
+        _sharedContext.setMetricsListener(listener);
+    }
+
     @Nullable
     public PdfWriter getWriter() {
         return _writer;
@@ -650,6 +872,51 @@ public class ITextRenderer {
         this.pdfPageEvent = pdfPageEvent;
     }
 
+    /**
+     * Paints pages concurrently on the given executor when writing the PDF. The pages are painted
+     * into independent content streams and written in page order, so the result looks the same, but
+     * each page's content is wrapped in a form XObject. Documents with fixed positioned content or
+     * with paginated tables that repeat their header or footer are always painted by the writing
+     * thread.
+     * <p>
+     * At most {@code xr.pdf.pages-painted-ahead} pages (twice the number of processors by default)
+     * are painted ahead of the page being written.
+     *
+     * @param paintingExecutor the executor to paint pages on, or {@code null} (the default) to
+     *                         paint all pages on the writing thread
+     */
+    public void setPaintingExecutor(@Nullable Executor paintingExecutor) {
+        _paintingExecutor = paintingExecutor;
+    }
+
+    /**
+     * Fetches the images, stylesheets and fonts of a document concurrently on the given executor
+     * as soon as the document is set, so that loading its stylesheets and laying it out don't wait
+     * for one resource after another. Only has an effect with a {@link NaiveUserAgent} (like the
+     * default {@link ITextUserAgent}).
+     *
+     * @param prefetchExecutor the executor to fetch resources on, e.g. a bounded thread pool, or
+     *                         {@code null} (the default) to load every resource when it is needed
+     * @see NaiveUserAgent#prefetchResources
+     */
+    public void setResourcePrefetchExecutor(@Nullable Executor prefetchExecutor) {
+        _prefetchExecutor = prefetchExecutor;
+    }
+
+    /**
+     * Limits the number of pages the layout of a document, or of one section of
+     * {@link #createPDFInSections}, may produce. The pages of a document are kept in memory until
+     * they are written, so the limit bounds the memory of a render: it fails as soon as its layout
+     * needs more pages, instead of running the JVM out of memory.
+     *
+     * @param pageLimit the maximum number of pages, or 0 (the default, {@code xr.layout.page-limit})
+     *                  for no limit
+     * @see SharedContext#setPageLimit(int)
+     */
+    public void setPageLimit(int pageLimit) {
+        _sharedContext.setPageLimit(pageLimit);
+    }
+
     public void setScaleToFit(boolean scaleToFit) {
         this.scaleToFit = scaleToFit;
     }
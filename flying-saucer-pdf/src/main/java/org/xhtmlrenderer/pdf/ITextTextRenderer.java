@@ -20,6 +20,7 @@
 package org.xhtmlrenderer.pdf;
 
 import com.lowagie.text.pdf.BaseFont;
+import org.jspecify.annotations.Nullable;
 import org.xhtmlrenderer.extend.FSGlyphVector;
 import org.xhtmlrenderer.extend.FontContext;
 import org.xhtmlrenderer.extend.OutputDevice;
@@ -27,6 +28,7 @@ import org.xhtmlrenderer.extend.TextRenderer;
 import org.xhtmlrenderer.render.FSFont;
 import org.xhtmlrenderer.render.FSFontMetrics;
 import org.xhtmlrenderer.render.JustificationInfo;
+import org.xhtmlrenderer.render.TextAdvances;
 
 import java.awt.*;
 
@@ -69,12 +71,26 @@ public class ITextTextRenderer implements TextRenderer {
 
     @Override
     public int getWidth(FontContext context, FSFont font, String string) {
-        BaseFont bf = ((ITextFSFont)font).getFontDescription().getFont();
-        float result = bf.getWidthPoint(string, font.getSize2D());
-        if (result - Math.floor(result) < TEXT_MEASURING_DELTA) {
-            return (int)result;
+        GlyphAdvances advances = ((ITextFSFont)font).getFontDescription().getAdvances();
+        return round(advances.getWidthPoint(string, 0, string.length(), font.getSize2D()));
+    }
+
+    @Override
+    @Nullable
+    public TextAdvances getAdvances(FontContext context, FSFont font, String string) {
+        int[] prefixWidths = ((ITextFSFont)font).getFontDescription().getAdvances().getPrefixWidths(string);
+        if (prefixWidths == null) {
+            return null;
+        }
+        float size = font.getSize2D();
+        return (start, end) -> round((prefixWidths[end] - prefixWidths[start]) * 0.001f * size);
+    }
+
+    private static int round(float width) {
+        if (width - Math.floor(width) < TEXT_MEASURING_DELTA) {
+            return (int)width;
         } else {
-            return (int)Math.ceil(result);
+            return (int)Math.ceil(width);
         }
     }
 
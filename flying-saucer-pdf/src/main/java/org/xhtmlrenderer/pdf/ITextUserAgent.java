@@ -25,7 +25,10 @@ import com.lowagie.text.Image;
 import com.lowagie.text.Rectangle;
 import com.lowagie.text.pdf.PdfReader;
 import org.jspecify.annotations.Nullable;
+import org.xhtmlrenderer.event.RenderCounter;
 import org.xhtmlrenderer.extend.FSImage;
+import org.xhtmlrenderer.layout.RenderMetrics;
+import org.xhtmlrenderer.layout.SharedContext;
 import org.xhtmlrenderer.resource.ImageResource;
 import org.xhtmlrenderer.swing.NaiveUserAgent;
 import org.xhtmlrenderer.util.Configuration;
@@ -59,15 +62,25 @@ public class ITextUserAgent extends NaiveUserAgent {
 
     @Override
     public ImageResource getImageResource(String uriStr) {
-        String unresolvedUri = uriStr;
         if (!isEmbeddedBase64Image(uriStr)) {
             uriStr = resolveURI(uriStr);
         }
-        ImageResource resource = _imageCache.get(unresolvedUri);
+        String variant = getImageCacheVariant();
+        ImageResource resource = uriStr == null ? null : getImageCache().get(uriStr, variant);
 
+        SharedContext sharedContext = _outputDevice.getSharedContext();
+        RenderMetrics metrics = sharedContext == null ? null : sharedContext.getMetrics();
+        if (metrics != null) {
+            metrics.increment(RenderCounter.IMAGE_REQUESTS);
+        }
         if (resource == null) {
+            if (metrics != null) {
+                metrics.increment(RenderCounter.IMAGES_DECODED);
+            }
             resource = loadImageResource(uriStr);
-            _imageCache.put(unresolvedUri, resource);
+            if (resource != null && uriStr != null) {
+                resource = getImageCache().put(uriStr, variant, resource, weightOf(resource));
+            }
         }
         if (resource != null) {
             FSImage image = resource.getImage();
@@ -80,6 +93,24 @@ public class ITextUserAgent extends NaiveUserAgent {
         }
     }
 
+    /**
+     * @return the variant of the images in the image cache, which are scaled to the output
+     * resolution when they are loaded
+     */
+    @Override
+    protected String getImageCacheVariant() {
+        return "pdf@" + dotsPerPixel;
+    }
+
+    private static long weightOf(ImageResource resource) {
+        if (resource.getImage() instanceof ITextFSImage image) {
+            Image img = image.getImage();
+            byte[] data = img.getRawData();
+            return data != null ? data.length : (long) (img.getPlainWidth() * img.getPlainHeight()) * 4;
+        }
+        return 0;
+    }
+
     @Nullable
     private ImageResource loadImageResource(String uriStr) {
         if (isEmbeddedBase64Image(uriStr)) {
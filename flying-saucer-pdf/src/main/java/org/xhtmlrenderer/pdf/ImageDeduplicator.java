@@ -0,0 +1,147 @@
+package org.xhtmlrenderer.pdf;
+
+import com.lowagie.text.Image;
+import com.lowagie.text.pdf.PdfDictionary;
+import org.jspecify.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Finds images with the same content, so that they are written as one image XObject.
+ * <p>
+ * The writer creates one XObject per {@linkplain Image#getMySerialId() serial id}, and copies of an
+ * image (e.g. scaled ones) keep the serial id of the original. Images which were loaded separately,
+ * like the same logo behind two URLs, or loaded again after they were dropped from a cache, get
+ * different serial ids though. This class maps every image to the first image drawn with the same
+ * pixels, size, color space and mask. The transform passed to the writer sets the displayed size,
+ * so one XObject can be drawn at any size.
+ * <p>
+ * Not thread-safe, the output device calls it while holding the writer lock.
+ */
+final class ImageDeduplicator {
+    private final Map<Long, Image> _bySerialId = new HashMap<>();
+    private final Map<String, Image> _byContent = new HashMap<>();
+
+    private int _duplicateCount;
+    private long _bytesSaved;
+
+    /**
+     * @return the image to add to the writer instead of the given one, which is either the given
+     * image or the first one with the same content
+     */
+    Image deduplicate(Image image) {
+        Image known = _bySerialId.get(image.getMySerialId());
+        if (known != null) {
+            return known;
+        }
+
+        String digest = digest(image);
+        Image result = image;
+        if (digest != null) {
+            Image first = _byContent.putIfAbsent(digest, image);
+            if (first != null) {
+                result = first;
+                _duplicateCount++;
+                _bytesSaved += payloadSize(image);
+            }
+        }
+        _bySerialId.put(image.getMySerialId(), result);
+        return result;
+    }
+
+    /**
+     * @return the number of images which have been replaced by an image with the same content
+     */
+    int getDuplicateCount() {
+        return _duplicateCount;
+    }
+
+    /**
+     * @return the size of the image data which has not been written because of duplicates
+     */
+    long getBytesSaved() {
+        return _bytesSaved;
+    }
+
+    /**
+     * Forgets the images and counts of the previous document.
+     */
+    void clear() {
+        _bySerialId.clear();
+        _byContent.clear();
+        _duplicateCount = 0;
+        _bytesSaved = 0;
+    }
+
+    /**
+     * @return a digest of everything that goes into the image XObject, or {@code null} for images
+     * without raw data (like templates), which are never merged
+     */
+    @Nullable
+    private static String digest(Image image) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return update(digest, image) ? HexFormat.of().formatHex(digest.digest()) : null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean update(MessageDigest digest, Image image) throws IOException {
+        byte[] data = image.getRawData();
+        if (data == null) {
+            return false;
+        }
+        digest.update(ByteBuffer.allocate(40)
+                .putInt(image.type())
+                .putInt(image.getOriginalType())
+                .putFloat(image.getWidth())
+                .putFloat(image.getHeight())
+                .putInt(image.getBpc())
+                .putInt(image.getColorspace())
+                .putInt(image.isInverted() ? 1 : 0)
+                .putInt(image.isMask() ? 1 : 0)
+                .putInt(image.isSmask() ? 1 : 0)
+                .putInt(image.isDeflated() ? 1 : 0)
+                .array());
+        int[] transparency = image.getTransparency();
+        if (transparency != null) {
+            for (int value : transparency) {
+                digest.update(ByteBuffer.allocate(4).putInt(value).array());
+            }
+        }
+        if (image.getICCProfile() != null) {
+            digest.update(image.getICCProfile().getData());
+        }
+        PdfDictionary additional = image.getAdditional();
+        if (additional != null) {
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            additional.toPdf(null, serialized);
+            digest.update(serialized.toByteArray());
+        }
+        digest.update(data);
+
+        Image mask = image.getImageMask();
+        if (mask != null) {
+            digest.update((byte) 'M');
+            return update(digest, mask);
+        }
+        return true;
+    }
+
+    private static long payloadSize(Image image) {
+        byte[] data = image.getRawData();
+        long size = data == null ? 0 : data.length;
+        Image mask = image.getImageMask();
+        return mask == null ? size : size + payloadSize(mask);
+    }
+}
@@ -0,0 +1,96 @@
+package org.xhtmlrenderer.pdf;
+
+import com.google.errorprone.annotations.CheckReturnValue;
+import com.lowagie.text.pdf.PdfReader;
+import org.xhtmlrenderer.util.WeightedLruCache;
+
+import java.io.IOException;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * A thread-safe cache of parsed PDF documents which are embedded as images, see {@link PDFAsImage}.
+ * It can be shared between any number of renderers, e.g. by keeping it in a static field and
+ * passing it to {@link ITextOutputDevice#setReaderCache}, so that a letterhead used by every
+ * document is parsed only once.
+ * <p>
+ * Documents are keyed by URI and a digest of their content, so a changed document behind the same
+ * URI is parsed again. The cache is bounded both by number of entries and by total weight (the size
+ * of the documents in bytes); least recently used entries are evicted first.
+ * <p>
+ * The cached readers are fully read when they are parsed, and are only read from afterwards, so
+ * several documents can import pages from the same reader at the same time.
+ */
+public class SharedPdfReaderCache {
+    public static final int DEFAULT_MAX_ENTRIES = 32;
+    public static final long DEFAULT_MAX_WEIGHT = 32L * 1024 * 1024;
+
+    private final WeightedLruCache<Key, PdfReader> _cache;
+
+    public SharedPdfReaderCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+    }
+
+    public SharedPdfReaderCache(int maxEntries, long maxWeight) {
+        _cache = new WeightedLruCache<>("SharedPdfReaderCache", maxEntries, maxWeight);
+    }
+
+    /**
+     * Returns the cached reader of the document, or parses and caches it. Concurrent misses for
+     * the same document may parse it more than once, but only the first reader is kept.
+     *
+     * @param uri     the URI of the document
+     * @param content the content of the document
+     */
+    @CheckReturnValue
+    public PdfReader get(URI uri, byte[] content) throws IOException {
+        Key key = new Key(uri, digest(content));
+        PdfReader cached = _cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return _cache.putIfAbsent(key, new PdfReader(content), content.length);
+    }
+
+    private static String digest(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void clear() {
+        _cache.clear();
+    }
+
+    public int size() {
+        return _cache.size();
+    }
+
+    public long getWeight() {
+        return _cache.getWeight();
+    }
+
+    public long getHitCount() {
+        return _cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return _cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return _cache.getEvictionCount();
+    }
+
+    @Override
+    public String toString() {
+        return _cache.toString();
+    }
+
+    private record Key(URI uri, String digest) {
+    }
+}
@@ -18,6 +18,8 @@ import javax.xml.transform.stream.StreamResult;
 import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -78,6 +80,23 @@ public class DocumentSplitterTest {
                 .isEqualTo("<body><head><title>2&gt;Second</title></head><h2>Second head</h2></body>");
     }
 
+    @Test
+    public void handDocumentsToConsumer() throws Exception {
+        List<String> headings = new ArrayList<>();
+        DocumentSplitter streaming = new DocumentSplitter(doc ->
+                headings.add(doc.getElementsByTagName("h1").item(0).getTextContent()));
+        reader.setContentHandler(streaming);
+
+        reader.parse(new InputSource(new StringReader("<html>" +
+                "<head><title>The head</title></head>" +
+                "<body><h1>First</h1></body>" +
+                "<body><h1>Second</h1></body>" +
+                "</html>")));
+
+        assertThat(headings).containsExactly("First", "Second");
+        assertThat(streaming.getDocuments()).isEmpty();
+    }
+
     private static String serialize(Document document) throws TransformerException {
         TransformerFactory factory = TransformerFactory.newInstance();
         Transformer serializer = factory.newTransformer();
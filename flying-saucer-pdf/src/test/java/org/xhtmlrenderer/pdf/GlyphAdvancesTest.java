@@ -0,0 +1,56 @@
+package org.xhtmlrenderer.pdf;
+
+import com.lowagie.text.pdf.BaseFont;
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+import java.util.List;
+
+import static com.lowagie.text.pdf.BaseFont.CP1252;
+import static com.lowagie.text.pdf.BaseFont.EMBEDDED;
+import static com.lowagie.text.pdf.BaseFont.HELVETICA;
+import static com.lowagie.text.pdf.BaseFont.IDENTITY_H;
+import static com.lowagie.text.pdf.BaseFont.NOT_EMBEDDED;
+import static java.util.Objects.requireNonNull;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GlyphAdvancesTest {
+    private static final List<String> TEXTS = List.of(
+            "",
+            "Hello, World!",
+            "Zwölf Boxkämpfer jagen Viktor quer über den großen Sylter Deich – „€ 10“",
+            "Съешь же ещё этих мягких французских булок",
+            "emoji 😀 and more"
+    );
+
+    @Test
+    void sameWidthsAsBuiltInFont() throws Exception {
+        assertSameWidths(BaseFont.createFont(HELVETICA, CP1252, NOT_EMBEDDED));
+    }
+
+    @Test
+    void sameWidthsAsUnicodeFont() throws Exception {
+        String path = requireNonNull(getClass().getResource("/fonts/Jacquard24-Regular.ttf")).toString();
+        assertSameWidths(BaseFont.createFont(path, IDENTITY_H, EMBEDDED));
+    }
+
+    @Test
+    void measuresSubstringsWithoutCopying() throws Exception {
+        BaseFont font = BaseFont.createFont(HELVETICA, CP1252, NOT_EMBEDDED);
+        GlyphAdvances advances = new GlyphAdvances(font);
+        String text = "The quick brown fox";
+
+        assertThat(advances.getWidth(text, 4, 9)).isEqualTo(font.getWidth("quick"));
+        assertThat(advances.getWidthPoint(text, 4, 9, 12)).isEqualTo(font.getWidthPoint("quick", 12));
+        assertThat(advances.getWidth(CharBuffer.wrap(text), 10, 19)).isEqualTo(font.getWidth("brown fox"));
+    }
+
+    private static void assertSameWidths(BaseFont font) {
+        GlyphAdvances advances = new GlyphAdvances(font);
+        for (String text : TEXTS) {
+            assertThat(advances.getWidth(text, 0, text.length())).as(text).isEqualTo(font.getWidth(text));
+            assertThat(advances.getWidthPoint(text, 0, text.length(), 11.5f)).as(text)
+                    .isEqualTo(font.getWidthPoint(text, 11.5f));
+        }
+    }
+}
@@ -1,7 +1,16 @@
 package org.xhtmlrenderer.pdf;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xhtmlrenderer.css.constants.IdentValue;
+import org.xhtmlrenderer.css.value.FontSpecification;
+import org.xhtmlrenderer.render.FSFont;
 
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.util.Objects.requireNonNull;
 import static org.assertj.core.api.Assertions.assertThat;
 
 class ITextFontResolverTest {
@@ -38,4 +47,58 @@ class ITextFontResolverTest {
         assertThat(resolver.normalizeFontFamily("MONOSPACE")).isEqualTo("Monospaced");
         assertThat(resolver.normalizeFontFamily("\"monospace\"")).isEqualTo("Monospaced");
     }
-}
\ No newline at end of file
+
+    @Test
+    void registersIndexedFontsWithoutLoadingThem(@TempDir Path dir) throws Exception {
+        Path fonts = Files.createDirectory(dir.resolve("fonts"));
+        try (InputStream font = requireNonNull(getClass().getResourceAsStream("/fonts/Jacquard24-Regular.ttf"))) {
+            Files.copy(font, fonts.resolve("Jacquard24-Regular.ttf"));
+        }
+        Path index = dir.resolve("fonts.idx");
+
+        ITextFontResolver first = new ITextFontResolver();
+        first.setFontIndex(index);
+        first.addFontDirectory(fonts.toString(), true);
+        assertThat(index).exists();
+        FontDescription parsed = first.getFonts().get("Jacquard 24").getFontDescriptions().get(0);
+        assertThat(parsed.isLoaded()).isTrue();
+
+        ITextFontResolver second = new ITextFontResolver();
+        second.setFontIndex(index);
+        second.addFontDirectory(fonts.toString(), true);
+        FontDescription indexed = second.getFonts().get("Jacquard 24").getFontDescriptions().get(0);
+
+        assertThat(indexed.isLoaded()).isFalse();
+        assertThat(indexed.getWeight()).isEqualTo(parsed.getWeight());
+        assertThat(indexed.getStyle()).isEqualTo(IdentValue.NORMAL);
+        assertThat(indexed.getUnderlinePosition()).isEqualTo(parsed.getUnderlinePosition());
+        assertThat(indexed.getYStrikeoutPosition()).isEqualTo(parsed.getYStrikeoutPosition());
+        assertThat(indexed.getFont().getPostscriptFontName()).isEqualTo(parsed.getFont().getPostscriptFontName());
+        assertThat(indexed.isLoaded()).isTrue();
+    }
+
+    @Test
+    void sharesResolvedFontsPerSpecification() {
+        FontSpecification spec = spec(12, "\"Unknown\"", "sans-serif");
+
+        FSFont font = resolver.resolveFont(null, spec);
+
+        assertThat(((ITextFSFont) font).getFontDescription().getFont().getPostscriptFontName()).isEqualTo("Helvetica");
+        assertThat(resolver.resolveFont(null, spec(12, "\"Unknown\"", "sans-serif"))).isSameAs(font);
+        assertThat(resolver.resolveFont(null, spec(14, "\"Unknown\"", "sans-serif"))).isNotSameAs(font);
+
+        spec.families[1] = "monospace";
+        assertThat(resolver.resolveFont(null, spec)).isNotSameAs(font);
+        assertThat(resolver.resolveFont(null, spec(12, "\"Unknown\"", "sans-serif"))).isSameAs(font);
+    }
+
+    private static FontSpecification spec(float size, String... families) {
+        FontSpecification spec = new FontSpecification();
+        spec.size = size;
+        spec.families = families;
+        spec.fontWeight = IdentValue.NORMAL;
+        spec.fontStyle = IdentValue.NORMAL;
+        spec.variant = IdentValue.NORMAL;
+        return spec;
+    }
+}
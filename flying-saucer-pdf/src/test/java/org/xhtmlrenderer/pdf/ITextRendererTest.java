@@ -2,18 +2,45 @@ package org.xhtmlrenderer.pdf;
 
 import com.codeborne.pdftest.PDF;
 import com.lowagie.text.DocumentException;
+import com.lowagie.text.pdf.PdfArray;
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfReader;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
+import org.xhtmlrenderer.event.InMemoryRenderMetrics;
+import org.xhtmlrenderer.event.RenderCounter;
+import org.xhtmlrenderer.event.RenderPhase;
 import org.xhtmlrenderer.resource.XMLResource;
+import org.xhtmlrenderer.util.XRRuntimeException;
+import org.xml.sax.InputSource;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.codeborne.pdftest.assertj.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class ITextRendererTest {
     private Logger log = LoggerFactory.getLogger(ITextRendererTest.class);
@@ -35,4 +62,318 @@ class ITextRendererTest {
         PDF pdf = new PDF(file);
         assertThat(pdf).containsText("My First Heading", "My first paragraph");
     }
-}
\ No newline at end of file
+
+    @Test
+    void concurrentPaintingGivesSamePages() throws IOException {
+        StringBuilder html = new StringBuilder("<html><body>");
+        for (int i = 1; i <= 40; i++) {
+            html.append("<div style='page-break-after: always' id='s").append(i).append("'>")
+                    .append("<h2>Section ").append(i).append("</h2>")
+                    .append("<p>Go to <a href='#s").append(41 - i).append("'>section ").append(41 - i).append("</a>")
+                    .append(" or <a href='https://example.com/").append(i).append("'>elsewhere</a>.</p>");
+            if (i == 7) {
+                html.append("<form><input type='text' name='field' value='text field'/></form>");
+            }
+            html.append("</div>");
+        }
+        html.append("</body></html>");
+
+        byte[] sequential = createPDF(html.toString(), null);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        byte[] concurrent;
+        try {
+            concurrent = createPDF(html.toString(), executor);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        PDF expected = new PDF(sequential);
+        PDF actual = new PDF(concurrent);
+        assertThat(actual.numberOfPages).isEqualTo(expected.numberOfPages);
+        assertThat(actual.text).isEqualTo(expected.text);
+        assertThat(annotationsPerPage(concurrent)).isEqualTo(annotationsPerPage(sequential));
+    }
+
+    @Test
+    void concurrentPaintingRepeatsTableHeadersLikeSequentialPainting() throws IOException {
+        StringBuilder html = new StringBuilder("<html><head><style>" +
+                "table { -fs-table-paginate: paginate; border-collapse: collapse }" +
+                "td, th { border: 1px solid black }" +
+                "</style></head><body><table><thead><tr><th>Header</th><th>Amount</th></tr></thead>" +
+                "<tfoot><tr><td>Footer</td><td>Total</td></tr></tfoot><tbody>");
+        for (int i = 1; i <= 300; i++) {
+            html.append("<tr><td>Row ").append(i).append("</td><td>").append(i * 37).append("</td></tr>");
+        }
+        html.append("</tbody></table></body></html>");
+
+        byte[] sequential = createPDF(html.toString(), null);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        byte[] concurrent;
+        try {
+            concurrent = createPDF(html.toString(), executor);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<byte[]> expected = pageContents(sequential);
+        assertThat(expected).hasSizeGreaterThan(3);
+        assertThat(pageContents(concurrent)).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void writesDocumentSectionBySection() throws IOException {
+        String html = sections(30);
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        new ITextRenderer().createPDFInSections(new InputSource(new StringReader(html)), null, result);
+
+        PDF pdf = new PDF(result.toByteArray());
+        assertThat(pdf.numberOfPages).isEqualTo(60);
+        assertThat(pdf).containsText("Chapter 1 ", "Chapter 17 ", "Chapter 30 ", "Page 2 of 2");
+    }
+
+    @Test
+    void appliesPageLimitToEverySection() {
+        ITextRenderer renderer = new ITextRenderer();
+        renderer.setPageLimit(2);
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+
+        renderer.createPDFInSections(new InputSource(new StringReader(sections(3))), null, result);
+
+        assertThat(new PDF(result.toByteArray()).numberOfPages).isEqualTo(6);
+    }
+
+    @Test
+    void failsWhenPageLimitIsExceeded() {
+        ITextRenderer renderer = new ITextRenderer();
+        renderer.setPageLimit(1);
+
+        assertThatThrownBy(() -> renderer.createPDFInSections(
+                new InputSource(new StringReader(sections(2))), null, new ByteArrayOutputStream()))
+                .isInstanceOf(XRRuntimeException.class)
+                .hasMessageContaining("more than the limit of 1 pages");
+    }
+
+    @Test
+    void sharesEmbeddedPdfBetweenDocumentsAndPages(@TempDir Path dir) throws IOException {
+        Path letterhead = dir.resolve("letterhead.pdf");
+        Files.write(letterhead, createPDF("<html><body><h1>ACME Corporation</h1></body></html>", null));
+        StringBuilder html = new StringBuilder("<html><body>");
+        for (int i = 1; i <= 3; i++) {
+            html.append("<div style='page-break-before: ").append(i == 1 ? "auto" : "always").append("'><img src='").append(letterhead.toUri())
+                    .append("' style='width: 200px'/><p>Invoice page ").append(i).append("</p></div>");
+        }
+        html.append("</body></html>");
+        SharedPdfReaderCache cache = new SharedPdfReaderCache();
+
+        byte[] first = createPDFWithReaderCache(html.toString(), cache);
+        byte[] second = createPDFWithReaderCache(html.toString(), cache);
+
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(new PDF(second).text).isEqualTo(new PDF(first).text);
+        assertThat(new PDF(second)).containsText("ACME Corporation", "Invoice page 3");
+        assertThat(new PDF(second).numberOfPages).isEqualTo(3);
+        assertThat(xObjects(second)).hasSize(1);
+    }
+
+    @Test
+    void writesImagesWithSameContentOnce(@TempDir Path dir) throws IOException {
+        BufferedImage logo = new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB);
+        logo.setRGB(10, 10, 0xff0000);
+        Path first = dir.resolve("logo.png");
+        Path second = dir.resolve("copy-of-logo.png");
+        ImageIO.write(logo, "png", first.toFile());
+        Files.copy(first, second);
+        StringBuilder html = new StringBuilder("<html><body>");
+        for (int i = 1; i <= 3; i++) {
+            html.append("<div style='page-break-before: ").append(i == 1 ? "auto" : "always").append("'>")
+                    .append("<img src='").append(first.toUri()).append("' style='width: ").append(i * 50).append("px'/>")
+                    .append("<img src='").append(second.toUri()).append("'/></div>");
+        }
+        html.append("</body></html>");
+        ITextRenderer renderer = new ITextRenderer();
+        renderer.setDocumentFromString(html.toString());
+        renderer.layout();
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        renderer.createPDF(result);
+
+        assertThat(new PDF(result.toByteArray()).numberOfPages).isEqualTo(3);
+        assertThat(xObjects(result.toByteArray())).hasSize(1);
+        assertThat(renderer.getOutputDevice().getDuplicateImageCount()).isEqualTo(1);
+        assertThat(renderer.getOutputDevice().getImageBytesSaved()).isPositive();
+
+        long bytesSaved = renderer.getOutputDevice().getImageBytesSaved();
+        renderer.createPDF(new ByteArrayOutputStream());
+        assertThat(renderer.getOutputDevice().getDuplicateImageCount()).isEqualTo(1);
+        assertThat(renderer.getOutputDevice().getImageBytesSaved()).isEqualTo(bytesSaved);
+    }
+
+    @Test
+    void reportsMetricsOfEachPhase(@TempDir Path dir) throws IOException {
+        Path logo = dir.resolve("logo.png");
+        ImageIO.write(new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB), "png", logo.toFile());
+        InMemoryRenderMetrics metrics = new InMemoryRenderMetrics();
+        ITextRenderer renderer = new ITextRenderer();
+        renderer.setMetricsListener(metrics);
+
+        for (int i = 0; i < 2; i++) {
+            renderer.setDocumentFromString("<html><body><p>Hello</p>" +
+                    "<img src='" + logo.toUri() + "'/><img src='" + logo.toUri() + "'/>" +
+                    "<p style='page-break-before: always'>World</p></body></html>");
+            renderer.layout();
+            renderer.createPDF(new ByteArrayOutputStream());
+        }
+
+        for (RenderPhase phase : RenderPhase.values()) {
+            assertThat(metrics.getElapsedNanos(phase)).as(phase.name()).isPositive();
+        }
+        assertThat(metrics.getCount(RenderCounter.PAGES)).isEqualTo(4);
+        assertThat(metrics.getCount(RenderCounter.LINE_BOXES)).isEqualTo(6);
+        assertThat(metrics.getCount(RenderCounter.IMAGE_REQUESTS)).isEqualTo(4);
+        assertThat(metrics.getCount(RenderCounter.IMAGES_DECODED)).isEqualTo(1);
+        assertThat(metrics.getImageCacheHitRate()).isEqualTo(0.75);
+        assertThat(metrics.getFontCacheHitRate()).isPositive();
+    }
+
+    @Test
+    void batchedTextLooksTheSameAndTakesLessSpace() throws IOException {
+        StringBuilder html = new StringBuilder("<html><body>");
+        for (int i = 0; i < 60; i++) {
+            html.append("<p style='text-align: justify'>Paragraph ").append(i)
+                    .append(" with <b>bold</b>, <span style='font-weight: 900'>emulated black</span>, <i>italic</i>,")
+                    .append(" <span style='color: #c00'>red</span>, <span style='background: #ff0'>highlighted</span>,")
+                    .append(" <u>underlined</u> and <span style='font-size: 20px'>larger</span> words")
+                    .append(" in a line long enough to be broken and justified across the width of the page.</p>");
+        }
+        html.append("</body></html>");
+
+        byte[] separate = createPDF(html.toString(), false);
+        byte[] batched = createPDF(html.toString(), true);
+
+        assertThat(contentLength(batched)).isLessThan(contentLength(separate));
+        try (PDDocument expected = Loader.loadPDF(separate); PDDocument actual = Loader.loadPDF(batched)) {
+            assertThat(actual.getNumberOfPages()).isEqualTo(expected.getNumberOfPages());
+            PDFRenderer expectedRenderer = new PDFRenderer(expected);
+            PDFRenderer actualRenderer = new PDFRenderer(actual);
+            for (int i = 0; i < expected.getNumberOfPages(); i++) {
+                BufferedImage expectedImage = expectedRenderer.renderImageWithDPI(i, 72);
+                BufferedImage actualImage = actualRenderer.renderImageWithDPI(i, 72);
+                int width = expectedImage.getWidth();
+                int height = expectedImage.getHeight();
+                assertThat(actualImage.getRGB(0, 0, width, height, null, 0, width)).as("page %s", i)
+                        .isEqualTo(expectedImage.getRGB(0, 0, width, height, null, 0, width));
+            }
+        }
+    }
+
+    @Test
+    void solidTableBordersArePaintedAsMergedRectangles() throws IOException {
+        StringBuilder html = new StringBuilder("<html><head><style>" +
+                "table { border-collapse: collapse } td { border: 2px solid #036; padding: 4px }" +
+                "</style></head><body><table>");
+        for (int row = 0; row < 20; row++) {
+            html.append("<tr>");
+            for (int col = 0; col < 5; col++) {
+                html.append("<td>").append(row).append('/').append(col).append("</td>");
+            }
+            html.append("</tr>");
+        }
+        html.append("</table></body></html>");
+
+        String content;
+        try (PdfReader reader = new PdfReader(createPDF(html.toString(), true))) {
+            assertThat(reader.getNumberOfPages()).isEqualTo(1);
+            content = new String(reader.getPageContent(1), StandardCharsets.ISO_8859_1);
+        }
+        // about one rectangle per grid line instead of four paths per cell
+        int rectangles = content.split(" re\\n", -1).length - 1;
+        assertThat(rectangles).isGreaterThanOrEqualTo(20 + 1 + 5 + 1).isLessThan(20 * 5);
+    }
+
+    private static byte[] createPDFWithReaderCache(String html, SharedPdfReaderCache readerCache) {
+        ITextRenderer renderer = new ITextRenderer();
+        renderer.getOutputDevice().setReaderCache(readerCache);
+        renderer.setDocumentFromString(html);
+        renderer.layout();
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        renderer.createPDF(result);
+        return result.toByteArray();
+    }
+
+    private static Set<Integer> xObjects(byte[] pdf) throws IOException {
+        Set<Integer> result = new HashSet<>();
+        try (PdfReader reader = new PdfReader(pdf)) {
+            for (int i = 1; i <= reader.getNumberOfPages(); i++) {
+                PdfDictionary xObjects = reader.getPageN(i).getAsDict(PdfName.RESOURCES).getAsDict(PdfName.XOBJECT);
+                assertThat(xObjects).as("page %s", i).isNotNull();
+                for (PdfName name : xObjects.getKeys()) {
+                    result.add(xObjects.getAsIndirectObject(name).getNumber());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String sections(int count) {
+        StringBuilder html = new StringBuilder("<html><head><style>" +
+                "@page { @bottom-center { content: 'Page ' counter(page) ' of ' counter(pages) } }" +
+                "</style></head>");
+        for (int i = 1; i <= count; i++) {
+            html.append("<body><h1>Chapter ").append(i).append(" </h1>")
+                    .append("<p style='page-break-after: always'>First page</p><p>Second page</p></body>");
+        }
+        return html.append("</html>").toString();
+    }
+
+    private static byte[] createPDF(String html, ExecutorService executor) {
+        ITextRenderer renderer = new ITextRenderer();
+        renderer.setPaintingExecutor(executor);
+        renderer.setDocumentFromString(html);
+        renderer.layout();
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        renderer.createPDF(result);
+        return result.toByteArray();
+    }
+
+    private static List<byte[]> pageContents(byte[] pdf) throws IOException {
+        List<byte[]> result = new ArrayList<>();
+        try (PdfReader reader = new PdfReader(pdf)) {
+            for (int i = 1; i <= reader.getNumberOfPages(); i++) {
+                result.add(reader.getPageContent(i));
+            }
+        }
+        return result;
+    }
+
+    private static byte[] createPDF(String html, boolean batchText) {
+        ITextRenderer renderer = new ITextRenderer();
+        renderer.getOutputDevice().setBatchText(batchText);
+        renderer.setDocumentFromString(html);
+        renderer.layout();
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        renderer.createPDF(result);
+        return result.toByteArray();
+    }
+
+    private static int contentLength(byte[] pdf) throws IOException {
+        int result = 0;
+        try (PdfReader reader = new PdfReader(pdf)) {
+            for (int i = 1; i <= reader.getNumberOfPages(); i++) {
+                result += reader.getPageContent(i).length;
+            }
+        }
+        return result;
+    }
+
+    private static List<Integer> annotationsPerPage(byte[] pdf) throws IOException {
+        List<Integer> result = new ArrayList<>();
+        try (PdfReader reader = new PdfReader(pdf)) {
+            for (int i = 1; i <= reader.getNumberOfPages(); i++) {
+                PdfArray annotations = reader.getPageN(i).getAsArray(PdfName.ANNOTS);
+                result.add(annotations == null ? 0 : annotations.size());
+            }
+        }
+        return result;
+    }
+}
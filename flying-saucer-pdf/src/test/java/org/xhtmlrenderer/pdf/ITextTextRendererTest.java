@@ -0,0 +1,39 @@
+package org.xhtmlrenderer.pdf;
+
+import com.lowagie.text.pdf.BaseFont;
+import org.junit.jupiter.api.Test;
+import org.xhtmlrenderer.render.TextAdvances;
+
+import static com.lowagie.text.pdf.BaseFont.CP1252;
+import static com.lowagie.text.pdf.BaseFont.NOT_EMBEDDED;
+import static com.lowagie.text.pdf.BaseFont.TIMES_ROMAN;
+import static java.util.Objects.requireNonNull;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ITextTextRendererTest {
+    private final ITextTextRenderer renderer = new ITextTextRenderer();
+    private final ITextFontContext context = new ITextFontContext();
+
+    @Test
+    void advancesGiveSameWidthsAsMeasuringSubstrings() throws Exception {
+        ITextFSFont font = new ITextFSFont(new FontDescription(BaseFont.createFont(TIMES_ROMAN, CP1252, NOT_EMBEDDED)), 213.3f);
+        String text = "Lorem ipsum dolor sit amet, consectetur adipiscing elit";
+
+        TextAdvances advances = requireNonNull(renderer.getAdvances(context, font, text));
+
+        for (int start = 0; start <= text.length(); start++) {
+            for (int end = start; end <= text.length(); end++) {
+                assertThat(advances.getWidth(start, end))
+                        .as("%s-%s", start, end)
+                        .isEqualTo(renderer.getWidth(context, font, text.substring(start, end)));
+            }
+        }
+    }
+
+    @Test
+    void noAdvancesForSurrogatePairs() throws Exception {
+        ITextFSFont font = new ITextFSFont(new FontDescription(BaseFont.createFont(TIMES_ROMAN, CP1252, NOT_EMBEDDED)), 12);
+
+        assertThat(renderer.getAdvances(context, font, "emoji 😀")).isNull();
+    }
+}
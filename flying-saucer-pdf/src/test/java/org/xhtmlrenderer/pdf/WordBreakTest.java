@@ -5,9 +5,11 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 import static com.codeborne.pdftest.assertj.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.xhtmlrenderer.pdf.TestUtils.printFile;
 
 public class WordBreakTest {
@@ -19,4 +21,20 @@ public class WordBreakTest {
         PDF pdf = printFile(log, result, "break-all.pdf");
         assertThat(pdf).containsExactText("HelloWorld1\nHelloWorld2\nHelloWorld3\nHelloWorld4\nHelloWorld5\n");
     }
+
+    @Test
+    void breakWordInLongUnbreakableString() throws IOException {
+        String base64 = "TG9yZW0gaXBzdW0gZG9sb3Igc2l0IGFtZXQsIGNvbnNlY3RldHVyIGFkaXBpc2NpbmcgZWxpdA==".repeat(200);
+        ITextRenderer renderer = new ITextRenderer();
+        renderer.setDocumentFromString("""
+                <html><body><p style="width: 300px; word-wrap: break-word">%s</p></body></html>
+                """.formatted(base64));
+        renderer.layout();
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        renderer.createPDF(result);
+
+        PDF pdf = printFile(log, result.toByteArray(), "break-word.pdf");
+        assertThat(pdf.numberOfPages).isGreaterThan(1);
+        assertThat(pdf.text.replaceAll("\\s", "")).isEqualTo(base64);
+    }
 }